@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2017, LeanFrameworks
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.github.leanframeworks.minibus.api;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Interface to be implemented by event handlers (subscribers) preferring to receive several events at once.
+ * <p>
+ * Dispatchers supporting batch delivery pass all the events that accumulated for the subscription at once. The other
+ * dispatchers simply pass the events one at a time, as single-event batches.
+ *
+ * @param <C> Type of content to be received.
+ */
+@FunctionalInterface
+public interface BatchEventHandler<C> extends EventHandler<C> {
+
+    /**
+     * Handles the specified events.
+     *
+     * @param events Events holding the contents, in the order in which they were dispatched.
+     */
+    void handleEvents(List<Event<C>> events);
+
+    /**
+     * Handles the specified event as a single-event batch.
+     *
+     * @param event Event holding the content.
+     * @see #handleEvents(List)
+     */
+    @Override
+    default void handleEvent(Event<C> event) {
+        handleEvents(Collections.singletonList(event));
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright (c) 2017, LeanFrameworks
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.github.leanframeworks.minibus.api;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Event filter composed of other event filters by a logical operation.
+ * <p>
+ * Composite event filters are created by {@link EventFilter#and(EventFilter)}, {@link EventFilter#or(EventFilter)} and
+ * {@link EventFilter#not()}. Successive operations of the same kind are flattened into a single composite event
+ * filter, so that, for instance, {@code a.and(b).and(c)} evaluates its operands in a single loop rather than through
+ * nested filters. Double negations are removed as well. The operands are evaluated in order, with short-circuiting.
+ * <p>
+ * Since this normalization is done when composing, a composite event filter never has an operand combined with the
+ * same operation (for AND and OR operations), nor a negated operand (for NOT operations). Its structure can therefore
+ * be inspected as is, for example, to compile it into more efficient forms.
+ *
+ * @param <C> Type of content in the event.
+ */
+public final class CompositeEventFilter<C> implements EventFilter<C> {
+
+    /**
+     * Logical operation combining the operands.
+     */
+    private final Operator operator;
+
+    /**
+     * Operands, in evaluation order.
+     */
+    private final EventFilter<C>[] operands;
+
+    /**
+     * Constructor.
+     *
+     * @param operator Logical operation combining the operands.
+     * @param operands Operands, in evaluation order, not to be modified after this call.
+     */
+    private CompositeEventFilter(Operator operator, EventFilter<C>[] operands) {
+        this.operator = operator;
+        this.operands = operands;
+    }
+
+    /**
+     * Combines the specified event filters with the specified AND or OR operation, flattening the operands that are
+     * already combined with the same operation.
+     *
+     * @param operator Logical operation, either {@link Operator#AND} or {@link Operator#OR}.
+     * @param left     Event filter to be evaluated first.
+     * @param right    Event filter to be evaluated second.
+     * @param <C>      Type of content in the event.
+     * @return Newly composed event filter.
+     */
+    static <C> CompositeEventFilter<C> combine(Operator operator, EventFilter<C> left, EventFilter<C> right) {
+        EventFilter<C>[] leftOperands = operandsOf(operator, left);
+        EventFilter<C>[] rightOperands = operandsOf(operator, right);
+        EventFilter<C>[] operands = Arrays.copyOf(leftOperands, leftOperands.length + rightOperands.length);
+        System.arraycopy(rightOperands, 0, operands, leftOperands.length, rightOperands.length);
+        return new CompositeEventFilter<>(operator, operands);
+    }
+
+    /**
+     * Negates the specified event filter, simplifying double negations.
+     *
+     * @param filter Event filter to be negated.
+     * @param <C>    Type of content in the event.
+     * @return Newly composed event filter.
+     */
+    @SuppressWarnings("unchecked")
+    static <C> EventFilter<C> negate(EventFilter<C> filter) {
+        EventFilter<C> result;
+        if ((filter instanceof CompositeEventFilter) && (((CompositeEventFilter<C>) filter).operator == Operator
+                .NOT)) {
+            result = ((CompositeEventFilter<C>) filter).operands[0];
+        } else {
+            result = new CompositeEventFilter<>(Operator.NOT, (EventFilter<C>[]) new EventFilter<?>[]{filter});
+        }
+        return result;
+    }
+
+    /**
+     * Gets the operands of the specified event filter if it is combined with the specified operation, or the event
+     * filter itself otherwise.
+     *
+     * @param operator Logical operation.
+     * @param filter   Event filter.
+     * @param <C>      Type of content in the event.
+     * @return Operands to be flattened.
+     */
+    @SuppressWarnings("unchecked")
+    private static <C> EventFilter<C>[] operandsOf(Operator operator, EventFilter<C> filter) {
+        EventFilter<C>[] result;
+        if ((filter instanceof CompositeEventFilter) && (((CompositeEventFilter<C>) filter).operator == operator)) {
+            result = ((CompositeEventFilter<C>) filter).operands;
+        } else {
+            result = (EventFilter<C>[]) new EventFilter<?>[]{filter};
+        }
+        return result;
+    }
+
+    /**
+     * Gets the logical operation combining the operands.
+     *
+     * @return Logical operation.
+     */
+    public Operator getOperator() {
+        return operator;
+    }
+
+    /**
+     * Gets the operands, in evaluation order.
+     * <p>
+     * A NOT operation has exactly one operand.
+     *
+     * @return Unmodifiable list of operands.
+     */
+    public List<EventFilter<C>> getOperands() {
+        return Collections.unmodifiableList(Arrays.asList(operands));
+    }
+
+    /**
+     * @see EventFilter#accept(Event)
+     */
+    @Override
+    public boolean accept(Event<C> event) {
+        boolean result;
+
+        switch (operator) {
+            case AND:
+                result = true;
+                for (EventFilter<C> operand : operands) {
+                    if (!operand.accept(event)) {
+                        result = false;
+                        break;
+                    }
+                }
+                break;
+            case OR:
+                result = false;
+                for (EventFilter<C> operand : operands) {
+                    if (operand.accept(event)) {
+                        result = true;
+                        break;
+                    }
+                }
+                break;
+            default:
+                result = !operands[0].accept(event);
+        }
+
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return operator + Arrays.toString(operands);
+    }
+
+    /**
+     * Logical operations that can be used to compose event filters.
+     */
+    public enum Operator {
+        AND,
+        OR,
+        NOT
+    }
+}
@@ -0,0 +1,206 @@
+/*
+ * Copyright (c) 2017, LeanFrameworks
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.github.leanframeworks.minibus.api;
+
+/**
+ * Outcomes of the processing of a published event by the event handlers that subscribed for it.
+ * <p>
+ * The outcomes are listed in the order in which the subscriptions were processed, which may differ from the order of
+ * the subscriptions when the dispatcher processes them concurrently.
+ *
+ * @param <C> Type of content in the event.
+ * @see TrackedEvent
+ */
+public final class DeliveryReport<C> {
+
+    /**
+     * Outcome of the processing of an event for a subscription.
+     */
+    public enum Outcome {
+
+        /**
+         * The event was accepted by the filter and processed by the event handler without exception.
+         */
+        DELIVERED,
+
+        /**
+         * The event was not accepted by the filter.
+         */
+        FILTERED,
+
+        /**
+         * The filter or the event handler threw an exception.
+         */
+        FAILED,
+
+        /**
+         * The event handler was no longer available, for example because it was weakly referenced and has been
+         * garbage collected.
+         */
+        COLLECTED
+    }
+
+    private final TrackedEvent<C> event;
+
+    private final Subscription[] subscriptions;
+
+    private final Outcome[] outcomes;
+
+    private final Throwable[] failures;
+
+    private final int size;
+
+    private final boolean discarded;
+
+    /**
+     * Constructor.
+     *
+     * @param event         Event whose processing is reported.
+     * @param subscriptions Processed subscriptions.
+     * @param outcomes      Outcomes per processed subscription.
+     * @param failures      Exceptions per processed subscription, or null for the subscriptions that did not fail.
+     * @param size          Number of processed subscriptions.
+     * @param discarded     True if the event was discarded by the dispatcher before being processed.
+     */
+    DeliveryReport(TrackedEvent<C> event, Subscription[] subscriptions, Outcome[] outcomes, Throwable[] failures,
+                   int size, boolean discarded) {
+        this.event = event;
+        this.subscriptions = subscriptions;
+        this.outcomes = outcomes;
+        this.failures = failures;
+        this.size = size;
+        this.discarded = discarded;
+    }
+
+    /**
+     * Gets the event whose processing is reported.
+     *
+     * @return Published event.
+     */
+    public TrackedEvent<C> getEvent() {
+        return event;
+    }
+
+    /**
+     * Tells whether the event was discarded by the dispatcher, for example because its queue was full or because the
+     * event was conflated with a newer one, in which case none of the subscriptions processed it.
+     *
+     * @return True if the event was discarded, false otherwise.
+     */
+    public boolean isDiscarded() {
+        return discarded;
+    }
+
+    /**
+     * Gets the number of subscriptions that processed the event.
+     *
+     * @return Number of outcomes.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets the subscription at the specified index.
+     *
+     * @param index Index of the outcome.
+     * @return Processed subscription.
+     */
+    public Subscription getSubscription(int index) {
+        checkIndex(index);
+        return subscriptions[index];
+    }
+
+    /**
+     * Gets the outcome at the specified index.
+     *
+     * @param index Index of the outcome.
+     * @return Outcome for the subscription at the same index.
+     */
+    public Outcome getOutcome(int index) {
+        checkIndex(index);
+        return outcomes[index];
+    }
+
+    /**
+     * Gets the exception thrown for the subscription at the specified index.
+     *
+     * @param index Index of the outcome.
+     * @return Exception thrown by the filter or the event handler, or null if the outcome is not {@link
+     * Outcome#FAILED}.
+     */
+    public Throwable getFailure(int index) {
+        checkIndex(index);
+        return failures[index];
+    }
+
+    /**
+     * Gets the number of subscriptions for which the outcome is the specified one.
+     *
+     * @param outcome Outcome to be counted.
+     * @return Number of subscriptions.
+     */
+    public int count(Outcome outcome) {
+        int result = 0;
+
+        for (int i = 0; i < size; i++) {
+            if (outcomes[i] == outcome) {
+                result++;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Tells whether at least one event handler processed the event.
+     *
+     * @return True if the event was delivered, false otherwise.
+     */
+    public boolean isDelivered() {
+        return count(Outcome.DELIVERED) > 0;
+    }
+
+    private void checkIndex(int index) {
+        if ((index < 0) || (index >= size)) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("DeliveryReport[");
+        sb.append(event);
+        if (discarded) {
+            sb.append(":discarded");
+        }
+        for (int i = 0; i < size; i++) {
+            sb.append(i == 0 ? ":" : ",").append(subscriptions[i].getId()).append('=').append(outcomes[i]);
+        }
+        sb.append(']');
+        return sb.toString();
+    }
+}
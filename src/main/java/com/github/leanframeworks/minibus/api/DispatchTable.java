@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2017, LeanFrameworks
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.github.leanframeworks.minibus.api;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Immutable, array-backed list of subscriptions to which an event is to be dispatched.
+ * <p>
+ * Dispatch tables are built by the event bus whenever its subscriptions change, so that they can be shared by any
+ * number of events and threads without copying. Dispatchers should iterate over them by index, which does not require
+ * any allocation.
+ *
+ * @see Dispatcher#dispatch(Event, DispatchTable, Collection, Collection)
+ */
+public final class DispatchTable {
+
+    /**
+     * Dispatch table containing no subscription.
+     */
+    public static final DispatchTable EMPTY = new DispatchTable(new Subscription[0]);
+
+    /**
+     * Subscriptions in dispatch order.
+     */
+    private final Subscription[] subscriptions;
+
+    /**
+     * Constructor.
+     *
+     * @param subscriptions Subscriptions in dispatch order.
+     */
+    public DispatchTable(Collection<? extends Subscription> subscriptions) {
+        this(subscriptions.toArray(new Subscription[subscriptions.size()]));
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param subscriptions Subscriptions in dispatch order, not to be modified after this call.
+     */
+    private DispatchTable(Subscription[] subscriptions) {
+        this.subscriptions = subscriptions;
+    }
+
+    /**
+     * Gets the number of subscriptions in this dispatch table.
+     *
+     * @return Number of subscriptions.
+     */
+    public int size() {
+        return subscriptions.length;
+    }
+
+    /**
+     * States whether this dispatch table contains no subscription.
+     *
+     * @return True if there is no subscription, false otherwise.
+     */
+    public boolean isEmpty() {
+        return subscriptions.length == 0;
+    }
+
+    /**
+     * Gets the subscription at the specified position.
+     *
+     * @param index Position of the subscription in the dispatch order.
+     * @return Subscription.
+     */
+    public Subscription get(int index) {
+        return subscriptions[index];
+    }
+
+    @Override
+    public String toString() {
+        return "DispatchTable" + Arrays.toString(subscriptions);
+    }
+}
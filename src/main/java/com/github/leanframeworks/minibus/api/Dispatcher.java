@@ -26,7 +26,6 @@
 package com.github.leanframeworks.minibus.api;
 
 import java.util.Collection;
-import java.util.Map;
 
 /**
  * Interface to be implemented by dispatchers.
@@ -40,16 +39,20 @@ import java.util.Map;
 public interface Dispatcher {
 
     /**
-     * Dispatches the specified event to the specified event filters and handlers.
+     * Dispatches the specified event to the subscriptions of the specified dispatch table.
+     * <p>
+     * The dispatch table is immutable and may be shared with other events, so it can be kept (for example, queued)
+     * for as long as needed without copying.
      *
      * @param event                    Event to be dispatched.
-     * @param eventHandlers            Event handlers that are candidates for receiving the event.
+     * @param dispatchTable            Subscriptions (event filters and handlers) that are candidates for receiving the
+     *                                 event.
      * @param undeliveredEventHandlers Evant handlers that should process undelivered events.
      * @param exceptionHandlers        Exception handlers to be used in case an exception is thrown during the
      *                                 dispatching or processing of the event.
      */
     void dispatch(Event<Object> event,
-                  Map<EventHandler<Object>, EventFilter<Object>> eventHandlers,
+                  DispatchTable dispatchTable,
                   Collection<EventHandler<Object>> undeliveredEventHandlers,
                   Collection<ExceptionHandler> exceptionHandlers);
 
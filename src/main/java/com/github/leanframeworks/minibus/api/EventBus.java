@@ -25,6 +25,8 @@
 
 package com.github.leanframeworks.minibus.api;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Interface to be implemented by event buses.
  * <p>
@@ -77,6 +79,160 @@ public interface EventBus {
      */
     <C> int subscribe(Topic<C> topic, Channel channel, EventFilter<? super C> filter, EventHandler<? super C> handler);
 
+    /**
+     * Registers a subscriber for the specified topic on the specified channel with the specified filter by adding an
+     * event handler, possibly only weakly referenced.
+     * <p>
+     * A weakly referenced event handler does not need to be unsubscribed: its subscription will be removed after it
+     * has been garbage collected. Note that the caller is then responsible for keeping a strong reference to the event
+     * handler for as long as it should receive events. In particular, lambdas and method references created just for
+     * the subscription may be garbage collected right away.
+     *
+     * @param topic   Topic to subscribe for.
+     * @param channel Channel on which the events should be received.
+     * @param filter  Additional filter that should be applied before receiving the events.
+     * @param handler Event handler that will process the received events.
+     * @param weak    True if the event bus should only keep a weak reference to the event handler, false otherwise.
+     * @param <C>     Type of content to subscribe for.
+     * @return Unique identifier of the subscription that can be used to {@link #unsubscribe(int)}.
+     * @see #unsubscribe(int)
+     */
+    <C> int subscribe(Topic<C> topic, Channel channel, EventFilter<? super C> filter, EventHandler<? super C> handler,
+                      boolean weak);
+
+    /**
+     * Registers a subscriber for the specified topic on the specified channel with the specified filter by adding an
+     * event handler, possibly only weakly referenced, with the specified priority.
+     * <p>
+     * Event handlers with a higher priority receive an event before the ones with a lower priority. Event handlers
+     * with the same priority receive it in subscription order, whether they subscribed for the topic itself, for one of
+     * its covering topics, for a matching topic pattern or for the class of its content. The order is established when
+     * subscribing, so that it does not cost anything when publishing.
+     *
+     * @param topic    Topic to subscribe for.
+     * @param channel  Channel on which the events should be received.
+     * @param filter   Additional filter that should be applied before receiving the events.
+     * @param handler  Event handler that will process the received events.
+     * @param weak     True if the event bus should only keep a weak reference to the event handler, false otherwise.
+     * @param priority Priority of the event handler, 0 being the default priority.
+     * @param <C>      Type of content to subscribe for.
+     * @return Unique identifier of the subscription that can be used to {@link #unsubscribe(int)}.
+     * @see #subscribe(Topic, Channel, EventFilter, EventHandler, boolean)
+     * @see Subscription#getPriority()
+     */
+    <C> int subscribe(Topic<C> topic, Channel channel, EventFilter<? super C> filter, EventHandler<? super C> handler,
+                      boolean weak, int priority);
+
+    /**
+     * Registers a subscriber for the specified class of content on the specified channel with the specified filter by
+     * adding an event handler.
+     * <p>
+     * The event handler will receive the events of all topics whose content is an instance of the specified class,
+     * including its sub-classes and implementations.
+     *
+     * @param contentClass Class of content to subscribe for.
+     * @param channel      Channel on which the events should be received.
+     * @param filter       Additional filter that should be applied before receiving the events.
+     * @param handler      Event handler that will process the received events.
+     * @param <C>          Type of content to subscribe for.
+     * @return Unique identifier of the subscription that can be used to {@link #unsubscribe(int)}.
+     * @see #unsubscribe(int)
+     */
+    <C> int subscribe(Class<C> contentClass, Channel channel, EventFilter<? super C> filter, EventHandler<? super C>
+            handler);
+
+    /**
+     * Registers a subscriber for the specified class of content on the specified channel with the specified filter by
+     * adding an event handler, possibly only weakly referenced.
+     *
+     * @param contentClass Class of content to subscribe for.
+     * @param channel      Channel on which the events should be received.
+     * @param filter       Additional filter that should be applied before receiving the events.
+     * @param handler      Event handler that will process the received events.
+     * @param weak         True if the event bus should only keep a weak reference to the event handler, false
+     *                     otherwise.
+     * @param <C>          Type of content to subscribe for.
+     * @return Unique identifier of the subscription that can be used to {@link #unsubscribe(int)}.
+     * @see #subscribe(Class, Channel, EventFilter, EventHandler)
+     * @see #subscribe(Topic, Channel, EventFilter, EventHandler, boolean)
+     */
+    <C> int subscribe(Class<C> contentClass, Channel channel, EventFilter<? super C> filter, EventHandler<? super C>
+            handler, boolean weak);
+
+    /**
+     * Registers a subscriber for the specified class of content on the specified channel with the specified filter by
+     * adding an event handler, possibly only weakly referenced, with the specified priority.
+     *
+     * @param contentClass Class of content to subscribe for.
+     * @param channel      Channel on which the events should be received.
+     * @param filter       Additional filter that should be applied before receiving the events.
+     * @param handler      Event handler that will process the received events.
+     * @param weak         True if the event bus should only keep a weak reference to the event handler, false
+     *                     otherwise.
+     * @param priority     Priority of the event handler, 0 being the default priority.
+     * @param <C>          Type of content to subscribe for.
+     * @return Unique identifier of the subscription that can be used to {@link #unsubscribe(int)}.
+     * @see #subscribe(Class, Channel, EventFilter, EventHandler, boolean)
+     * @see #subscribe(Topic, Channel, EventFilter, EventHandler, boolean, int)
+     */
+    <C> int subscribe(Class<C> contentClass, Channel channel, EventFilter<? super C> filter, EventHandler<? super C>
+            handler, boolean weak, int priority);
+
+    /**
+     * Registers a subscriber for all the topics whose names match the specified pattern, on the specified channel with
+     * the specified filter by adding an event handler.
+     * <p>
+     * Topic names and patterns are made of segments separated by dots. In a pattern, a segment made of a single star
+     * matches exactly one segment and a segment made of two stars matches zero or more segments. For example,
+     * "orders.*.filled" matches "orders.eu.filled" but not "orders.eu.fr.filled", whereas "orders.**" matches both.
+     * <p>
+     * Note that the names of the topics are expected not to change over time.
+     *
+     * @param topicPattern Pattern of the names of the topics to subscribe for.
+     * @param channel      Channel on which the events should be received.
+     * @param filter       Additional filter that should be applied before receiving the events.
+     * @param handler      Event handler that will process the received events.
+     * @return Unique identifier of the subscription that can be used to {@link #unsubscribe(int)}.
+     * @see Topic#getName()
+     * @see #unsubscribe(int)
+     */
+    int subscribe(String topicPattern, Channel channel, EventFilter<Object> filter, EventHandler<Object> handler);
+
+    /**
+     * Registers a subscriber for all the topics whose names match the specified pattern, on the specified channel with
+     * the specified filter by adding an event handler, possibly only weakly referenced.
+     *
+     * @param topicPattern Pattern of the names of the topics to subscribe for.
+     * @param channel      Channel on which the events should be received.
+     * @param filter       Additional filter that should be applied before receiving the events.
+     * @param handler      Event handler that will process the received events.
+     * @param weak         True if the event bus should only keep a weak reference to the event handler, false
+     *                     otherwise.
+     * @return Unique identifier of the subscription that can be used to {@link #unsubscribe(int)}.
+     * @see #subscribe(String, Channel, EventFilter, EventHandler)
+     * @see #subscribe(Topic, Channel, EventFilter, EventHandler, boolean)
+     */
+    int subscribe(String topicPattern, Channel channel, EventFilter<Object> filter, EventHandler<Object> handler,
+                  boolean weak);
+
+    /**
+     * Registers a subscriber for all the topics whose names match the specified pattern, on the specified channel with
+     * the specified filter by adding an event handler, possibly only weakly referenced, with the specified priority.
+     *
+     * @param topicPattern Pattern of the names of the topics to subscribe for.
+     * @param channel      Channel on which the events should be received.
+     * @param filter       Additional filter that should be applied before receiving the events.
+     * @param handler      Event handler that will process the received events.
+     * @param weak         True if the event bus should only keep a weak reference to the event handler, false
+     *                     otherwise.
+     * @param priority     Priority of the event handler, 0 being the default priority.
+     * @return Unique identifier of the subscription that can be used to {@link #unsubscribe(int)}.
+     * @see #subscribe(String, Channel, EventFilter, EventHandler, boolean)
+     * @see #subscribe(Topic, Channel, EventFilter, EventHandler, boolean, int)
+     */
+    int subscribe(String topicPattern, Channel channel, EventFilter<Object> filter, EventHandler<Object> handler,
+                  boolean weak, int priority);
+
     /**
      * Unregisters a subscriber that was previously registered.
      *
@@ -85,6 +241,24 @@ public interface EventBus {
      */
     void unsubscribe(int id);
 
+    /**
+     * Unregisters all subscriptions of the specified event handler, for all topics.
+     *
+     * @param handler Event handler to be unsubscribed from all topics.
+     * @see #subscribe(Topic, Channel, EventFilter, EventHandler)
+     */
+    void unsubscribe(EventHandler<?> handler);
+
+    /**
+     * Unregisters all subscriptions for the specified topic.
+     * <p>
+     * Note that the subscriptions for the topics covering the specified topic are not affected.
+     *
+     * @param topic Topic for which all event handlers must be unsubscribed.
+     * @see #subscribe(Topic, Channel, EventFilter, EventHandler)
+     */
+    void unsubscribe(Topic<?> topic);
+
     /**
      * Sends the specified content for the specified topic on the specified channel.
      * <p>
@@ -97,6 +271,61 @@ public interface EventBus {
      */
     <C> void publish(Topic<C> topic, Channel channel, C content);
 
+    /**
+     * Sends the specified content for the specified topic on the specified channel, and tracks its processing by the
+     * event handlers.
+     * <p>
+     * The content will be wrapped in a {@link TrackedEvent} that will be dispatched to the registered event handlers.
+     * The returned future is completed once every matching event handler is done with the event, with the outcome for
+     * each of them.
+     *
+     * @param topic   Topic for which the content must be dispatched.
+     * @param channel Channel on which the event must be dispatched.
+     * @param content Content to be dispatched.
+     * @param <C>     Type of content to be dispatched.
+     * @return Future completed once the event has been processed for all subscriptions.
+     * @see TrackedEvent
+     */
+    <C> CompletableFuture<DeliveryReport<C>> publishAsync(Topic<C> topic, Channel channel, C content);
+
+    /**
+     * Sends the specified content for the specified topic on the specified channel as a request, and waits for a
+     * response.
+     * <p>
+     * The content will be wrapped in a {@link RequestEvent} that will be dispatched to the registered event handlers.
+     * The first response sent for this event completes the returned future. If no response is sent within the
+     * specified time-out, the future is completed exceptionally with a {@link java.util.concurrent.TimeoutException}.
+     * A time-out of 0 or less means no time-out: the request then remains pending until it is answered, it is
+     * cancelled or the event bus is disposed.
+     * <p>
+     * The requester can cancel the returned future if it is no longer interested in the response. Once the event bus
+     * is disposed, the returned future is completed exceptionally with a {@link
+     * java.util.concurrent.RejectedExecutionException} right away.
+     *
+     * @param topic         Topic for which the content must be dispatched.
+     * @param channel       Channel on which the event must be dispatched.
+     * @param content       Content to be dispatched.
+     * @param timeoutMillis Maximum time to wait for the response, in milliseconds, or 0 or less for no time-out.
+     * @param <C>           Type of content to be dispatched.
+     * @param <R>           Type of response expected.
+     * @return Future completed with the response.
+     * @see #reply(long, Object)
+     */
+    <C, R> CompletableFuture<R> request(Topic<C> topic, Channel channel, C content, long timeoutMillis);
+
+    /**
+     * Sends the specified response to the request having the specified correlation identifier.
+     * <p>
+     * The response is not dispatched to any event handler: it completes the future of the waiting requester directly.
+     *
+     * @param correlationId Correlation identifier of the request.
+     * @param response      Response to the request.
+     * @return True if the requester received the response, false if the request was already answered, timed out or is
+     * unknown.
+     * @see RequestEvent#getCorrelationId()
+     */
+    boolean reply(long correlationId, Object response);
+
     /**
      * Disposes the event bus by removing all event handlers, undelivered event handlers, stopping the dispatching
      * threads, etc.
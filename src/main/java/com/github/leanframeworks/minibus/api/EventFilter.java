@@ -45,30 +45,37 @@ public interface EventFilter<C> {
 
     /**
      * Composes a new event filter by combining this event filter and the specified event filter with an AND operation.
+     * <p>
+     * This event filter is evaluated first, and the specified event filter only if this one accepted the event.
      *
      * @param other Other event filter to be combined.
      * @return Newly composed event filter.
+     * @see CompositeEventFilter
      */
     default EventFilter<C> and(EventFilter<C> other) {
-        return c -> accept(c) && other.accept(c);
+        return CompositeEventFilter.combine(CompositeEventFilter.Operator.AND, this, other);
     }
 
     /**
      * Composes a new event filter by combining this event filter and the specified event filter with an OR operation.
+     * <p>
+     * This event filter is evaluated first, and the specified event filter only if this one rejected the event.
      *
      * @param other Other event filter to be combined.
      * @return Newly composed event filter.
+     * @see CompositeEventFilter
      */
     default EventFilter<C> or(EventFilter<C> other) {
-        return c -> accept(c) || other.accept(c);
+        return CompositeEventFilter.combine(CompositeEventFilter.Operator.OR, this, other);
     }
 
     /**
      * Creates a new event filter negating this event filter.
      *
      * @return Newly composed event filter.
+     * @see CompositeEventFilter
      */
     default EventFilter<C> not() {
-        return c -> !accept(c);
+        return CompositeEventFilter.negate(this);
     }
 }
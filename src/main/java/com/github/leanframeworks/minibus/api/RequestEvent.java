@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2017, LeanFrameworks
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.github.leanframeworks.minibus.api;
+
+/**
+ * Event sent by a requester and waiting for a response.
+ * <p>
+ * The event carries a correlation identifier that the event bus uses to route the response straight to the waiting
+ * requester, without dispatching it to any event handler. An event handler can respond either with {@link
+ * #reply(Object)}, or by passing the correlation identifier to {@link EventBus#reply(long, Object)}, for example from
+ * another thread or module.
+ *
+ * @param <C> Type of content in the event.
+ * @param <R> Type of response expected by the requester.
+ * @see EventBus#request(Topic, Channel, Object, long)
+ */
+public class RequestEvent<C, R> extends Event<C> {
+
+    /**
+     * Identifier correlating the response to the request.
+     */
+    private final long correlationId;
+
+    /**
+     * Event bus waiting for the response.
+     */
+    private final EventBus eventBus;
+
+    /**
+     * Constructor.
+     *
+     * @param topic         Topic for which the event is sent.
+     * @param channel       Channel on which the event is sent.
+     * @param content       Content being sent.
+     * @param correlationId Identifier correlating the response to the request.
+     * @param eventBus      Event bus waiting for the response.
+     */
+    public RequestEvent(Topic<? extends C> topic, Channel channel, C content, long correlationId, EventBus eventBus) {
+        super(topic, channel, content);
+        this.correlationId = correlationId;
+        this.eventBus = eventBus;
+    }
+
+    /**
+     * Gets the identifier correlating the response to the request.
+     *
+     * @return Correlation identifier.
+     */
+    public long getCorrelationId() {
+        return correlationId;
+    }
+
+    /**
+     * Sends the specified response to the requester.
+     * <p>
+     * Only the first response is taken into account.
+     *
+     * @param response Response to the request.
+     * @return True if the requester received the response, false if it was already answered or timed out.
+     * @see EventBus#reply(long, Object)
+     */
+    public boolean reply(R response) {
+        return eventBus.reply(correlationId, response);
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2017, LeanFrameworks
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.github.leanframeworks.minibus.api;
+
+/**
+ * Read-only view of a subscription registered on an event bus.
+ * <p>
+ * Subscriptions are handed over to the dispatchers as part of a {@link DispatchTable}.
+ *
+ * @see EventBus#subscribe(Topic, Channel, EventFilter, EventHandler)
+ * @see DispatchTable
+ */
+public interface Subscription {
+
+    /**
+     * Gets the identifier that can be used to unsubscribe.
+     *
+     * @return Subscription identifier.
+     * @see EventBus#unsubscribe(int)
+     */
+    int getId();
+
+    /**
+     * Gets the topic for which the subscription applies.
+     *
+     * @return Topic, or null if the subscription applies to a content class or topic pattern instead.
+     * @see #getContentClass()
+     * @see #getTopicPattern()
+     */
+    Topic<?> getTopic();
+
+    /**
+     * Gets the class of content for which the subscription applies, regardless of the topic.
+     *
+     * @return Content class, or null if the subscription applies to a topic or topic pattern instead.
+     * @see #getTopic()
+     * @see EventBus#subscribe(Class, Channel, EventFilter, EventHandler, boolean)
+     */
+    Class<?> getContentClass();
+
+    /**
+     * Gets the pattern of the names of the topics for which the subscription applies.
+     *
+     * @return Topic name pattern, or null if the subscription applies to a topic or content class instead.
+     * @see #getTopic()
+     * @see EventBus#subscribe(String, Channel, EventFilter, EventHandler, boolean)
+     */
+    String getTopicPattern();
+
+    /**
+     * Gets the channel on which the events should be received.
+     *
+     * @return Channel, or null if the subscription uses a dedicated channel, which only the channels flowing into any
+     * channel (like the broadcast channel) flow into.
+     * @see Channel#flowsInto(Channel)
+     */
+    Channel getChannel();
+
+    /**
+     * Gets the filter registered with the subscription.
+     *
+     * @return Event filter, or null if events should not be filtered.
+     */
+    EventFilter<Object> getFilter();
+
+    /**
+     * Gets the priority of the subscription.
+     * <p>
+     * Dispatch tables list the subscriptions by decreasing priority. Subscriptions having the same priority are listed
+     * in subscription order.
+     *
+     * @return Priority, 0 by default.
+     * @see EventBus#subscribe(Topic, Channel, EventFilter, EventHandler, boolean, int)
+     */
+    int getPriority();
+
+    /**
+     * Gets the subscriber.
+     * <p>
+     * For weak subscriptions, null is returned once the subscriber has been garbage collected. In this case, the
+     * subscription will eventually be removed from the event bus.
+     *
+     * @return Event handler, or null if it is no longer available.
+     * @see EventBus#subscribe(Topic, Channel, EventFilter, EventHandler, boolean)
+     */
+    EventHandler<Object> getHandler();
+}
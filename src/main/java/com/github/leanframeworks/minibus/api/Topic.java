@@ -25,6 +25,9 @@
 
 package com.github.leanframeworks.minibus.api;
 
+import java.util.Collection;
+import java.util.Collections;
+
 /**
  * Interface to be implemented by topics.
  * <p>
@@ -37,6 +40,9 @@ public interface Topic<C> {
     /**
      * Gets the name of the topic (or topic instance), mostly useful for logging/debugging purposes.
      * <p>
+     * The name is also matched against the patterns of the subscriptions made for topic patterns, in which case it
+     * should be made of segments separated by dots (for example, "orders.eu.filled").
+     * <p>
      * By default, the class's simple name followed by the instance's hash code.
      *
      * @return Topic name.
@@ -50,13 +56,31 @@ public interface Topic<C> {
      * <p>
      * A topic knows its parent, but a parent topic may or may not know their child topics depending on the
      * implementation.
+     * <p>
+     * If the topic has several parents, this is the first one.
      *
      * @return Parent topic or null if this topic is a top-level topic.
+     * @see #getParentTopics()
      */
     default Topic<? super C> getParentTopic() {
         return null;
     }
 
+    /**
+     * Gets all the parent topics, each of them covering this topic.
+     * <p>
+     * By default, the only parent topic, if any.
+     * <p>
+     * Note that the parent topics are expected not to change over time.
+     *
+     * @return Parent topics, empty if this topic is a top-level topic.
+     * @see #getParentTopic()
+     */
+    default Collection<Topic<? super C>> getParentTopics() {
+        Topic<? super C> parent = getParentTopic();
+        return (parent == null) ? Collections.emptyList() : Collections.singletonList(parent);
+    }
+
     /**
      * States whether this topic covers the specified topics.
      * <p>
@@ -66,15 +90,30 @@ public interface Topic<C> {
      * etc. However, an entity subscribing to events about the "France" topic, it will not receive messages about
      * "Geography" in general or about "The Netherlands".
      * <p>
-     * By default, a topic is covered by its parent topic; and a null topic is covered by nothing.
+     * By default, a topic is covered by its parent topics; and a null topic is covered by nothing.
      * <p>
-     * Note that the implementation should be consistent with {@link #getParentTopic()}.
+     * Note that the implementation should be consistent with {@link #getParentTopics()}.
      *
      * @param topic Topic to be checked (whether it is covered by this topic or not).
      * @return True if this topic covers the specified topic, false otherwise.
-     * @see #getParentTopic()
+     * @see #getParentTopics()
      */
     default boolean covers(Topic<?> topic) {
-        return (topic != null) && (equals(topic) || covers(topic.getParentTopic()));
+        boolean result = false;
+
+        if (topic != null) {
+            if (equals(topic)) {
+                result = true;
+            } else {
+                for (Topic<?> parent : topic.getParentTopics()) {
+                    if (covers(parent)) {
+                        result = true;
+                        break;
+                    }
+                }
+            }
+        }
+
+        return result;
     }
 }
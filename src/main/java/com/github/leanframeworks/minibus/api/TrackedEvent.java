@@ -0,0 +1,198 @@
+/*
+ * Copyright (c) 2017, LeanFrameworks
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.github.leanframeworks.minibus.api;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Event whose processing by the event handlers is tracked, so that the publisher can know when all the event handlers
+ * are done with it.
+ * <p>
+ * The event bus tells the event how many subscriptions it is dispatched to, and the dispatcher records the outcome of
+ * each subscription. The completion future is completed when the last outcome is recorded, on the thread recording
+ * it, so that no extra thread is involved. Note that the dependent actions of the completion future should therefore
+ * be short, or be run asynchronously.
+ * <p>
+ * If the dispatcher is disposed before processing the event, the completion future is only completed if the
+ * dispatcher discards the event, so it is a good idea to wait for it with a time-out.
+ *
+ * @param <C> Type of content in the event.
+ * @see EventBus#publishAsync(Topic, Channel, Object)
+ */
+public class TrackedEvent<C> extends Event<C> {
+
+    /**
+     * Future completed once all the subscriptions processed the event.
+     */
+    private final CompletableFuture<DeliveryReport<C>> completion = new CompletableFuture<>();
+
+    /**
+     * Subscriptions for which an outcome was recorded, in recording order.
+     * <p>
+     * This array and the two next ones are only written while holding the lock of this event, and never once the
+     * tracking is completed, so that the delivery report can use them as they are.
+     */
+    private Subscription[] subscriptions = null;
+
+    /**
+     * Outcomes of the subscriptions, in recording order.
+     */
+    private DeliveryReport.Outcome[] outcomes = null;
+
+    /**
+     * Exceptions thrown for the subscriptions, in recording order, or null for the subscriptions that did not fail.
+     */
+    private Throwable[] failures = null;
+
+    /**
+     * Number of outcomes fully recorded in the arrays.
+     */
+    private int recordedCount = 0;
+
+    /**
+     * Number of outcomes to be recorded, or -1 if not known yet.
+     */
+    private int expectedCount = -1;
+
+    /**
+     * True once the tracking is completed, after which no outcome is recorded anymore.
+     */
+    private boolean completed = false;
+
+    /**
+     * Constructor.
+     *
+     * @param topic   Topic for which the event is sent.
+     * @param channel Channel on which the event is sent.
+     * @param content Content being sent.
+     */
+    public TrackedEvent(Topic<? extends C> topic, Channel channel, C content) {
+        super(topic, channel, content);
+    }
+
+    /**
+     * Gets the future completed once all the subscriptions processed the event.
+     *
+     * @return Completion future.
+     */
+    public CompletableFuture<DeliveryReport<C>> getCompletion() {
+        return completion;
+    }
+
+    /**
+     * Sets the number of subscriptions the event is dispatched to.
+     * <p>
+     * This method is to be called once by the event bus, before dispatching the event.
+     *
+     * @param subscriptionCount Number of subscriptions.
+     */
+    public void expectOutcomes(int subscriptionCount) {
+        boolean completing = false;
+
+        synchronized (this) {
+            if (!completed) {
+                subscriptions = new Subscription[subscriptionCount];
+                outcomes = new DeliveryReport.Outcome[subscriptionCount];
+                failures = new Throwable[subscriptionCount];
+                expectedCount = subscriptionCount;
+                completing = (subscriptionCount == 0);
+                completed = completing;
+            }
+        }
+
+        if (completing) {
+            complete(false);
+        }
+    }
+
+    /**
+     * Records the outcome of the processing of the event for the specified subscription.
+     * <p>
+     * This method is to be called by the dispatcher, once per subscription, from any thread.
+     *
+     * @param subscription Processed subscription.
+     * @param outcome      Outcome of the processing.
+     * @param failure      Exception thrown by the filter or the event handler, or null.
+     */
+    public void recordOutcome(Subscription subscription, DeliveryReport.Outcome outcome, Throwable failure) {
+        boolean completing = false;
+
+        synchronized (this) {
+            if (!completed && (recordedCount < expectedCount)) {
+                subscriptions[recordedCount] = subscription;
+                outcomes[recordedCount] = outcome;
+                failures[recordedCount] = failure;
+                recordedCount++;
+                completing = (recordedCount == expectedCount);
+                completed = completing;
+            }
+        }
+
+        if (completing) {
+            complete(false);
+        }
+    }
+
+    /**
+     * Completes the tracking without waiting for the outcomes that were not recorded yet.
+     * <p>
+     * This method is to be called by the dispatcher when it discards the event.
+     */
+    public void discard() {
+        boolean completing;
+
+        synchronized (this) {
+            completing = !completed;
+            completed = true;
+        }
+
+        if (completing) {
+            complete(true);
+        }
+    }
+
+    /**
+     * Completes the future with the outcomes recorded so far.
+     * <p>
+     * This method is to be called once, by the thread having marked the tracking as completed. Since no outcome can be
+     * recorded anymore, the arrays are handed over to the delivery report as they are.
+     *
+     * @param discarded True if the event was discarded by the dispatcher.
+     */
+    private void complete(boolean discarded) {
+        DeliveryReport<C> report;
+        synchronized (this) {
+            if (subscriptions == null) {
+                // Discarded before being dispatched
+                subscriptions = new Subscription[0];
+                outcomes = new DeliveryReport.Outcome[0];
+                failures = new Throwable[0];
+            }
+            report = new DeliveryReport<>(this, subscriptions, outcomes, failures, recordedCount, discarded);
+        }
+        completion.complete(report);
+    }
+}
@@ -26,31 +26,58 @@
 package com.github.leanframeworks.minibus.base.bus;
 
 import com.github.leanframeworks.minibus.api.Channel;
+import com.github.leanframeworks.minibus.api.DeliveryReport;
+import com.github.leanframeworks.minibus.api.DispatchTable;
 import com.github.leanframeworks.minibus.api.Event;
 import com.github.leanframeworks.minibus.api.EventBus;
 import com.github.leanframeworks.minibus.api.EventFilter;
 import com.github.leanframeworks.minibus.api.EventHandler;
 import com.github.leanframeworks.minibus.api.ExceptionHandler;
+import com.github.leanframeworks.minibus.api.RequestEvent;
+import com.github.leanframeworks.minibus.api.Subscription;
 import com.github.leanframeworks.minibus.api.Topic;
+import com.github.leanframeworks.minibus.api.TrackedEvent;
 import com.github.leanframeworks.minibus.base.channel.BroadcastChannel;
 import com.github.leanframeworks.minibus.base.channel.SimpleChannel;
-import com.github.leanframeworks.minibus.base.filter.ChannelFilter;
+import com.github.leanframeworks.minibus.base.util.TypeHierarchy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-
-import static java.text.MessageFormat.format;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
 
 /**
  * Abstract implementation of an event bus.
  * <p>
  * This class implements the addition/removal of the various kinds of handlers and filters.
+ * <p>
+ * The registry is thread-safe: handlers can be added and removed from any thread. Modifications are serialized and
+ * publish immutable snapshots, so that publishing never takes a lock and can be done from any number of threads
+ * concurrently.
  */
 public abstract class AbstractEventBus implements EventBus {
 
@@ -59,15 +86,60 @@ public abstract class AbstractEventBus implements EventBus {
      */
     private static final Logger LOGGER = LoggerFactory.getLogger(AbstractEventBus.class);
 
+    /**
+     * Channel standing for the dedicated channels of the subscriptions made without a channel.
+     * <p>
+     * Since no publisher knows this channel, only the channels flowing into any channel (like the broadcast channel)
+     * flow into it.
+     */
+    private static final Channel DEDICATED_CHANNEL = new SimpleChannel("Dedicated");
+
+    /**
+     * Order of the subscriptions in the dispatch tables: decreasing priority, then subscription order.
+     */
+    private static final Comparator<Subscription> DISPATCH_ORDER =
+            Comparator.comparingInt(Subscription::getPriority).reversed().thenComparingInt(Subscription::getId);
+
+    /**
+     * Maximum number of topics whose ancestor chains and resolved dispatch tables are cached.
+     * <p>
+     * When publishing on dynamic topics (for example, one topic per entity), these caches are cleared once they reach
+     * this size instead of growing without bound.
+     */
+    static final int MAX_CACHED_TOPICS = 4096;
+
+    /**
+     * Maximum number of channels whose filtered dispatch tables are cached per resolved topic.
+     * <p>
+     * When publishing on dynamic channels, the cache of a resolved topic is cleared once it reaches this size instead
+     * of growing without bound.
+     */
+    static final int MAX_CACHED_CHANNELS = 256;
+
+    /**
+     * Maximum number of content classes whose merged dispatch tables are cached per resolved topic.
+     * <p>
+     * When publishing contents of many classes (for example, generated or proxy classes), the cache of a resolved
+     * topic is cleared once it reaches this size instead of growing without bound.
+     */
+    static final int MAX_CACHED_CONTENT_CLASSES = 256;
+
     /**
      * Registered unchecked exception handlers.
      */
-    protected final List<ExceptionHandler> exceptionHandlers = new ArrayList<>();
+    protected final List<ExceptionHandler> exceptionHandlers = new CopyOnWriteArrayList<>();
 
     /**
      * Registerd handlers for undelivered events.
      */
-    protected final List<EventHandler<Object>> undeliveredEventHandlers = new ArrayList<>();
+    protected final List<EventHandler<Object>> undeliveredEventHandlers = new CopyOnWriteArrayList<>();
+
+    /**
+     * Lock serializing all modifications of the subscriptions.
+     * <p>
+     * Note that this lock is never taken when publishing.
+     */
+    protected final Object subscriptionLock = new Object();
 
     /**
      * Mapping between subscriptions and topics.
@@ -75,19 +147,113 @@ public abstract class AbstractEventBus implements EventBus {
      * This mapping can be used to retrieve the event handlers interested in the topic used for the event being
      * dispatched.
      */
-    protected final Map<Topic<?>, Collection<SubscriptionEntry<?>>> topicToSubscription = new HashMap<>();
+    protected final Map<Topic<?>, TopicSubscriptions> topicToSubscription = new ConcurrentHashMap<>();
+
+    /**
+     * Mapping between subscriptions and content classes.
+     * <p>
+     * This mapping can be used to retrieve the event handlers interested in the content of the event being dispatched
+     * or in any of its super types.
+     */
+    protected final Map<Class<?>, TopicSubscriptions> contentClassToSubscription = new ConcurrentHashMap<>();
+
+    /**
+     * Mapping between subscriptions and topic name patterns.
+     *
+     * @see #topicPatterns
+     */
+    protected final Map<String, TopicSubscriptions> topicPatternToSubscription = new ConcurrentHashMap<>();
+
+    /**
+     * Index of the topic name patterns having subscriptions, used to find the patterns matching the topics for which
+     * events are published.
+     * <p>
+     * This index is rebuilt whenever a pattern gets its first subscription or loses its last one.
+     */
+    private volatile TopicPatternTrie topicPatterns = TopicPatternTrie.EMPTY;
+
+    /**
+     * Cache of the ancestor chains of the topics for which events were published.
+     * <p>
+     * Each chain is the coverage closure of a topic: it starts with the topic itself, followed by its parent topics,
+     * grand-parent topics, etc. Since the parents of a topic are not expected to change, these chains are only computed
+     * once per topic, until the cache is cleared because it reached {@link #MAX_CACHED_TOPICS}.
+     *
+     * @see Topic#getParentTopics()
+     */
+    private final Map<Topic<?>, Topic<?>[]> topicToAncestorChain = new ConcurrentHashMap<>();
+
+    /**
+     * Cache of the dispatch tables merging the subscriptions of all topics covering the topics for which events were
+     * published, along with the dispatch tables filtered per channel on which events were published.
+     * <p>
+     * Whenever the subscriptions for a topic or a topic pattern change, only the entries of the topics they cover or
+     * match are removed, after the dispatch tables of the topics have been rebuilt (see {@link
+     * #resolvedTopicInvalidationCount}). Whenever the subscriptions for a content class change, this cache is replaced
+     * by an empty one instead, since all the entries may hold dispatch tables merged with the ones of content classes.
+     * This way, a dispatch table resolved concurrently from stale subscriptions can only end up in a discarded cache.
+     * <p>
+     * This cache is also cleared, but never replaced, when it reaches {@link #MAX_CACHED_TOPICS}.
+     */
+    private volatile Map<Topic<?>, ResolvedTopic> topicToResolvedDispatchTables = new ConcurrentHashMap<>();
+
+    /**
+     * Number of times entries were removed from the cache of the resolved dispatch tables, so that an entry resolved
+     * concurrently with their removal, possibly from stale subscriptions, is not kept.
+     */
+    private final AtomicLong resolvedTopicInvalidationCount = new AtomicLong();
+
+    /**
+     * Sequence generating the correlation identifiers of the requests.
+     */
+    private final AtomicLong lastCorrelationId = new AtomicLong();
+
+    /**
+     * Requests waiting for a response, per correlation identifier.
+     * <p>
+     * A response is routed to its requester with a single lookup, whatever the number of requests in flight.
+     */
+    private final Map<Long, PendingRequest> pendingRequests = new ConcurrentHashMap<>();
+
+    /**
+     * Timer shared by all requests to time them out, or null if no request was sent yet.
+     */
+    private ScheduledThreadPoolExecutor requestTimer = null;
+
+    /**
+     * True once the event bus is disposed, so that no more requests are sent.
+     */
+    private volatile boolean disposed = false;
 
     /**
      * Mapping between subscription IDs and subscriptions.
      * <p>
      * This mapping can be used to unsubscribe event handlers.
      */
-    protected final Map<Integer, SubscriptionEntry<?>> idToSubscription = new HashMap<>();
+    protected final Map<Integer, SubscriptionEntry<?>> idToSubscription = new ConcurrentHashMap<>();
+
+    /**
+     * Mapping between event handlers and their subscriptions.
+     * <p>
+     * This mapping can be used to unsubscribe event handlers from all topics at once. It must only be accessed while
+     * holding the {@link #subscriptionLock}.
+     * <p>
+     * The event handlers are only weakly referenced by this mapping, so that weakly subscribed event handlers can be
+     * garbage collected.
+     */
+    private final Map<EventHandler<?>, Collection<SubscriptionEntry<?>>> handlerToSubscription = new WeakHashMap<>();
+
+    /**
+     * Queue receiving the references to the weakly subscribed event handlers that have been garbage collected.
+     *
+     * @see #expungeCollectedHandlers()
+     */
+    private final ReferenceQueue<EventHandler<Object>> collectedHandlers = new ReferenceQueue<>();
 
     /**
      * Last generated subscription ID.
      */
-    private int lastId = -1;
+    private final AtomicInteger lastId = new AtomicInteger(-1);
 
     /**
      * @see EventBus#addExceptionHandler(ExceptionHandler)
@@ -121,17 +287,6 @@ public abstract class AbstractEventBus implements EventBus {
         undeliveredEventHandlers.remove(handler);
     }
 
-    /**
-     * Creates a default, dedicated channel for the specified event handler.
-     *
-     * @param handler Event handler to create a dedicated channel for.
-     * @return Dedicated channel.
-     */
-    protected Channel createDefaultChannelForHandler(EventHandler<?> handler) {
-        return new SimpleChannel("Channel:" + handler.getClass().getCanonicalName() + "@" +
-                Integer.toHexString(System.identityHashCode(handler)));
-    }
-
     /**
      * Registers a subscriber for the specified topic by adding an event handler.
      * <p>
@@ -185,183 +340,1384 @@ public abstract class AbstractEventBus implements EventBus {
                                    Channel channel,
                                    EventFilter<? super C> filter,
                                    EventHandler<? super C> handler) {
+        return subscribe(topic, channel, filter, handler, false);
+    }
+
+    /**
+     * @see EventBus#subscribe(Topic, Channel, EventFilter, EventHandler, boolean)
+     */
+    @Override
+    public final <C> int subscribe(Topic<C> topic,
+                                   Channel channel,
+                                   EventFilter<? super C> filter,
+                                   EventHandler<? super C> handler,
+                                   boolean weak) {
+        return subscribe(topic, channel, filter, handler, weak, 0);
+    }
+
+    /**
+     * @see EventBus#subscribe(Topic, Channel, EventFilter, EventHandler, boolean, int)
+     */
+    @Override
+    public final <C> int subscribe(Topic<C> topic,
+                                   Channel channel,
+                                   EventFilter<? super C> filter,
+                                   EventHandler<? super C> handler,
+                                   boolean weak,
+                                   int priority) {
         int resultId;
         if ((topic == null) || (handler == null)) {
             LOGGER.error("Cannot subscribe with no topic ({}) or no handler ({})", topic, handler);
             resultId = -1;
         } else {
-            resultId = ++lastId;
-
-            Collection<SubscriptionEntry<?>> registry = topicToSubscription.computeIfAbsent(topic, k -> new HashSet<>
-                    ());
-
-            Channel effectiveChannel;
-            if (channel == null) {
-                effectiveChannel = createDefaultChannelForHandler(handler);
-            } else {
-                effectiveChannel = channel;
-            }
-            EventFilter<? super C> effectiveFilter;
-            if (filter == null) {
-                effectiveFilter = new ChannelFilter<>(effectiveChannel);
-            } else {
-                effectiveFilter = filter.and(new ChannelFilter<>(effectiveChannel));
-            }
-            SubscriptionEntry<C> entry = new SubscriptionEntry<>(resultId, topic, effectiveFilter, handler);
-            registry.add(entry);
-            idToSubscription.put(resultId, entry);
+            resultId = lastId.incrementAndGet();
+            SubscriptionEntry<C> entry = new SubscriptionEntry<>(resultId, topic, null, null, channel, filter,
+                    handler, weak, priority);
+            addSubscription(entry, handler);
         }
 
         return resultId;
     }
 
     /**
-     * @see EventBus#unsubscribe(int)
+     * Registers a subscriber for the specified class of content by adding an event handler.
+     * <p>
+     * A default, dedicated channel will be used for this event handler.
+     *
+     * @param contentClass Class of content to subscribe for.
+     * @param handler      Event handler that will process the received events.
+     * @param <C>          Type of content to subscribe for.
+     * @return Unique identifier of the subscription that can be used to {@link #unsubscribe(int)}.
+     * @see #subscribe(Class, Channel, EventFilter, EventHandler)
+     */
+    public final <C> int subscribe(Class<C> contentClass, EventHandler<? super C> handler) {
+        return subscribe(contentClass, null, null, handler);
+    }
+
+    /**
+     * @see EventBus#subscribe(Class, Channel, EventFilter, EventHandler)
      */
     @Override
-    public void unsubscribe(int id) {
-        assert idToSubscription.containsKey(id) : format("Unknown registry entry for ID {0}", id);
-        idToSubscription.remove(id);
+    public final <C> int subscribe(Class<C> contentClass,
+                                   Channel channel,
+                                   EventFilter<? super C> filter,
+                                   EventHandler<? super C> handler) {
+        return subscribe(contentClass, channel, filter, handler, false);
+    }
 
-        // TODO
+    /**
+     * @see EventBus#subscribe(Class, Channel, EventFilter, EventHandler, boolean)
+     */
+    @Override
+    public final <C> int subscribe(Class<C> contentClass,
+                                   Channel channel,
+                                   EventFilter<? super C> filter,
+                                   EventHandler<? super C> handler,
+                                   boolean weak) {
+        return subscribe(contentClass, channel, filter, handler, weak, 0);
     }
 
     /**
-     * Sends null for the specified topic on the broadcast channel.
-     * <p>
-     * The content will be wrapped in an {@link Event} that will be dispatched to the registered event handlers.
-     *
-     * @param topic Topic for which the content must be dispatched.
-     * @see #publish(Topic, Channel, Object)
-     * @see #publish(Event)
+     * @see EventBus#subscribe(Class, Channel, EventFilter, EventHandler, boolean, int)
      */
-    public final void publish(Topic<Void> topic) {
-        publish(topic, null);
+    @Override
+    public final <C> int subscribe(Class<C> contentClass,
+                                   Channel channel,
+                                   EventFilter<? super C> filter,
+                                   EventHandler<? super C> handler,
+                                   boolean weak,
+                                   int priority) {
+        int resultId;
+        if ((contentClass == null) || (handler == null)) {
+            LOGGER.error("Cannot subscribe with no content class ({}) or no handler ({})", contentClass, handler);
+            resultId = -1;
+        } else {
+            resultId = lastId.incrementAndGet();
+            SubscriptionEntry<C> entry = new SubscriptionEntry<>(resultId, null, contentClass, null, channel,
+                    filter, handler, weak, priority);
+            addSubscription(entry, handler);
+        }
+
+        return resultId;
     }
 
     /**
-     * Sends the specified content for the specified topic on the broadcast channel.
+     * Registers a subscriber for all the topics whose names match the specified pattern by adding an event handler.
      * <p>
-     * The content will be wrapped in an {@link Event} that will be dispatched to the registered event handlers.
+     * A default, dedicated channel will be used for this event handler.
      *
-     * @param topic   Topic for which the content must be dispatched.
-     * @param content Content to be dispatched.
-     * @param <C>     Type of content to be dispatched.
-     * @see #publish(Topic, Channel, Object)
-     * @see #publish(Event)
+     * @param topicPattern Pattern of the names of the topics to subscribe for.
+     * @param handler      Event handler that will process the received events.
+     * @return Unique identifier of the subscription that can be used to {@link #unsubscribe(int)}.
+     * @see #subscribe(String, Channel, EventFilter, EventHandler)
      */
-    public final <C> void publish(Topic<C> topic, C content) {
-        publish(topic, BroadcastChannel.getInstance(), content);
+    public final int subscribe(String topicPattern, EventHandler<Object> handler) {
+        return subscribe(topicPattern, null, null, handler);
     }
 
     /**
-     * @see EventBus#publish(Topic, Channel, Object)
-     * @see #publish(Event)
+     * @see EventBus#subscribe(String, Channel, EventFilter, EventHandler)
      */
     @Override
-    public final <C> void publish(Topic<C> topic, Channel channel, C content) {
-        publish(new Event<>(topic, channel, content));
+    public final int subscribe(String topicPattern,
+                               Channel channel,
+                               EventFilter<Object> filter,
+                               EventHandler<Object> handler) {
+        return subscribe(topicPattern, channel, filter, handler, false);
     }
 
     /**
-     * Publishes the specified event on the event bus.
-     * <p>
-     * This method is called from the other publish methods.
-     *
-     * @param event Event to be dispatched.
-     * @param <C>   Type of event content.
+     * @see EventBus#subscribe(String, Channel, EventFilter, EventHandler, boolean)
      */
-    protected abstract <C> void publish(Event<C> event);
+    @Override
+    public final int subscribe(String topicPattern,
+                               Channel channel,
+                               EventFilter<Object> filter,
+                               EventHandler<Object> handler,
+                               boolean weak) {
+        return subscribe(topicPattern, channel, filter, handler, weak, 0);
+    }
 
     /**
-     * @see EventBus#dispose()
+     * @see EventBus#subscribe(String, Channel, EventFilter, EventHandler, boolean, int)
      */
     @Override
-    public void dispose() {
-        exceptionHandlers.clear();
-        undeliveredEventHandlers.clear();
-        topicToSubscription.clear();
-        idToSubscription.clear();
-        lastId = -1;
+    public final int subscribe(String topicPattern,
+                               Channel channel,
+                               EventFilter<Object> filter,
+                               EventHandler<Object> handler,
+                               boolean weak,
+                               int priority) {
+        int resultId;
+        if ((topicPattern == null) || (handler == null)) {
+            LOGGER.error("Cannot subscribe with no topic pattern ({}) or no handler ({})", topicPattern, handler);
+            resultId = -1;
+        } else {
+            resultId = lastId.incrementAndGet();
+            SubscriptionEntry<Object> entry = new SubscriptionEntry<>(resultId, null, null, topicPattern, channel,
+                    filter, handler, weak, priority);
+            addSubscription(entry, handler);
+        }
+
+        return resultId;
     }
 
     /**
-     * Entity gathering all information regarding a subscription.
+     * Adds the specified subscription to the registry of its topic, content class or topic pattern and to the mappings
+     * by ID and by event handler.
      *
-     * @param <C> Type of event content.
+     * @param entry   Subscription to be added.
+     * @param handler Subscriber, strongly referenced until the subscription is registered.
      */
-    protected class SubscriptionEntry<C> {
+    private void addSubscription(SubscriptionEntry<?> entry, EventHandler<?> handler) {
+        expungeCollectedHandlers();
+        synchronized (subscriptionLock) {
+            Map<Object, TopicSubscriptions> registries = getRegistries(entry);
+            TopicSubscriptions registry = registries.get(entry.getRegistryKey());
+            if (registry == null) {
+                registry = new TopicSubscriptions();
+                registries.put(entry.getRegistryKey(), registry);
+                if (entry.getTopicPattern() != null) {
+                    topicPatterns = new TopicPatternTrie(topicPatternToSubscription.keySet());
+                }
+            }
+            registry.add(entry);
+            registry.rebuildDispatchTable();
+            idToSubscription.put(entry.getId(), entry);
+            handlerToSubscription.computeIfAbsent(handler, k -> new LinkedHashSet<>()).add(entry);
+            invalidateResolvedDispatchTables(Collections.singleton(entry));
+        }
+    }
 
-        /**
-         * Identifier that can be used to unsubscribe.
-         */
-        private final int id;
+    /**
+     * Gets the dispatch table holding the subscriptions for the specified topic and for all the topics covering it,
+     * regardless of their channels.
+     * <p>
+     * This is the dispatch table to be used for events sent on the broadcast channel.
+     *
+     * @param topic Topic of the event to be dispatched.
+     * @return Dispatch table for the specified topic, possibly empty.
+     * @see #getDispatchTable(Topic, Channel)
+     */
+    protected DispatchTable getDispatchTable(Topic<?> topic) {
+        return getResolvedTopic(topic).dispatchTable;
+    }
 
-        /**
-         * Topic for which the subscription applies.
-         */
-        private final Topic<C> topic;
+    /**
+     * Gets the dispatch table holding the subscriptions for the specified topic and for all the topics covering it,
+     * whose channels the specified channel flows into.
+     * <p>
+     * The returned dispatch table is an immutable snapshot that is only rebuilt when the subscriptions or the channel
+     * flows change, so it can be handed over to a dispatcher without copying. The subscriptions for the specified
+     * topic come first, followed by the ones for its parent topics, grand-parent topics, etc.
+     * <p>
+     * Note that the channel flows of channels other than {@link SimpleChannel}s are expected not to change over time.
+     *
+     * @param topic   Topic of the event to be dispatched.
+     * @param channel Channel on which the event is to be dispatched.
+     * @return Dispatch table for the specified topic and channel, possibly empty.
+     * @see Topic#covers(Topic)
+     * @see Channel#flowsInto(Channel)
+     */
+    protected DispatchTable getDispatchTable(Topic<?> topic, Channel channel) {
+        return getDispatchTable(topic, channel, null);
+    }
 
-        /**
-         * Filter associated with the subscription.
-         */
-        private final EventFilter<? super C> filter;
+    /**
+     * Gets the dispatch table holding the subscriptions for the specified topic and for all the topics covering it,
+     * followed by the subscriptions for the specified class of content and for all its super types, whose channels the
+     * specified channel flows into.
+     * <p>
+     * As long as there is no subscription for any content class, this is the same as {@link #getDispatchTable(Topic,
+     * Channel)}.
+     *
+     * @param topic        Topic of the event to be dispatched.
+     * @param channel      Channel on which the event is to be dispatched.
+     * @param contentClass Class of the content of the event to be dispatched, or null if there is no content.
+     * @return Dispatch table for the specified topic, channel and content class, possibly empty.
+     * @see #getDispatchTable(Topic, Channel)
+     */
+    protected DispatchTable getDispatchTable(Topic<?> topic, Channel channel, Class<?> contentClass) {
+        DispatchTable dispatchTable;
 
-        /**
-         * Subscriber.
-         */
-        private final EventHandler<? super C> handler;
+        if (channel == null) {
+            // Events sent on no channel flow into no subscription
+            dispatchTable = DispatchTable.EMPTY;
+        } else {
+            ResolvedTopic resolvedTopic = getResolvedTopic(topic);
+            if ((contentClass != null) && !contentClassToSubscription.isEmpty()) {
+                resolvedTopic = resolvedTopic.getContentClassResolvedTopic(contentClass,
+                        this::resolveContentClassDispatchTable);
+            }
+            dispatchTable = getDispatchTable(resolvedTopic, channel);
+        }
 
-        /**
-         * Constructor.
-         *
-         * @param id      Identifier that can be used to unsubscribe.
-         * @param topic   Topic for which the subscription applies.
-         * @param filter  Filter registered with the subscription.
-         * @param handler Subscriber.
-         */
-        public SubscriptionEntry(int id, Topic<C> topic, EventFilter<? super C> filter, EventHandler<? super C>
-                handler) {
-            this.id = id;
-            this.topic = topic;
-            this.filter = filter;
-            this.handler = handler;
+        return dispatchTable;
+    }
+
+    /**
+     * Gets the dispatch table of the specified resolved topic for the specified channel, filtering it if needed.
+     *
+     * @param resolvedTopic Dispatch tables resolved for the topic of the event to be dispatched.
+     * @param channel       Channel on which the event is to be dispatched.
+     * @return Dispatch table for the specified channel, possibly empty.
+     */
+    private static DispatchTable getDispatchTable(ResolvedTopic resolvedTopic, Channel channel) {
+        DispatchTable dispatchTable;
+
+        if (channel == BroadcastChannel.getInstance()) {
+            // Broadcast channel flows into all channels, so no need to evaluate them
+            dispatchTable = resolvedTopic.dispatchTable;
+        } else {
+            // Read the channel graph version before the channel flows (see SimpleChannel#getGraphVersion())
+            long channelGraphVersion = getChannelGraphVersion(channel);
+            ChannelDispatchTable channelDispatchTable = resolvedTopic.channelToDispatchTable.get(channel);
+            if ((channelDispatchTable == null) || (channelDispatchTable.channelGraphVersion != channelGraphVersion)) {
+                // A table filtered concurrently for another version is either outdated or resolved again later
+                channelDispatchTable = new ChannelDispatchTable(filterByChannel(resolvedTopic.dispatchTable,
+                        channel), channelGraphVersion);
+                makeRoom(resolvedTopic.channelToDispatchTable, MAX_CACHED_CHANNELS);
+                resolvedTopic.channelToDispatchTable.put(channel, channelDispatchTable);
+            }
+            dispatchTable = channelDispatchTable.dispatchTable;
         }
 
-        /**
-         * Gets the identifier that can be used to unsubscribe.
-         *
-         * @return Subscription identifier.
-         */
-        public int getId() {
-            return id;
+        return dispatchTable;
+    }
+
+    /**
+     * Gets the version of the channel flows of the specified channel.
+     * <p>
+     * Only the flows of simple channels can change over time, the ones of other kinds of channels are expected not to
+     * change.
+     *
+     * @param channel Channel on which the event is to be dispatched.
+     * @return Version of the channel graph of the channel if it is a simple channel, 0 otherwise.
+     * @see SimpleChannel#getGraphVersion()
+     */
+    private static long getChannelGraphVersion(Channel channel) {
+        return (channel instanceof SimpleChannel) ? ((SimpleChannel) channel).getGraphVersion() : 0;
+    }
+
+    /**
+     * Gets the dispatch tables resolved for the specified topic, resolving them if needed.
+     *
+     * @param topic Topic of the event to be dispatched.
+     * @return Resolved dispatch tables.
+     */
+    private ResolvedTopic getResolvedTopic(Topic<?> topic) {
+        // Read the cache before the subscriptions (see invalidateResolvedDispatchTables())
+        Map<Topic<?>, ResolvedTopic> resolvedTopics = topicToResolvedDispatchTables;
+
+        ResolvedTopic resolvedTopic = resolvedTopics.get(topic);
+        if (resolvedTopic == null) {
+            long invalidationCount = resolvedTopicInvalidationCount.get();
+            resolvedTopic = new ResolvedTopic(resolveDispatchTable(topic));
+            makeRoom(resolvedTopics, MAX_CACHED_TOPICS);
+            ResolvedTopic concurrentlyResolved = resolvedTopics.putIfAbsent(topic, resolvedTopic);
+            if (concurrentlyResolved != null) {
+                resolvedTopic = concurrentlyResolved;
+            } else if (invalidationCount != resolvedTopicInvalidationCount.get()) {
+                // Possibly resolved from stale subscriptions and added after the entries were removed
+                resolvedTopics.remove(topic, resolvedTopic);
+            }
         }
 
-        /**
-         * Gets the for which the subscription applies.
-         *
-         * @return Topic.
-         */
-        public Topic<C> getTopic() {
-            return topic;
+        return resolvedTopic;
+    }
+
+    /**
+     * Makes room in the specified cache for a new entry, by clearing it if it reached the specified size.
+     * <p>
+     * Clearing the cache in hand, rather than replacing it, cannot resurrect a cache discarded concurrently by
+     * {@link #invalidateResolvedDispatchTables()}. Clearing it as a whole also keeps the lookups free of any eviction
+     * bookkeeping: the entries still in use are simply resolved again.
+     *
+     * @param cache   Cache to make room in.
+     * @param maxSize Maximum number of entries in the cache.
+     */
+    private static void makeRoom(Map<?, ?> cache, int maxSize) {
+        if (cache.size() >= maxSize) {
+            cache.clear();
         }
+    }
 
-        /**
-         * Gets the filter registered with the subscription
-         *
-         * @return Event filter.
-         */
-        public EventFilter<? super C> getFilter() {
+    /**
+     * Gets the number of topics whose dispatch tables are currently resolved, mostly useful for testing purposes.
+     *
+     * @return Number of cached resolved topics.
+     */
+    int getResolvedTopicCount() {
+        return topicToResolvedDispatchTables.size();
+    }
+
+    /**
+     * Gets the number of channels whose filtered dispatch tables are currently cached for the specified topic, mostly
+     * useful for testing purposes.
+     *
+     * @param topic Published topic.
+     * @return Number of cached channels, 0 if the topic is not resolved.
+     */
+    int getResolvedChannelCount(Topic<?> topic) {
+        ResolvedTopic resolvedTopic = topicToResolvedDispatchTables.get(topic);
+        return (resolvedTopic == null) ? 0 : resolvedTopic.channelToDispatchTable.size();
+    }
+
+    /**
+     * Gets the number of content classes whose merged dispatch tables are currently cached for the specified topic,
+     * mostly useful for testing purposes.
+     *
+     * @param topic Published topic.
+     * @return Number of cached content classes, 0 if the topic is not resolved.
+     */
+    int getResolvedContentClassCount(Topic<?> topic) {
+        ResolvedTopic resolvedTopic = topicToResolvedDispatchTables.get(topic);
+        return (resolvedTopic == null) ? 0 : resolvedTopic.contentClassToResolvedTopic.size();
+    }
+
+    /**
+     * Discards all resolved dispatch tables so that they get resolved again from the current subscriptions.
+     * <p>
+     * This method must be called after the subscriptions have been modified.
+     */
+    protected final void invalidateResolvedDispatchTables() {
+        topicToResolvedDispatchTables = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Discards the resolved dispatch tables affected by the specified subscriptions so that they get resolved again
+     * from the current subscriptions.
+     * <p>
+     * Only the topics covered by the topics of the subscriptions, or matching their topic patterns, are resolved
+     * again, so that subscribing to a topic does not slow down the publishing on unrelated topics. The subscriptions
+     * for content classes still discard all resolved dispatch tables.
+     * <p>
+     * This method must be called after the subscriptions have been modified, while holding the {@link
+     * #subscriptionLock}.
+     *
+     * @param entries Subscriptions added or removed.
+     * @see #invalidateResolvedDispatchTables()
+     */
+    private void invalidateResolvedDispatchTables(Collection<? extends SubscriptionEntry<?>> entries) {
+        Set<Topic<?>> topics = new HashSet<>();
+        List<String> topicPatterns = new ArrayList<>();
+        boolean contentClassSubscriptions = false;
+        for (SubscriptionEntry<?> entry : entries) {
+            if (entry.getTopic() != null) {
+                topics.add(entry.getTopic());
+            } else if (entry.getContentClass() != null) {
+                contentClassSubscriptions = true;
+            } else {
+                topicPatterns.add(entry.getTopicPattern());
+            }
+        }
+
+        if (contentClassSubscriptions) {
+            invalidateResolvedDispatchTables();
+        } else {
+            // Count before removing (see getResolvedTopic(Topic))
+            resolvedTopicInvalidationCount.incrementAndGet();
+            TopicPatternTrie matchingPatterns = topicPatterns.isEmpty() ? TopicPatternTrie.EMPTY : new
+                    TopicPatternTrie(topicPatterns);
+            topicToResolvedDispatchTables.keySet().removeIf(resolvedTopic -> isAffected(resolvedTopic, topics,
+                    matchingPatterns));
+        }
+    }
+
+    /**
+     * States whether the dispatch tables resolved for the specified topic merge the subscriptions for any of the
+     * specified topics or topic patterns.
+     *
+     * @param resolvedTopic Topic whose dispatch tables are resolved.
+     * @param topics        Topics whose subscriptions changed.
+     * @param topicPatterns Index of the topic patterns whose subscriptions changed.
+     * @return True if the topic is covered by any of the topics or matches any of the topic patterns, false otherwise.
+     */
+    private boolean isAffected(Topic<?> resolvedTopic, Set<Topic<?>> topics, TopicPatternTrie topicPatterns) {
+        boolean affected = false;
+
+        Topic<?>[] ancestorChain = topicToAncestorChain.get(resolvedTopic);
+        if (ancestorChain == null) {
+            // Evicted from its cache in the meantime
+            ancestorChain = buildAncestorChain(resolvedTopic);
+        }
+        for (int i = 0; (i < ancestorChain.length) && !affected; i++) {
+            affected = topics.contains(ancestorChain[i]);
+        }
+        if (!affected) {
+            affected = !topicPatterns.match(resolvedTopic.getName()).isEmpty();
+        }
+
+        return affected;
+    }
+
+    /**
+     * Retains the subscriptions of the specified dispatch table whose channels the specified channel flows into.
+     *
+     * @param dispatchTable Dispatch table to be filtered.
+     * @param channel       Channel on which the event is to be dispatched.
+     * @return Filtered dispatch table.
+     */
+    private static DispatchTable filterByChannel(DispatchTable dispatchTable, Channel channel) {
+        List<Subscription> retainedSubscriptions = new ArrayList<>();
+        for (int i = 0; i < dispatchTable.size(); i++) {
+            Subscription subscription = dispatchTable.get(i);
+            Channel subscriptionChannel = subscription.getChannel();
+            if (channel.flowsInto((subscriptionChannel == null) ? DEDICATED_CHANNEL : subscriptionChannel)) {
+                retainedSubscriptions.add(subscription);
+            }
+        }
+
+        DispatchTable filteredDispatchTable;
+        if (retainedSubscriptions.size() == dispatchTable.size()) {
+            filteredDispatchTable = dispatchTable;
+        } else {
+            filteredDispatchTable = new DispatchTable(retainedSubscriptions);
+        }
+        return filteredDispatchTable;
+    }
+
+    /**
+     * Merges the dispatch tables of the specified topic and of all the topics covering it, followed by the dispatch
+     * tables of the topic patterns matching the name of the specified topic.
+     *
+     * @param topic Topic of the event to be dispatched.
+     * @return Merged dispatch table.
+     */
+    private DispatchTable resolveDispatchTable(Topic<?> topic) {
+        Topic<?>[] ancestorChain = topicToAncestorChain.get(topic);
+        if (ancestorChain == null) {
+            makeRoom(topicToAncestorChain, MAX_CACHED_TOPICS);
+            ancestorChain = topicToAncestorChain.computeIfAbsent(topic, AbstractEventBus::buildAncestorChain);
+        }
+        Collection<String> matchingPatterns = topicPatterns.match(topic.getName());
+
+        // Only use the published snapshots since the subscriptions may be modified concurrently
+        List<DispatchTable> dispatchTables = new ArrayList<>(ancestorChain.length + matchingPatterns.size());
+        for (Topic<?> coveringTopic : ancestorChain) {
+            TopicSubscriptions registry = topicToSubscription.get(coveringTopic);
+            if (registry != null) {
+                dispatchTables.add(registry.getDispatchTable());
+            }
+        }
+        if (!matchingPatterns.isEmpty()) {
+            dispatchTables.add(resolveTopicPatternDispatchTable(matchingPatterns));
+        }
+
+        return mergeDispatchTables(dispatchTables.toArray(new DispatchTable[dispatchTables.size()]));
+    }
+
+    /**
+     * Merges the dispatch tables of the specified topic patterns, by decreasing priority and then in subscription
+     * order.
+     *
+     * @param topicPatterns Topic patterns matching the topic of the event to be dispatched.
+     * @return Merged dispatch table.
+     */
+    private DispatchTable resolveTopicPatternDispatchTable(Collection<String> topicPatterns) {
+        List<Subscription> subscriptions = new ArrayList<>();
+        for (String topicPattern : topicPatterns) {
+            TopicSubscriptions registry = topicPatternToSubscription.get(topicPattern);
+            DispatchTable dispatchTable = (registry == null) ? DispatchTable.EMPTY : registry.getDispatchTable();
+            for (int i = 0; i < dispatchTable.size(); i++) {
+                subscriptions.add(dispatchTable.get(i));
+            }
+        }
+        subscriptions.sort(DISPATCH_ORDER);
+        return new DispatchTable(subscriptions);
+    }
+
+    /**
+     * Merges the dispatch tables of the specified class of content and of all its super types.
+     *
+     * @param contentClass Class of the content of the event to be dispatched.
+     * @return Merged dispatch table.
+     */
+    private DispatchTable resolveContentClassDispatchTable(Class<?> contentClass) {
+        Class<?>[] typeHierarchy = TypeHierarchy.of(contentClass);
+
+        // Only use the published snapshots since the subscriptions may be modified concurrently
+        DispatchTable[] dispatchTables = new DispatchTable[typeHierarchy.length];
+        for (int i = 0; i < typeHierarchy.length; i++) {
+            TopicSubscriptions registry = contentClassToSubscription.get(typeHierarchy[i]);
+            dispatchTables[i] = (registry == null) ? DispatchTable.EMPTY : registry.getDispatchTable();
+        }
+
+        return mergeDispatchTables(dispatchTables);
+    }
+
+    /**
+     * Concatenates the specified dispatch tables, and orders the result by decreasing priority and then in subscription
+     * order, whatever the dispatch tables the subscriptions come from.
+     *
+     * @param dispatchTables Dispatch tables to be merged, possibly empty.
+     * @return Merged dispatch table.
+     */
+    private static DispatchTable mergeDispatchTables(DispatchTable... dispatchTables) {
+        List<Subscription> mergedSubscriptions = new ArrayList<>();
+        DispatchTable lastDispatchTable = DispatchTable.EMPTY;
+        int dispatchTableCount = 0;
+        for (DispatchTable dispatchTable : dispatchTables) {
+            if (!dispatchTable.isEmpty()) {
+                for (int i = 0; i < dispatchTable.size(); i++) {
+                    mergedSubscriptions.add(dispatchTable.get(i));
+                }
+                lastDispatchTable = dispatchTable;
+                dispatchTableCount++;
+            }
+        }
+
+        DispatchTable mergedDispatchTable;
+        if (dispatchTableCount <= 1) {
+            // Re-use the only table having subscriptions, if any
+            mergedDispatchTable = lastDispatchTable;
+        } else {
+            // Each dispatch table is already sorted, so this merely merges them
+            mergedSubscriptions.sort(DISPATCH_ORDER);
+            mergedDispatchTable = new DispatchTable(mergedSubscriptions);
+        }
+
+        return mergedDispatchTable;
+    }
+
+    /**
+     * Builds the chain of topics covering the specified topic, starting with the topic itself and followed by its
+     * ancestors in breadth-first order.
+     * <p>
+     * Each ancestor appears only once, even if it covers the topic through several parents. Cycles in the topic
+     * hierarchy are ignored.
+     *
+     * @param topic Topic whose ancestors are to be retrieved.
+     * @return Ancestor chain.
+     */
+    private static Topic<?>[] buildAncestorChain(Topic<?> topic) {
+        Set<Topic<?>> ancestorChain = new LinkedHashSet<>();
+        List<Topic<?>> ancestors = new ArrayList<>();
+        ancestorChain.add(topic);
+        ancestors.add(topic);
+        for (int i = 0; i < ancestors.size(); i++) {
+            for (Topic<?> parent : ancestors.get(i).getParentTopics()) {
+                if ((parent != null) && ancestorChain.add(parent)) {
+                    ancestors.add(parent);
+                }
+            }
+        }
+        return ancestorChain.toArray(new Topic<?>[ancestorChain.size()]);
+    }
+
+    /**
+     * @see EventBus#unsubscribe(int)
+     */
+    @Override
+    public void unsubscribe(int id) {
+        synchronized (subscriptionLock) {
+            SubscriptionEntry<?> entry = idToSubscription.get(id);
+            if (entry == null) {
+                LOGGER.warn("Cannot unsubscribe unknown subscription ID {}", id);
+            } else {
+                removeFromTopicRegistry(entry).rebuildDispatchTable();
+                removeFromIdAndHandlerRegistries(entry);
+                invalidateResolvedDispatchTables(Collections.singleton(entry));
+            }
+        }
+    }
+
+    /**
+     * @see EventBus#unsubscribe(EventHandler)
+     */
+    @Override
+    public void unsubscribe(EventHandler<?> handler) {
+        synchronized (subscriptionLock) {
+            Collection<SubscriptionEntry<?>> entries = handlerToSubscription.remove(handler);
+            if (entries != null) {
+                // Remove all subscriptions first so that each affected dispatch table is rebuilt only once
+                Set<TopicSubscriptions> affectedRegistries = new LinkedHashSet<>();
+                for (SubscriptionEntry<?> entry : entries) {
+                    affectedRegistries.add(removeFromTopicRegistry(entry));
+                    idToSubscription.remove(entry.getId());
+                }
+                affectedRegistries.forEach(TopicSubscriptions::rebuildDispatchTable);
+                invalidateResolvedDispatchTables(entries);
+            }
+        }
+    }
+
+    /**
+     * @see EventBus#unsubscribe(Topic)
+     */
+    @Override
+    public void unsubscribe(Topic<?> topic) {
+        synchronized (subscriptionLock) {
+            TopicSubscriptions registry = topicToSubscription.remove(topic);
+            if (registry != null) {
+                for (SubscriptionEntry<?> entry : registry.getEntries()) {
+                    removeFromIdAndHandlerRegistries(entry);
+                }
+                invalidateResolvedDispatchTables(registry.getEntries());
+            }
+        }
+    }
+
+    /**
+     * Removes the subscriptions of all weakly subscribed event handlers that have been garbage collected.
+     * <p>
+     * The collected event handlers are removed in a single batch, rebuilding each affected dispatch table only once.
+     * This method is cheap when nothing has been collected, so it can be called on the publish path.
+     */
+    protected final void expungeCollectedHandlers() {
+        Reference<? extends EventHandler<Object>> reference = collectedHandlers.poll();
+        if (reference != null) {
+            synchronized (subscriptionLock) {
+                Set<TopicSubscriptions> affectedRegistries = new LinkedHashSet<>();
+                List<SubscriptionEntry<?>> expungedEntries = new ArrayList<>();
+                while (reference != null) {
+                    SubscriptionEntry<?> entry = idToSubscription.get(((HandlerReference) reference)
+                            .getSubscriptionId());
+                    // Subscription may have been explicitly removed in the meantime
+                    if ((entry != null) && (entry.handlerReference == reference)) {
+                        LOGGER.debug("Expunging subscription {} of garbage collected event handler", entry.getId());
+                        affectedRegistries.add(removeFromTopicRegistry(entry));
+                        idToSubscription.remove(entry.getId());
+                        expungedEntries.add(entry);
+                    }
+                    reference = collectedHandlers.poll();
+                }
+                affectedRegistries.forEach(TopicSubscriptions::rebuildDispatchTable);
+                invalidateResolvedDispatchTables(expungedEntries);
+            }
+        }
+    }
+
+    /**
+     * Removes the specified subscription from the registry of its topic, content class or topic pattern, without
+     * rebuilding its dispatch table.
+     * <p>
+     * The registry is discarded as soon as it becomes empty, so that it does not need to be considered
+     * anymore when resolving the dispatch tables. This method must be called while holding the {@link
+     * #subscriptionLock}.
+     *
+     * @param entry Subscription to be removed.
+     * @return Registry from which the subscription was removed and whose dispatch table needs to be rebuilt.
+     */
+    private TopicSubscriptions removeFromTopicRegistry(SubscriptionEntry<?> entry) {
+        Map<Object, TopicSubscriptions> registries = getRegistries(entry);
+        TopicSubscriptions registry = registries.get(entry.getRegistryKey());
+        registry.remove(entry);
+        if (registry.getEntries().isEmpty()) {
+            registries.remove(entry.getRegistryKey());
+            if (entry.getTopicPattern() != null) {
+                topicPatterns = new TopicPatternTrie(topicPatternToSubscription.keySet());
+            }
+        }
+        return registry;
+    }
+
+    /**
+     * Gets the mapping holding the registry of the specified subscription, depending on whether it applies to a topic,
+     * a content class or a topic pattern.
+     *
+     * @param entry Subscription whose registry is to be retrieved.
+     * @return Mapping between registry keys and registries.
+     * @see SubscriptionEntry#getRegistryKey()
+     */
+    @SuppressWarnings("unchecked")
+    private Map<Object, TopicSubscriptions> getRegistries(SubscriptionEntry<?> entry) {
+        Map<?, TopicSubscriptions> registries;
+        if (entry.getTopic() != null) {
+            registries = topicToSubscription;
+        } else if (entry.getContentClass() != null) {
+            registries = contentClassToSubscription;
+        } else {
+            registries = topicPatternToSubscription;
+        }
+        // Safe cast since the registry key of the subscription has the key type of its mapping
+        return (Map<Object, TopicSubscriptions>) registries;
+    }
+
+    /**
+     * Removes the specified subscription from the mappings by ID and by event handler.
+     * <p>
+     * This method must be called while holding the {@link #subscriptionLock}.
+     *
+     * @param entry Subscription to be removed.
+     */
+    private void removeFromIdAndHandlerRegistries(SubscriptionEntry<?> entry) {
+        idToSubscription.remove(entry.getId());
+        Collection<SubscriptionEntry<?>> handlerEntries = handlerToSubscription.get(entry.getHandler());
+        if (handlerEntries != null) {
+            handlerEntries.remove(entry);
+            if (handlerEntries.isEmpty()) {
+                handlerToSubscription.remove(entry.getHandler());
+            }
+        }
+    }
+
+    /**
+     * Sends null for the specified topic on the broadcast channel.
+     * <p>
+     * The content will be wrapped in an {@link Event} that will be dispatched to the registered event handlers.
+     *
+     * @param topic Topic for which the content must be dispatched.
+     * @see #publish(Topic, Channel, Object)
+     * @see #publish(Event)
+     */
+    public final void publish(Topic<Void> topic) {
+        publish(topic, null);
+    }
+
+    /**
+     * Sends the specified content for the specified topic on the broadcast channel.
+     * <p>
+     * The content will be wrapped in an {@link Event} that will be dispatched to the registered event handlers.
+     *
+     * @param topic   Topic for which the content must be dispatched.
+     * @param content Content to be dispatched.
+     * @param <C>     Type of content to be dispatched.
+     * @see #publish(Topic, Channel, Object)
+     * @see #publish(Event)
+     */
+    public final <C> void publish(Topic<C> topic, C content) {
+        publish(topic, BroadcastChannel.getInstance(), content);
+    }
+
+    /**
+     * @see EventBus#publish(Topic, Channel, Object)
+     * @see #publish(Event)
+     */
+    @Override
+    public final <C> void publish(Topic<C> topic, Channel channel, C content) {
+        publish(new Event<>(topic, channel, content));
+    }
+
+    /**
+     * Sends the specified content for the specified topic on the broadcast channel, and tracks its processing by the
+     * event handlers.
+     *
+     * @param topic   Topic for which the content must be dispatched.
+     * @param content Content to be dispatched.
+     * @param <C>     Type of content to be dispatched.
+     * @return Future completed once the event has been processed for all subscriptions.
+     * @see #publishAsync(Topic, Channel, Object)
+     */
+    public final <C> CompletableFuture<DeliveryReport<C>> publishAsync(Topic<C> topic, C content) {
+        return publishAsync(topic, BroadcastChannel.getInstance(), content);
+    }
+
+    /**
+     * @see EventBus#publishAsync(Topic, Channel, Object)
+     * @see #publish(Event)
+     */
+    @Override
+    public final <C> CompletableFuture<DeliveryReport<C>> publishAsync(Topic<C> topic, Channel channel, C content) {
+        TrackedEvent<C> event = new TrackedEvent<>(topic, channel, content);
+        publish(event);
+        return event.getCompletion();
+    }
+
+    /**
+     * Sends the specified content for the specified topic on the broadcast channel as a request, and waits for a
+     * response.
+     *
+     * @param topic         Topic for which the content must be dispatched.
+     * @param content       Content to be dispatched.
+     * @param timeoutMillis Maximum time to wait for the response, in milliseconds, or 0 or less for no time-out.
+     * @param <C>           Type of content to be dispatched.
+     * @param <R>           Type of response expected.
+     * @return Future completed with the response.
+     * @see #request(Topic, Channel, Object, long)
+     */
+    public final <C, R> CompletableFuture<R> request(Topic<C> topic, C content, long timeoutMillis) {
+        return request(topic, BroadcastChannel.getInstance(), content, timeoutMillis);
+    }
+
+    /**
+     * @see EventBus#request(Topic, Channel, Object, long)
+     */
+    @Override
+    public final <C, R> CompletableFuture<R> request(Topic<C> topic, Channel channel, C content, long timeoutMillis) {
+        CompletableFuture<R> response = new CompletableFuture<>();
+
+        if (disposed) {
+            response.completeExceptionally(new RejectedExecutionException("Event bus disposed"));
+        } else {
+            long correlationId = lastCorrelationId.incrementAndGet();
+            // Safe cast, the response type is only known by the requester and the responders
+            @SuppressWarnings("unchecked")
+            CompletableFuture<Object> untypedResponse = (CompletableFuture<Object>) (CompletableFuture<?>) response;
+            PendingRequest pendingRequest = new PendingRequest(untypedResponse);
+            pendingRequests.put(correlationId, pendingRequest);
+            if (timeoutMillis > 0) {
+                pendingRequest.timeout = scheduleRequestTimeout(() -> timeOutRequest(correlationId, timeoutMillis),
+                        timeoutMillis);
+            }
+            // Forget the request as soon as it is completed, including when the requester cancels it
+            response.whenComplete((r, t) -> {
+                pendingRequests.remove(correlationId);
+                pendingRequest.cancelTimeout();
+            });
+
+            if (disposed) {
+                // Disposed in the meantime, possibly without seeing this request
+                response.completeExceptionally(new RejectedExecutionException("Event bus disposed"));
+            } else {
+                try {
+                    publish(new RequestEvent<C, R>(topic, channel, content, correlationId, this));
+                } catch (RuntimeException e) {
+                    pendingRequests.remove(correlationId);
+                    pendingRequest.cancelTimeout();
+                    throw e;
+                }
+            }
+        }
+
+        return response;
+    }
+
+    /**
+     * @see EventBus#reply(long, Object)
+     */
+    @Override
+    public boolean reply(long correlationId, Object response) {
+        boolean result = false;
+
+        PendingRequest pendingRequest = pendingRequests.remove(correlationId);
+        if (pendingRequest != null) {
+            // The time-out is cancelled upon completion
+            result = pendingRequest.response.complete(response);
+        }
+
+        return result;
+    }
+
+    /**
+     * Completes the request having the specified correlation identifier with a time-out exception, if it is still
+     * waiting for a response.
+     *
+     * @param correlationId Correlation identifier of the request.
+     * @param timeoutMillis Time-out of the request, in milliseconds.
+     */
+    private void timeOutRequest(long correlationId, long timeoutMillis) {
+        PendingRequest pendingRequest = pendingRequests.remove(correlationId);
+        if (pendingRequest != null) {
+            pendingRequest.response.completeExceptionally(new TimeoutException("No response to request " +
+                    correlationId + " within " + timeoutMillis + " ms"));
+        }
+    }
+
+    /**
+     * Gets the number of requests waiting for a response, mostly useful for testing purposes.
+     *
+     * @return Number of pending requests.
+     */
+    int getPendingRequestCount() {
+        return pendingRequests.size();
+    }
+
+    /**
+     * Schedules the specified time-out on the timer shared by all requests, creating this timer if needed.
+     *
+     * @param timeout       Task timing out a request.
+     * @param timeoutMillis Time-out of the request, in milliseconds.
+     * @return Scheduled time-out, or null if the event bus is disposed.
+     */
+    private synchronized ScheduledFuture<?> scheduleRequestTimeout(Runnable timeout, long timeoutMillis) {
+        ScheduledFuture<?> result = null;
+
+        if (!disposed) {
+            if (requestTimer == null) {
+                requestTimer = new ScheduledThreadPoolExecutor(1, r -> {
+                    Thread thread = Executors.defaultThreadFactory().newThread(r);
+                    thread.setDaemon(true);
+                    return thread;
+                });
+                // Most requests are answered long before timing out, so do not keep their time-outs until then
+                requestTimer.setRemoveOnCancelPolicy(true);
+            }
+            result = requestTimer.schedule(timeout, timeoutMillis, TimeUnit.MILLISECONDS);
+        }
+
+        return result;
+    }
+
+    /**
+     * Publishes the specified event on the event bus.
+     * <p>
+     * This method is called from the other publish methods.
+     *
+     * @param event Event to be dispatched.
+     * @param <C>   Type of event content.
+     */
+    protected abstract <C> void publish(Event<C> event);
+
+    /**
+     * @see EventBus#dispose()
+     */
+    @Override
+    public void dispose() {
+        synchronized (this) {
+            disposed = true;
+            if (requestTimer != null) {
+                requestTimer.shutdownNow();
+                requestTimer = null;
+            }
+        }
+        for (Long correlationId : pendingRequests.keySet()) {
+            PendingRequest pendingRequest = pendingRequests.remove(correlationId);
+            if (pendingRequest != null) {
+                pendingRequest.response.completeExceptionally(new CancellationException("Event bus disposed"));
+            }
+        }
+        exceptionHandlers.clear();
+        undeliveredEventHandlers.clear();
+        synchronized (subscriptionLock) {
+            topicToSubscription.clear();
+            contentClassToSubscription.clear();
+            topicPatternToSubscription.clear();
+            topicPatterns = TopicPatternTrie.EMPTY;
+            topicToAncestorChain.clear();
+            idToSubscription.clear();
+            handlerToSubscription.clear();
+            invalidateResolvedDispatchTables();
+            lastId.set(-1);
+        }
+    }
+
+    /**
+     * Request waiting for a response.
+     */
+    private static final class PendingRequest {
+
+        /**
+         * Future to be completed with the response.
+         */
+        private final CompletableFuture<Object> response;
+
+        /**
+         * Scheduled time-out of the request, or null if it has no time-out.
+         */
+        private volatile ScheduledFuture<?> timeout = null;
+
+        PendingRequest(CompletableFuture<Object> response) {
+            this.response = response;
+        }
+
+        /**
+         * Cancels the scheduled time-out, if any, so that the timer does not have to run it.
+         */
+        void cancelTimeout() {
+            ScheduledFuture<?> scheduledTimeout = timeout;
+            if (scheduledTimeout != null) {
+                scheduledTimeout.cancel(false);
+            }
+        }
+    }
+
+    /**
+     * Entity gathering all subscriptions for a single topic or content class, along with the corresponding dispatch table.
+     * <p>
+     * The dispatch table is rebuilt whenever a subscription is added or removed and published by a volatile write, so
+     * that publishing does not need to copy or lock anything.
+     * <p>
+     * The subscriptions must only be modified and read while holding the {@link AbstractEventBus#subscriptionLock}, whereas the
+     * dispatch table can be read from any thread at any time.
+     */
+    protected static class TopicSubscriptions {
+
+        /**
+         * Subscriptions for the topic or content class, in subscription order.
+         */
+        private final Collection<SubscriptionEntry<?>> entries = new LinkedHashSet<>();
+
+        /**
+         * Immutable snapshot of the subscriptions to be used for dispatching.
+         */
+        private volatile DispatchTable dispatchTable = DispatchTable.EMPTY;
+
+        /**
+         * Adds the specified subscription.
+         * <p>
+         * The dispatch table will only be updated when calling {@link #rebuildDispatchTable()}.
+         *
+         * @param entry Subscription to be added.
+         */
+        public void add(SubscriptionEntry<?> entry) {
+            entries.add(entry);
+        }
+
+        /**
+         * Removes the specified subscription in constant time.
+         * <p>
+         * The dispatch table will only be updated when calling {@link #rebuildDispatchTable()}.
+         *
+         * @param entry Subscription to be removed.
+         */
+        public void remove(SubscriptionEntry<?> entry) {
+            entries.remove(entry);
+        }
+
+        /**
+         * Rebuilds and publishes the dispatch table from the current subscriptions.
+         * <p>
+         * The dispatch table is sorted by decreasing priority and then in subscription order, so that the dispatchers
+         * do not need to sort anything.
+         */
+        public void rebuildDispatchTable() {
+            if (entries.isEmpty()) {
+                dispatchTable = DispatchTable.EMPTY;
+            } else {
+                List<SubscriptionEntry<?>> sortedEntries = new ArrayList<>(entries);
+                sortedEntries.sort(DISPATCH_ORDER);
+                dispatchTable = new DispatchTable(sortedEntries);
+            }
+        }
+
+        /**
+         * Gets the subscriptions for the topic or content class.
+         *
+         * @return Subscriptions, in subscription order.
+         */
+        public Collection<SubscriptionEntry<?>> getEntries() {
+            return entries;
+        }
+
+        /**
+         * Gets the immutable snapshot of the subscriptions to be used for dispatching.
+         *
+         * @return Dispatch table.
+         */
+        public DispatchTable getDispatchTable() {
+            return dispatchTable;
+        }
+    }
+
+    /**
+     * Dispatch tables resolved for a published topic.
+     * <p>
+     * The dispatch tables filtered by channel are only valid for a specific version of the graph of their channel.
+     */
+    private static final class ResolvedTopic {
+
+        /**
+         * Dispatch table merging the subscriptions of the topic and of all the topics covering it, for all channels.
+         */
+        private final DispatchTable dispatchTable;
+
+        /**
+         * Lazily filtered dispatch tables, per channel on which events were published.
+         *
+         * @see #MAX_CACHED_CHANNELS
+         */
+        private final Map<Channel, ChannelDispatchTable> channelToDispatchTable = new ConcurrentHashMap<>();
+
+        /**
+         * Lazily resolved dispatch tables, per class of content that was published for the topic.
+         *
+         * @see #MAX_CACHED_CONTENT_CLASSES
+         */
+        private final Map<Class<?>, ResolvedTopic> contentClassToResolvedTopic = new ConcurrentHashMap<>();
+
+        /**
+         * Constructor.
+         *
+         * @param dispatchTable Dispatch table for all channels.
+         */
+        ResolvedTopic(DispatchTable dispatchTable) {
+            this.dispatchTable = dispatchTable;
+        }
+
+        /**
+         * Gets the dispatch tables merging the subscriptions of the topic with the ones of the specified content class,
+         * resolving them if needed.
+         *
+         * @param contentClass Class of the content of the event to be dispatched.
+         * @param resolver     Function resolving the dispatch table of a content class.
+         * @return Resolved dispatch tables.
+         */
+        ResolvedTopic getContentClassResolvedTopic(Class<?> contentClass,
+                                                   Function<Class<?>, DispatchTable> resolver) {
+            ResolvedTopic resolvedTopic = contentClassToResolvedTopic.get(contentClass);
+            if (resolvedTopic == null) {
+                makeRoom(contentClassToResolvedTopic, MAX_CACHED_CONTENT_CLASSES);
+                resolvedTopic = contentClassToResolvedTopic.computeIfAbsent(contentClass, k -> new ResolvedTopic
+                        (mergeDispatchTables(dispatchTable, resolver.apply(k))));
+            }
+            return resolvedTopic;
+        }
+    }
+
+    /**
+     * Dispatch table filtered for a channel on which events were published.
+     */
+    private static final class ChannelDispatchTable {
+
+        /**
+         * Subscriptions whose channels the channel flows into.
+         */
+        private final DispatchTable dispatchTable;
+
+        /**
+         * Version of the graph of the channel for which the filtered dispatch table is valid.
+         *
+         * @see #getChannelGraphVersion(Channel)
+         */
+        private final long channelGraphVersion;
+
+        /**
+         * Constructor.
+         *
+         * @param dispatchTable       Subscriptions whose channels the channel flows into.
+         * @param channelGraphVersion Version of the graph of the channel for which the filtered dispatch table is
+         *                            valid.
+         */
+        ChannelDispatchTable(DispatchTable dispatchTable, long channelGraphVersion) {
+            this.dispatchTable = dispatchTable;
+            this.channelGraphVersion = channelGraphVersion;
+        }
+    }
+
+    /**
+     * Weak reference to an event handler that remembers the subscription it belongs to, so that the subscription can
+     * be removed once the event handler has been garbage collected.
+     */
+    private static final class HandlerReference extends WeakReference<EventHandler<Object>> {
+
+        /**
+         * Identifier of the subscription of the referenced event handler.
+         */
+        private final int subscriptionId;
+
+        /**
+         * Constructor.
+         *
+         * @param handler        Event handler to be weakly referenced.
+         * @param subscriptionId Identifier of the subscription of the event handler.
+         * @param queue          Queue to be notified when the event handler has been garbage collected.
+         */
+        HandlerReference(EventHandler<Object> handler, int subscriptionId,
+                         ReferenceQueue<EventHandler<Object>> queue) {
+            super(handler, queue);
+            this.subscriptionId = subscriptionId;
+        }
+
+        /**
+         * Gets the identifier of the subscription of the referenced event handler.
+         *
+         * @return Subscription identifier.
+         */
+        int getSubscriptionId() {
+            return subscriptionId;
+        }
+    }
+
+    /**
+     * Entity gathering all information regarding a subscription.
+     *
+     * @param <C> Type of event content.
+     */
+    protected class SubscriptionEntry<C> implements Subscription {
+
+        /**
+         * Identifier that can be used to unsubscribe.
+         */
+        private final int id;
+
+        /**
+         * Topic for which the subscription applies.
+         */
+        private final Topic<C> topic;
+
+        /**
+         * Content class for which the subscription applies, if not for a topic.
+         */
+        private final Class<C> contentClass;
+
+        /**
+         * Pattern of the names of the topics for which the subscription applies, if not for a topic or content class.
+         */
+        private final String topicPattern;
+
+        /**
+         * Channel on which the events should be received, or null for a dedicated channel.
+         */
+        private final Channel channel;
+
+        /**
+         * Filter associated with the subscription.
+         */
+        private final EventFilter<Object> filter;
+
+        /**
+         * Subscriber if strongly referenced, null otherwise.
+         */
+        private final EventHandler<Object> handler;
+
+        /**
+         * Weak reference to the subscriber if weakly referenced, null otherwise.
+         */
+        private final HandlerReference handlerReference;
+
+        /**
+         * Priority of the subscription.
+         */
+        private final int priority;
+
+        /**
+         * Constructor.
+         *
+         * @param id           Identifier that can be used to unsubscribe.
+         * @param topic        Topic for which the subscription applies, or null if not for a topic.
+         * @param contentClass Content class for which the subscription applies, or null if not for a content class.
+         * @param topicPattern Topic name pattern for which the subscription applies, or null if not for a pattern.
+         * @param channel      Channel on which the events should be received, or null for a dedicated channel.
+         * @param filter       Filter registered with the subscription.
+         * @param handler      Subscriber.
+         * @param weak         True if the subscriber should only be weakly referenced, false otherwise.
+         * @param priority     Priority of the subscription.
+         */
+        @SuppressWarnings("unchecked")
+        public SubscriptionEntry(int id, Topic<C> topic, Class<C> contentClass, String topicPattern, Channel channel,
+                                 EventFilter<? super C> filter, EventHandler<? super C> handler, boolean weak,
+                                 int priority) {
+            this.id = id;
+            this.priority = priority;
+            this.topic = topic;
+            this.contentClass = contentClass;
+            this.topicPattern = topicPattern;
+            this.channel = channel;
+            // Safe casts
+            this.filter = (EventFilter<Object>) filter;
+            if (weak) {
+                this.handler = null;
+                this.handlerReference = new HandlerReference((EventHandler<Object>) handler, id, collectedHandlers);
+            } else {
+                this.handler = (EventHandler<Object>) handler;
+                this.handlerReference = null;
+            }
+        }
+
+        /**
+         * @see Subscription#getId()
+         */
+        @Override
+        public int getId() {
+            return id;
+        }
+
+        /**
+         * @see Subscription#getTopic()
+         */
+        @Override
+        public Topic<C> getTopic() {
+            return topic;
+        }
+
+        /**
+         * @see Subscription#getContentClass()
+         */
+        @Override
+        public Class<C> getContentClass() {
+            return contentClass;
+        }
+
+        /**
+         * @see Subscription#getTopicPattern()
+         */
+        @Override
+        public String getTopicPattern() {
+            return topicPattern;
+        }
+
+        /**
+         * Gets the key of the registry holding this subscription.
+         *
+         * @return Topic, content class or topic pattern for which the subscription applies.
+         */
+        Object getRegistryKey() {
+            Object key;
+            if (topic != null) {
+                key = topic;
+            } else if (contentClass != null) {
+                key = contentClass;
+            } else {
+                key = topicPattern;
+            }
+            return key;
+        }
+
+        /**
+         * @see Subscription#getChannel()
+         */
+        @Override
+        public Channel getChannel() {
+            return channel;
+        }
+
+        /**
+         * @see Subscription#getFilter()
+         */
+        @Override
+        public EventFilter<Object> getFilter() {
             return filter;
         }
 
         /**
-         * Gets the subscribers.
+         * @see Subscription#getPriority()
+         */
+        @Override
+        public int getPriority() {
+            return priority;
+        }
+
+        /**
+         * Gets the subscriber.
+         * <p>
+         * Note that null is returned if the subscriber was weakly referenced and has been garbage collected.
          *
-         * @return Event handler.
+         * @see Subscription#getHandler()
          */
-        public EventHandler<? super C> getHandler() {
-            return handler;
+        @Override
+        public EventHandler<Object> getHandler() {
+            return (handlerReference == null) ? handler : handlerReference.get();
         }
     }
 }
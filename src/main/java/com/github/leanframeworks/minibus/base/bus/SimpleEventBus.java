@@ -25,15 +25,10 @@
 
 package com.github.leanframeworks.minibus.base.bus;
 
+import com.github.leanframeworks.minibus.api.DispatchTable;
 import com.github.leanframeworks.minibus.api.Dispatcher;
 import com.github.leanframeworks.minibus.api.Event;
-import com.github.leanframeworks.minibus.api.EventFilter;
-import com.github.leanframeworks.minibus.api.EventHandler;
-import com.github.leanframeworks.minibus.api.Topic;
-
-import java.util.Collection;
-import java.util.HashMap;
-import java.util.Map;
+import com.github.leanframeworks.minibus.api.TrackedEvent;
 
 /**
  * Simple, concrete implementation of an event bus that can cover most use cases.
@@ -59,31 +54,17 @@ public class SimpleEventBus extends AbstractEventBus {
      */
     @Override
     public <C> void publish(Event<C> event) {
-        // Safe cast
-        dispatcher.dispatch((Event<Object>) event, getEventHandlersAndFilters(event.getTopic()),
-                undeliveredEventHandlers, exceptionHandlers);
-    }
-
-    /**
-     * Retrieves the event handlers and event filters that should be used for the dispatching an event on the specified
-     * topic.
-     *
-     * @param topic Topic of the event to be dispatched.
-     * @return Mapping between event handlers and event filters for the specified topic.
-     */
-    private Map<EventHandler<Object>, EventFilter<Object>> getEventHandlersAndFilters(Topic<?> topic) {
-        Map<EventHandler<Object>, EventFilter<Object>> handlersAndFilters = new HashMap<>();
-
-        Collection<SubscriptionEntry<?>> entries = topicToSubscription.get(topic);
-        if (entries != null) {
-            for (SubscriptionEntry<?> entry : entries) {
-                // Safe casts
-                handlersAndFilters.put((EventHandler<Object>) entry.getHandler(),
-                        (EventFilter<Object>) entry.getFilter());
-            }
+        expungeCollectedHandlers();
+        C content = event.getContent();
+        DispatchTable dispatchTable = getDispatchTable(event.getTopic(), event.getChannel(), (content == null) ? null :
+                content.getClass());
+        if (event instanceof TrackedEvent) {
+            ((TrackedEvent<C>) event).expectOutcomes(dispatchTable.size());
         }
-
-        return handlersAndFilters;
+        // Safe cast
+        @SuppressWarnings("unchecked")
+        Event<Object> untypedEvent = (Event<Object>) event;
+        dispatcher.dispatch(untypedEvent, dispatchTable, undeliveredEventHandlers, exceptionHandlers);
     }
 
     /**
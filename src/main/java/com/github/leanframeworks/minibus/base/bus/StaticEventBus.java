@@ -26,6 +26,7 @@
 package com.github.leanframeworks.minibus.base.bus;
 
 import com.github.leanframeworks.minibus.api.Channel;
+import com.github.leanframeworks.minibus.api.DeliveryReport;
 import com.github.leanframeworks.minibus.api.Dispatcher;
 import com.github.leanframeworks.minibus.api.Event;
 import com.github.leanframeworks.minibus.api.EventFilter;
@@ -33,6 +34,8 @@ import com.github.leanframeworks.minibus.api.EventHandler;
 import com.github.leanframeworks.minibus.api.Topic;
 import com.github.leanframeworks.minibus.base.dispatcher.SingleThreadDispatcher;
 
+import java.util.concurrent.CompletableFuture;
+
 import static com.github.leanframeworks.minibus.base.dispatcher.SingleThreadDispatcher.NestedDispatchStrategy.QUEUE;
 
 /**
@@ -105,6 +108,84 @@ public final class StaticEventBus {
         return eventBus.subscribe(topic, channel, filter, handler);
     }
 
+    /**
+     * @see SimpleEventBus#subscribe(Topic, Channel, EventFilter, EventHandler, boolean)
+     */
+    public static <C> int subscribe(Topic<C> topic, Channel channel, EventFilter<? super C> filter, EventHandler<?
+            super C> handler, boolean weak) {
+        return eventBus.subscribe(topic, channel, filter, handler, weak);
+    }
+
+    /**
+     * @see SimpleEventBus#subscribe(Topic, Channel, EventFilter, EventHandler, boolean, int)
+     */
+    public static <C> int subscribe(Topic<C> topic, Channel channel, EventFilter<? super C> filter, EventHandler<?
+            super C> handler, boolean weak, int priority) {
+        return eventBus.subscribe(topic, channel, filter, handler, weak, priority);
+    }
+
+    /**
+     * @see SimpleEventBus#subscribe(Class, EventHandler)
+     */
+    public static <C> int subscribe(Class<C> contentClass, EventHandler<? super C> handler) {
+        return eventBus.subscribe(contentClass, handler);
+    }
+
+    /**
+     * @see SimpleEventBus#subscribe(Class, Channel, EventFilter, EventHandler)
+     */
+    public static <C> int subscribe(Class<C> contentClass, Channel channel, EventFilter<? super C> filter,
+                                    EventHandler<? super C> handler) {
+        return eventBus.subscribe(contentClass, channel, filter, handler);
+    }
+
+    /**
+     * @see SimpleEventBus#subscribe(Class, Channel, EventFilter, EventHandler, boolean)
+     */
+    public static <C> int subscribe(Class<C> contentClass, Channel channel, EventFilter<? super C> filter,
+                                    EventHandler<? super C> handler, boolean weak) {
+        return eventBus.subscribe(contentClass, channel, filter, handler, weak);
+    }
+
+    /**
+     * @see SimpleEventBus#subscribe(Class, Channel, EventFilter, EventHandler, boolean, int)
+     */
+    public static <C> int subscribe(Class<C> contentClass, Channel channel, EventFilter<? super C> filter,
+                                    EventHandler<? super C> handler, boolean weak, int priority) {
+        return eventBus.subscribe(contentClass, channel, filter, handler, weak, priority);
+    }
+
+    /**
+     * @see SimpleEventBus#subscribe(String, EventHandler)
+     */
+    public static int subscribe(String topicPattern, EventHandler<Object> handler) {
+        return eventBus.subscribe(topicPattern, handler);
+    }
+
+    /**
+     * @see SimpleEventBus#subscribe(String, Channel, EventFilter, EventHandler)
+     */
+    public static int subscribe(String topicPattern, Channel channel, EventFilter<Object> filter,
+                                EventHandler<Object> handler) {
+        return eventBus.subscribe(topicPattern, channel, filter, handler);
+    }
+
+    /**
+     * @see SimpleEventBus#subscribe(String, Channel, EventFilter, EventHandler, boolean)
+     */
+    public static int subscribe(String topicPattern, Channel channel, EventFilter<Object> filter,
+                                EventHandler<Object> handler, boolean weak) {
+        return eventBus.subscribe(topicPattern, channel, filter, handler, weak);
+    }
+
+    /**
+     * @see SimpleEventBus#subscribe(String, Channel, EventFilter, EventHandler, boolean, int)
+     */
+    public static int subscribe(String topicPattern, Channel channel, EventFilter<Object> filter,
+                                EventHandler<Object> handler, boolean weak, int priority) {
+        return eventBus.subscribe(topicPattern, channel, filter, handler, weak, priority);
+    }
+
     /**
      * @see SimpleEventBus#unsubscribe(int)
      */
@@ -113,21 +194,17 @@ public final class StaticEventBus {
     }
 
     /**
-     * Unsubscribes the specified event handler from all topics.
-     *
-     * @param handler Event handler to be unsubscribed from all topics.
+     * @see SimpleEventBus#unsubscribe(EventHandler)
      */
     public static void unsubscribe(EventHandler<?> handler) {
-        // TODO
+        eventBus.unsubscribe(handler);
     }
 
     /**
-     * Unsubscribes all event handlers for the specified topic.
-     *
-     * @param topic Topic for which all event handlers must be unsubscribed.
+     * @see SimpleEventBus#unsubscribe(Topic)
      */
     public static void unsubscribe(Topic<?> topic) {
-        // TODO
+        eventBus.unsubscribe(topic);
     }
 
     /**
@@ -151,6 +228,41 @@ public final class StaticEventBus {
         eventBus.publish(topic, channel, content);
     }
 
+    /**
+     * @see SimpleEventBus#publishAsync(Topic, Object)
+     */
+    public static <C> CompletableFuture<DeliveryReport<C>> publishAsync(Topic<C> topic, C content) {
+        return eventBus.publishAsync(topic, content);
+    }
+
+    /**
+     * @see SimpleEventBus#publishAsync(Topic, Channel, Object)
+     */
+    public static <C> CompletableFuture<DeliveryReport<C>> publishAsync(Topic<C> topic, Channel channel, C content) {
+        return eventBus.publishAsync(topic, channel, content);
+    }
+
+    /**
+     * @see SimpleEventBus#request(Topic, Object, long)
+     */
+    public static <C, R> CompletableFuture<R> request(Topic<C> topic, C content, long timeoutMillis) {
+        return eventBus.request(topic, content, timeoutMillis);
+    }
+
+    /**
+     * @see SimpleEventBus#request(Topic, Channel, Object, long)
+     */
+    public static <C, R> CompletableFuture<R> request(Topic<C> topic, Channel channel, C content, long timeoutMillis) {
+        return eventBus.request(topic, channel, content, timeoutMillis);
+    }
+
+    /**
+     * @see SimpleEventBus#reply(long, Object)
+     */
+    public static boolean reply(long correlationId, Object response) {
+        return eventBus.reply(correlationId, response);
+    }
+
     /**
      * @see SimpleEventBus#publish(Event)
      */
@@ -0,0 +1,190 @@
+/*
+ * Copyright (c) 2017, LeanFrameworks
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.github.leanframeworks.minibus.base.bus;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable trie of topic name patterns, indexed by name segments.
+ * <p>
+ * Topic names and patterns are made of segments separated by dots. In a pattern, a segment made of a single star
+ * ({@value #SINGLE_SEGMENT_WILDCARD}) matches exactly one segment and a segment made of two stars ({@value
+ * #MULTI_SEGMENT_WILDCARD}) matches zero or more segments. All other segments must match exactly. For example,
+ * "orders.*.filled" matches "orders.eu.filled" but not "orders.filled" or "orders.eu.fr.filled", whereas
+ * "orders.**.filled" matches all three.
+ * <p>
+ * Matching a topic name only visits the branches of the trie that can match it, so the cost does not depend on the
+ * number of registered patterns.
+ */
+final class TopicPatternTrie {
+
+    /**
+     * Empty trie, matching nothing.
+     */
+    static final TopicPatternTrie EMPTY = new TopicPatternTrie(Collections.emptySet());
+
+    /**
+     * Pattern segment matching exactly one name segment.
+     */
+    static final String SINGLE_SEGMENT_WILDCARD = "*";
+
+    /**
+     * Pattern segment matching zero or more name segments.
+     */
+    static final String MULTI_SEGMENT_WILDCARD = "**";
+
+    /**
+     * Root node of the trie.
+     */
+    private final Node root = new Node();
+
+    /**
+     * Constructor.
+     *
+     * @param patterns Topic name patterns to be indexed.
+     */
+    TopicPatternTrie(Collection<String> patterns) {
+        for (String pattern : patterns) {
+            Node node = root;
+            for (String segment : split(pattern)) {
+                node = node.getOrCreateChild(segment);
+            }
+            node.pattern = pattern;
+        }
+    }
+
+    /**
+     * Finds all the patterns matching the specified topic name.
+     *
+     * @param topicName Topic name to be matched.
+     * @return Matching patterns, in no particular order.
+     */
+    Set<String> match(String topicName) {
+        Set<String> matchingPatterns = new LinkedHashSet<>();
+        if (topicName != null) {
+            match(root, split(topicName), 0, matchingPatterns);
+        }
+        return matchingPatterns;
+    }
+
+    /**
+     * Finds all the patterns below the specified node matching the specified name segments from the specified index.
+     *
+     * @param node             Node matching the name segments before the specified index.
+     * @param segments         Name segments.
+     * @param index            Index of the next name segment to be matched.
+     * @param matchingPatterns Set to which the matching patterns are to be added.
+     */
+    private static void match(Node node, String[] segments, int index, Set<String> matchingPatterns) {
+        if (node.multiSegmentChild != null) {
+            // Let the multi-segment wildcard consume any number of the remaining segments, including none
+            for (int i = index; i <= segments.length; i++) {
+                match(node.multiSegmentChild, segments, i, matchingPatterns);
+            }
+        }
+
+        if (index == segments.length) {
+            if (node.pattern != null) {
+                matchingPatterns.add(node.pattern);
+            }
+        } else {
+            Node exactChild = node.exactChildren.get(segments[index]);
+            if (exactChild != null) {
+                match(exactChild, segments, index + 1, matchingPatterns);
+            }
+            if (node.singleSegmentChild != null) {
+                match(node.singleSegmentChild, segments, index + 1, matchingPatterns);
+            }
+        }
+    }
+
+    /**
+     * Splits the specified topic name or pattern into segments.
+     *
+     * @param nameOrPattern Topic name or pattern.
+     * @return Segments.
+     */
+    private static String[] split(String nameOrPattern) {
+        return nameOrPattern.split("\\.", -1);
+    }
+
+    /**
+     * Node of the trie, matching a pattern segment.
+     */
+    private static final class Node {
+
+        /**
+         * Children matching specific segments.
+         */
+        private final Map<String, Node> exactChildren = new HashMap<>();
+
+        /**
+         * Child matching exactly one segment, if any.
+         */
+        private Node singleSegmentChild = null;
+
+        /**
+         * Child matching zero or more segments, if any.
+         */
+        private Node multiSegmentChild = null;
+
+        /**
+         * Pattern ending at this node, if any.
+         */
+        private String pattern = null;
+
+        /**
+         * Gets the child matching the specified pattern segment, creating it if needed.
+         *
+         * @param segment Pattern segment.
+         * @return Child node.
+         */
+        Node getOrCreateChild(String segment) {
+            Node child;
+
+            if (SINGLE_SEGMENT_WILDCARD.equals(segment)) {
+                if (singleSegmentChild == null) {
+                    singleSegmentChild = new Node();
+                }
+                child = singleSegmentChild;
+            } else if (MULTI_SEGMENT_WILDCARD.equals(segment)) {
+                if (multiSegmentChild == null) {
+                    multiSegmentChild = new Node();
+                }
+                child = multiSegmentChild;
+            } else {
+                child = exactChildren.computeIfAbsent(segment, k -> new Node());
+            }
+
+            return child;
+        }
+    }
+}
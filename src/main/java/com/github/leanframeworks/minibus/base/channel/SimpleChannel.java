@@ -26,11 +26,17 @@
 package com.github.leanframeworks.minibus.base.channel;
 
 import com.github.leanframeworks.minibus.api.Channel;
+import com.github.leanframeworks.minibus.base.util.DenseIndexAllocator;
 
+import java.util.ArrayDeque;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
-import java.util.Collections;
-import java.util.HashSet;
+import java.util.Deque;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Simple implementation of a channel.
@@ -38,9 +44,47 @@ import java.util.HashSet;
  * The other channels it can flow into can be specified as sub-channels.
  * <p>
  * Note that two instances having the same contents will not be considered equal.
+ * <p>
+ * The channels into which a simple channel flows are compiled into a transitive closure, indexed by dense channel
+ * indices, so that {@link #flowsInto(Channel)} is a single bit test for simple channels. The indices of the channels
+ * that have been garbage collected are reused, so the closures do not grow with the number of channels created over
+ * time.
+ * <p>
+ * Since a sub-channel does not know its parents, the simple channels connected through sub-channel relations are
+ * grouped into a graph, and this closure is invalidated for all the channels of a graph whenever a sub-channel is
+ * added to or removed from any of them, and lazily recompiled on the next call. Channels of other graphs are not
+ * affected. Note that graphs are merged when sub-channels connect them, but not split when sub-channels are removed,
+ * and that the simple channels only reachable through channels of other kinds are not part of the graph.
  */
 public class SimpleChannel implements Channel {
 
+    /**
+     * Allocator of the dense indices of the simple channels.
+     */
+    private static final DenseIndexAllocator INDEX_ALLOCATOR = new DenseIndexAllocator();
+
+    /**
+     * Sequence generating the versions of the channel graphs, so that no two graphs ever share a version.
+     */
+    private static final AtomicLong VERSION_SEQUENCE = new AtomicLong();
+
+    /**
+     * Lock serializing the modifications of the channel graphs.
+     */
+    private static final Object GRAPH_LOCK = new Object();
+
+    /**
+     * Dense index of this channel in the reachability bit sets.
+     */
+    private final int index = INDEX_ALLOCATOR.allocate(this);
+
+    /**
+     * Graph of the simple channels connected to this channel, possibly merged into another graph since.
+     *
+     * @see #getGraph()
+     */
+    private volatile ChannelGraph graph = new ChannelGraph();
+
     /**
      * Name that can be used, for example, for logging or debugging purposes.
      */
@@ -51,6 +95,11 @@ public class SimpleChannel implements Channel {
      */
     private final Collection<Channel> subChannels;
 
+    /**
+     * Compiled transitive closure of the channels into which this channel flows, or null if not compiled yet.
+     */
+    private volatile Reachability reachability = null;
+
     /**
      * Constructor.
      * <p>
@@ -120,12 +169,27 @@ public class SimpleChannel implements Channel {
             this.name = name;
         }
         if (subChannels == null) {
-            this.subChannels = Collections.emptySet();
+            this.subChannels = new CopyOnWriteArraySet<>();
         } else {
-            this.subChannels = new HashSet<>(subChannels);
+            this.subChannels = new CopyOnWriteArraySet<>(subChannels);
+            for (Channel subChannel : this.subChannels) {
+                connect(subChannel);
+            }
         }
     }
 
+    /**
+     * Gets the version of the graph of simple channels this channel belongs to.
+     * <p>
+     * The version changes whenever a sub-channel is added to or removed from any channel of the graph, and only
+     * then. This can be used to invalidate any information derived from the flows of this channel.
+     *
+     * @return Channel graph version.
+     */
+    public long getGraphVersion() {
+        return getGraph().version;
+    }
+
     /**
      * @see Channel#getName()
      */
@@ -149,7 +213,9 @@ public class SimpleChannel implements Channel {
      * @param channel Sub-channel to be added.
      */
     public void addSubChannel(Channel channel) {
-        subChannels.add(channel);
+        if (subChannels.add(channel)) {
+            connect(channel);
+        }
     }
 
     /**
@@ -158,7 +224,55 @@ public class SimpleChannel implements Channel {
      * @param channel Sub-channel to be removed.
      */
     public void removeSubChannel(Channel channel) {
-        subChannels.remove(channel);
+        if (subChannels.remove(channel)) {
+            synchronized (GRAPH_LOCK) {
+                getGraph().version = VERSION_SEQUENCE.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Merges the graph of the specified sub-channel, if it is a simple channel, into the graph of this channel, and
+     * changes the version of the resulting graph.
+     *
+     * @param subChannel Sub-channel that was added.
+     */
+    private void connect(Channel subChannel) {
+        synchronized (GRAPH_LOCK) {
+            ChannelGraph mergedGraph = getGraph();
+            if (subChannel instanceof SimpleChannel) {
+                ChannelGraph subGraph = ((SimpleChannel) subChannel).getGraph();
+                if (subGraph != mergedGraph) {
+                    // Merge the smaller graph into the larger one to keep the chains of merged graphs short
+                    if (subGraph.size > mergedGraph.size) {
+                        ChannelGraph smallerGraph = mergedGraph;
+                        mergedGraph = subGraph;
+                        subGraph = smallerGraph;
+                    }
+                    mergedGraph.size += subGraph.size;
+                    subGraph.mergedInto = mergedGraph;
+                }
+            }
+            // The channels of the graph that was merged now see the new version as well
+            mergedGraph.version = VERSION_SEQUENCE.incrementAndGet();
+        }
+    }
+
+    /**
+     * Gets the graph of the simple channels connected to this channel, following the graphs it was merged into.
+     *
+     * @return Current channel graph.
+     */
+    private ChannelGraph getGraph() {
+        ChannelGraph currentGraph = graph;
+        if (currentGraph.mergedInto != null) {
+            while (currentGraph.mergedInto != null) {
+                currentGraph = currentGraph.mergedInto;
+            }
+            // Shortcut the chain of merged graphs for the next calls
+            graph = currentGraph;
+        }
+        return currentGraph;
     }
 
     /**
@@ -171,10 +285,17 @@ public class SimpleChannel implements Channel {
         if (equals(channel)) {
             result = true;
         } else {
-            for (Channel subChannel : subChannels) {
-                if (subChannel.equals(channel) || subChannel.flowsInto(channel)) {
-                    result = true;
-                    break;
+            Reachability compiledReachability = getReachability();
+            if ((channel instanceof SimpleChannel) && compiledReachability.simpleChannels.get(((SimpleChannel)
+                    channel).index)) {
+                result = true;
+            } else {
+                // Other kinds of channels may have their own flow logic
+                for (Channel otherChannel : compiledReachability.otherChannels) {
+                    if (otherChannel.equals(channel) || otherChannel.flowsInto(channel)) {
+                        result = true;
+                        break;
+                    }
                 }
             }
         }
@@ -182,6 +303,111 @@ public class SimpleChannel implements Channel {
         return result;
     }
 
+    /**
+     * Gets the compiled transitive closure of the channels into which this channel flows, compiling it if the channel
+     * graph changed since the last compilation.
+     *
+     * @return Up-to-date reachability.
+     */
+    private Reachability getReachability() {
+        Reachability compiledReachability = reachability;
+        long graphVersion = getGraphVersion();
+        if ((compiledReachability == null) || (compiledReachability.graphVersion != graphVersion)) {
+            compiledReachability = compileReachability(graphVersion);
+            reachability = compiledReachability;
+        }
+        return compiledReachability;
+    }
+
+    /**
+     * Compiles the transitive closure of the channels into which this channel flows.
+     * <p>
+     * If the channel graph is modified during the compilation, the result will be considered outdated on the next
+     * call to {@link #getReachability()} and compiled again.
+     *
+     * @param graphVersion Version of the channel graph read before the compilation.
+     * @return Compiled reachability.
+     */
+    private Reachability compileReachability(long graphVersion) {
+        BitSet simpleChannels = new BitSet();
+        Set<Channel> otherChannels = new LinkedHashSet<>();
+
+        Deque<SimpleChannel> toBeVisited = new ArrayDeque<>();
+        simpleChannels.set(index);
+        toBeVisited.push(this);
+        while (!toBeVisited.isEmpty()) {
+            for (Channel subChannel : toBeVisited.pop().subChannels) {
+                if (subChannel instanceof SimpleChannel) {
+                    SimpleChannel simpleSubChannel = (SimpleChannel) subChannel;
+                    if (!simpleChannels.get(simpleSubChannel.index)) {
+                        simpleChannels.set(simpleSubChannel.index);
+                        toBeVisited.push(simpleSubChannel);
+                    }
+                } else if (subChannel != null) {
+                    otherChannels.add(subChannel);
+                }
+            }
+        }
+
+        return new Reachability(graphVersion, simpleChannels, otherChannels.toArray(new
+                Channel[otherChannels.size()]));
+    }
+
+    /**
+     * Group of simple channels connected through sub-channel relations, sharing a version.
+     */
+    private static final class ChannelGraph {
+
+        /**
+         * Graph into which this graph was merged, or null if it was not merged.
+         */
+        private volatile ChannelGraph mergedInto = null;
+
+        /**
+         * Version of this graph, changed whenever a sub-channel is added to or removed from any of its channels.
+         */
+        private volatile long version = VERSION_SEQUENCE.incrementAndGet();
+
+        /**
+         * Number of channels ever connected to this graph, only accessed while holding {@link #GRAPH_LOCK}.
+         */
+        private int size = 1;
+    }
+
+    /**
+     * Immutable transitive closure of the channels into which a simple channel flows.
+     */
+    private static final class Reachability {
+
+        /**
+         * Version of the channel graph from which this closure was compiled.
+         */
+        private final long graphVersion;
+
+        /**
+         * Indices of the reachable simple channels.
+         */
+        private final BitSet simpleChannels;
+
+        /**
+         * Reachable channels that are not simple channels.
+         */
+        private final Channel[] otherChannels;
+
+        /**
+         * Constructor.
+         *
+         * @param graphVersion   Version of the channel graph from which this closure was compiled.
+         * @param simpleChannels Indices of the reachable simple channels.
+         * @param otherChannels  Reachable channels that are not simple channels.
+         */
+        Reachability(long graphVersion, BitSet simpleChannels, Channel[] otherChannels) {
+            this.graphVersion = graphVersion;
+            this.simpleChannels = simpleChannels;
+            this.otherChannels = otherChannels;
+        }
+    }
+
     @Override
     public String toString() {
         return getClass().getSimpleName() + "@" + Integer.toHexString(System.identityHashCode(this)) +
@@ -25,11 +25,14 @@
 
 package com.github.leanframeworks.minibus.base.dispatcher;
 
+import com.github.leanframeworks.minibus.api.DeliveryReport;
 import com.github.leanframeworks.minibus.api.Dispatcher;
 import com.github.leanframeworks.minibus.api.Event;
 import com.github.leanframeworks.minibus.api.EventFilter;
 import com.github.leanframeworks.minibus.api.EventHandler;
 import com.github.leanframeworks.minibus.api.ExceptionHandler;
+import com.github.leanframeworks.minibus.api.Subscription;
+import com.github.leanframeworks.minibus.api.TrackedEvent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -77,6 +80,79 @@ public abstract class AbstractDispatcher implements Dispatcher {
         return delivered;
     }
 
+    /**
+     * Passes the specified event to the event handler of the specified subscription if the event filter of the
+     * subscription accepts it.
+     * <p>
+     * If an exception is thrown during the processing of the event, the specified exception handlers will be used.
+     * <p>
+     * If the event handler of the subscription is no longer available (for example, because it was weakly referenced
+     * and has been garbage collected), the event is not processed.
+     * <p>
+     * If the event is a {@link TrackedEvent}, the outcome is recorded in the event.
+     *
+     * @param event             Event to be processed.
+     * @param subscription      Subscription holding the event filter and event handler to be used.
+     * @param exceptionHandlers Exception handlers to be used in case an unchecked exception is thrown.
+     * @return True if the event was processed by the event handler, false otherwise.
+     * @see #processEventThroughFilterAndHandler(Event, EventFilter, EventHandler, Collection)
+     */
+    protected final boolean processEventThroughSubscription(Event<Object> event, Subscription subscription,
+                                                            Collection<ExceptionHandler> exceptionHandlers) {
+        boolean delivered = false;
+
+        EventHandler<Object> handler = subscription.getHandler();
+        if (event instanceof TrackedEvent) {
+            // Safe cast
+            delivered = processTrackedEventThroughSubscription((TrackedEvent<Object>) event, subscription, handler,
+                    exceptionHandlers);
+        } else if (handler != null) {
+            delivered = processEventThroughFilterAndHandler(event, subscription.getFilter(), handler,
+                    exceptionHandlers);
+        }
+
+        return delivered;
+    }
+
+    /**
+     * Passes the specified tracked event to the specified event handler if the event filter of the specified
+     * subscription accepts it, and records the outcome in the event.
+     *
+     * @param event             Event to be processed.
+     * @param subscription      Subscription holding the event filter.
+     * @param handler           Event handler of the subscription, or null if it is no longer available.
+     * @param exceptionHandlers Exception handlers to be used in case an unchecked exception is thrown.
+     * @return True if the event was processed by the event handler, false otherwise.
+     */
+    private boolean processTrackedEventThroughSubscription(TrackedEvent<Object> event, Subscription subscription,
+                                                           EventHandler<Object> handler,
+                                                           Collection<ExceptionHandler> exceptionHandlers) {
+        DeliveryReport.Outcome outcome = DeliveryReport.Outcome.COLLECTED;
+        Throwable failure = null;
+
+        if (handler != null) {
+            outcome = DeliveryReport.Outcome.FILTERED;
+            try {
+                EventFilter<Object> filter = subscription.getFilter();
+                if ((filter == null) || filter.accept(event)) {
+                    LOGGER.debug("Handling event '{}' with handler '{}'", event, handler);
+                    handler.handleEvent(event);
+                    outcome = DeliveryReport.Outcome.DELIVERED;
+                }
+            } catch (Throwable t) {
+                outcome = DeliveryReport.Outcome.FAILED;
+                failure = t;
+            }
+        }
+
+        event.recordOutcome(subscription, outcome, failure);
+        if (failure != null) {
+            processUncheckedException(failure, exceptionHandlers, event);
+        }
+
+        return outcome == DeliveryReport.Outcome.DELIVERED;
+    }
+
     /**
      * Passes the specified event to the specified undelivered event handlers.
      * <p>
@@ -25,20 +25,49 @@
 
 package com.github.leanframeworks.minibus.base.dispatcher;
 
+import com.github.leanframeworks.minibus.api.BatchEventHandler;
+import com.github.leanframeworks.minibus.api.DeliveryReport;
+import com.github.leanframeworks.minibus.api.DispatchTable;
 import com.github.leanframeworks.minibus.api.Event;
 import com.github.leanframeworks.minibus.api.EventFilter;
 import com.github.leanframeworks.minibus.api.EventHandler;
 import com.github.leanframeworks.minibus.api.ExceptionHandler;
+import com.github.leanframeworks.minibus.api.Subscription;
+import com.github.leanframeworks.minibus.api.TrackedEvent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.AbstractMap;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.LinkedList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Queue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Abstract implementation of a dispatcher processing events in a serial manner, one at a time.
+ * <p>
+ * Optionally, the subscriptions of a single event can be processed in parallel on a fork/join pool when there are many
+ * of them (see {@link #setParallelFanOut(ForkJoinPool, int)}). The events themselves are still processed one at a
+ * time.
+ * <p>
+ * Also optionally, the events for {@link BatchEventHandler}s can be accumulated and delivered as batches (see {@link
+ * #setBatchDelivery(int, long)}).
+ * <p>
+ * The events dispatched while an event is being processed can be queued so that they are processed afterwards, by
+ * the same thread (see {@link #queueEvent(Event, DispatchTable, Collection, Collection)}). Each thread has its own
+ * queue, so that a thread never processes the events queued by another one.
+ * <p>
+ * The queues can be bounded, in which case an {@link OverflowPolicy} decides what happens to the events that do not
+ * fit (see {@link #setQueueBound(int, OverflowPolicy)}). The queue depth and the discarded events are counted, so
+ * that the bounds can be sized from actual figures.
  */
 public abstract class AbstractSerialDispatcher extends AbstractDispatcher {
 
@@ -48,87 +77,831 @@ public abstract class AbstractSerialDispatcher extends AbstractDispatcher {
     private static final Logger LOGGER = LoggerFactory.getLogger(AbstractSerialDispatcher.class);
 
     /**
-     * Events in the queue that still need to be processed.
+     * Number of events in the queues of all the threads that still need to be processed.
      */
-    private final Queue<QueueEntry> queuedEvents = new LinkedList<>();
+    private final AtomicInteger queuedEventCount = new AtomicInteger();
 
-    private int nestedDispatchCount = 0;
+    /**
+     * Processor of the queued events, created once so that processing the queue does not allocate anything.
+     */
+    private final QueuedEventRing.Processor queuedEventProcessor = this::processQueuedEvent;
+
+    /**
+     * Maximum number of events in the queue.
+     */
+    private volatile int queueCapacity = Integer.MAX_VALUE;
+
+    /**
+     * Policy applied when the queue is full.
+     */
+    private volatile OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+
+    /**
+     * Highest queue depth recorded so far.
+     */
+    private final AtomicInteger peakQueuedEventCount = new AtomicInteger();
+
+    /**
+     * Number of events discarded because a queue was full.
+     */
+    private final AtomicLong droppedEventCount = new AtomicLong();
 
+    /**
+     * Number of events rejected because a queue was full.
+     */
+    private final AtomicLong rejectedEventCount = new AtomicLong();
+
+    /**
+     * Processing state of each thread, including the fork/join workers processing subscriptions in parallel.
+     */
+    private final ThreadLocal<ProcessingState> processingState = ThreadLocal.withInitial(ProcessingState::new);
+
+    /**
+     * Pool on which the subscriptions are processed in parallel, or null if they are always processed serially.
+     */
+    private volatile ForkJoinPool fanOutPool = null;
+
+    /**
+     * Minimum number of subscriptions for an event to be processed in parallel.
+     */
+    private volatile int fanOutThreshold = Integer.MAX_VALUE;
+
+    /**
+     * Maximum number of events per batch, or 0 if batch delivery is disabled.
+     */
+    private volatile int maxBatchSize = 0;
+
+    /**
+     * Maximum time during which events can be accumulated in a batch, in nanoseconds.
+     */
+    private volatile long maxBatchDelayNanos = 0;
+
+    /**
+     * Batches being accumulated, per subscription, in the order in which they were started.
+     * <p>
+     * These batches are meant to be accessed by the thread processing the events only, but they are still guarded by
+     * the map itself, so that a thread abandoned in the middle of a batch cannot corrupt them.
+     */
+    private final Map<Subscription, PendingBatch> pendingBatches = new LinkedHashMap<>();
+
+    /**
+     * Gets the number of events being processed by the current thread.
+     * <p>
+     * Events processed by other threads, for instance by other publishers or by abandoned threads, are not taken into
+     * account, so that they are not mistaken for nested dispatches.
+     *
+     * @return Nested dispatch count of the current thread, 0 if it is not processing any event.
+     */
     protected final int getNestedDispatchCount() {
-        return nestedDispatchCount;
+        return processingState.get().nestedDispatchCount;
+    }
+
+    /**
+     * Gets the processing state of the current thread.
+     *
+     * @return Processing state, that can be abandoned to stop the thread from processing anything else.
+     */
+    final ProcessingState getProcessingState() {
+        return processingState.get();
+    }
+
+    /**
+     * Enables or disables the parallel processing of the subscriptions of a single event.
+     * <p>
+     * When an event has at least the specified number of subscriptions, they are split into chunks of at most this
+     * number of subscriptions that are processed in parallel on the specified pool. The subscriptions of the other
+     * events are still processed serially, to avoid the overhead of the pool. In both cases, the event is only passed
+     * to the undelivered event handlers if none of the subscriptions processed it.
+     * <p>
+     * Note that, in parallel mode, the event handlers are called from the threads of the pool, so they must be
+     * thread-safe. This is why this method is not exposed by the dispatchers that must call the event handlers from a
+     * specific thread.
+     *
+     * @param pool      Pool on which the subscriptions are to be processed, or null to always process them serially.
+     * @param threshold Minimum number of subscriptions for an event to be processed in parallel, also used as chunk
+     *                  size.
+     */
+    protected void setParallelFanOut(ForkJoinPool pool, int threshold) {
+        fanOutThreshold = Math.max(1, threshold);
+        fanOutPool = pool;
+    }
+
+    /**
+     * Bounds the queue of events waiting to be processed, per thread.
+     * <p>
+     * Since each queue is only filled while events are being processed, and drained by the same thread, the {@link
+     * OverflowPolicy#BLOCK} and {@link OverflowPolicy#CALLER_RUNS} policies both result in the event being processed
+     * immediately when the queue is full. Concrete dispatchers having their own queues may apply the same bound and
+     * policy to them.
+     *
+     * @param capacity Maximum number of queued events per thread, or {@link Integer#MAX_VALUE} for an unbounded
+     *                 queue.
+     * @param policy   Policy to be applied when the queue is full.
+     */
+    protected void setQueueBound(int capacity, OverflowPolicy policy) {
+        overflowPolicy = (policy == null) ? OverflowPolicy.BLOCK : policy;
+        queueCapacity = Math.max(1, capacity);
+    }
+
+    /**
+     * Gets the maximum number of events waiting to be processed, per thread.
+     *
+     * @return Queue capacity, or {@link Integer#MAX_VALUE} if the queue is unbounded.
+     * @see #setQueueBound(int, OverflowPolicy)
+     */
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    /**
+     * Gets the policy applied when an event is to be queued but the queue is full.
+     *
+     * @return Overflow policy.
+     * @see #setQueueBound(int, OverflowPolicy)
+     */
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    /**
+     * Gets the number of events currently waiting to be processed.
+     * <p>
+     * The events queued by all the threads are taken into account.
+     *
+     * @return Queue depth.
+     */
+    public int getQueuedEventCount() {
+        return queuedEventCount.get();
+    }
+
+    /**
+     * Gets the highest number of events that were waiting to be processed at the same time.
+     *
+     * @return Peak queue depth.
+     */
+    public int getPeakQueuedEventCount() {
+        return peakQueuedEventCount.get();
+    }
+
+    /**
+     * Gets the number of events discarded because a queue was full.
+     *
+     * @return Number of dropped events.
+     */
+    public long getDroppedEventCount() {
+        return droppedEventCount.get();
     }
 
-    protected final void processEvent(Event<Object> event, Map<EventHandler<Object>, EventFilter<Object>>
-            eventHandlers, Collection<EventHandler<Object>> undeliveredEventHandlers,
+    /**
+     * Gets the number of events rejected because a queue was full.
+     *
+     * @return Number of rejected events.
+     */
+    public long getRejectedEventCount() {
+        return rejectedEventCount.get();
+    }
+
+    /**
+     * Records the specified queue depth so that the peak queue depth can be reported.
+     *
+     * @param depth Number of events currently waiting to be processed.
+     */
+    protected final void recordQueueDepth(int depth) {
+        peakQueuedEventCount.accumulateAndGet(depth, Math::max);
+    }
+
+    /**
+     * Records that the specified event was discarded because a queue was full.
+     *
+     * @param event Dropped event.
+     */
+    protected final void recordDroppedEvent(Event<?> event) {
+        droppedEventCount.incrementAndGet();
+        if (event instanceof TrackedEvent) {
+            ((TrackedEvent<?>) event).discard();
+        }
+        LOGGER.debug("Dropped event '{}' because the queue is full", event);
+    }
+
+    /**
+     * Records that the specified event was rejected because a queue was full.
+     *
+     * @param event Rejected event.
+     * @return Exception to be thrown to the publisher.
+     */
+    protected final RejectedExecutionException recordRejectedEvent(Event<?> event) {
+        rejectedEventCount.incrementAndGet();
+        if (event instanceof TrackedEvent) {
+            ((TrackedEvent<?>) event).discard();
+        }
+        return new RejectedExecutionException("Queue is full, rejected event: " + event);
+    }
+
+    /**
+     * Enables or disables the delivery of the events to the {@link BatchEventHandler}s as batches.
+     * <p>
+     * When enabled, the events accepted by the filter of a subscription whose event handler is a batch event handler
+     * are accumulated instead of being passed right away. A batch is delivered as soon as it reaches the specified
+     * size, as soon as its first event has been waiting for the specified delay, or whenever the concrete dispatcher
+     * has no more events to process (see {@link #flushBatches()}). This way, the batches grow with the load.
+     * <p>
+     * Note that batches are not accumulated for the events whose subscriptions are processed in parallel. Also note
+     * that batches still pending when the dispatcher is disposed are discarded.
+     *
+     * @param maxSize        Maximum number of events per batch, or 0 to disable batch delivery.
+     * @param maxDelayMillis Maximum time during which events can be accumulated in a batch, in milliseconds.
+     */
+    protected void setBatchDelivery(int maxSize, long maxDelayMillis) {
+        maxBatchDelayNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, maxDelayMillis));
+        maxBatchSize = Math.max(0, maxSize);
+    }
+
+    /**
+     * Gets the maximum number of events per batch.
+     *
+     * @return Maximum batch size, or 0 if batch delivery is disabled.
+     * @see #setBatchDelivery(int, long)
+     */
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    /**
+     * Gets the maximum time during which events can be accumulated in a batch.
+     *
+     * @return Maximum batch delay in milliseconds.
+     * @see #setBatchDelivery(int, long)
+     */
+    public long getMaxBatchDelayMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(maxBatchDelayNanos);
+    }
+
+    /**
+     * Gets the pool on which the subscriptions of a single event may be processed in parallel.
+     *
+     * @return Fork/join pool, or null if the subscriptions are always processed serially.
+     * @see #setParallelFanOut(ForkJoinPool, int)
+     */
+    public ForkJoinPool getParallelFanOutPool() {
+        return fanOutPool;
+    }
+
+    /**
+     * Gets the minimum number of subscriptions for an event to be processed in parallel.
+     *
+     * @return Threshold, also used as chunk size.
+     * @see #setParallelFanOut(ForkJoinPool, int)
+     */
+    public int getParallelFanOutThreshold() {
+        return fanOutThreshold;
+    }
+
+    protected final void processEvent(Event<Object> event, DispatchTable dispatchTable,
+                                      Collection<EventHandler<Object>> undeliveredEventHandlers,
                                       Collection<ExceptionHandler> exceptionHandlers) {
         LOGGER.debug("Dispatching event '{}'", event);
 
-        nestedDispatchCount++;
+        ProcessingState state = processingState.get();
+        state.nestedDispatchCount++;
         try {
             boolean delivered = false;
 
-            for (Map.Entry<EventHandler<Object>, EventFilter<Object>> entry : eventHandlers.entrySet()) {
-                delivered = processEventThroughFilterAndHandler(event, entry.getValue(), entry.getKey(),
-                        exceptionHandlers);
+            ForkJoinPool pool = fanOutPool;
+            int threshold = fanOutThreshold;
+            if ((pool != null) && (dispatchTable.size() >= threshold)) {
+                if (state.claimStep()) {
+                    try {
+                        delivered = pool.invoke(new FanOutTask(event, dispatchTable, 0, dispatchTable.size(),
+                                threshold, exceptionHandlers));
+                    } finally {
+                        state.releaseStep();
+                    }
+                }
+            } else {
+                delivered = processOrBatchEvent(event, dispatchTable, state, exceptionHandlers);
             }
 
-            if (!delivered) {
-                processUndeliveredEvent(event, undeliveredEventHandlers, exceptionHandlers);
+            if (!delivered && state.claimStep()) {
+                try {
+                    processUndeliveredEvent(event, undeliveredEventHandlers, exceptionHandlers);
+                } finally {
+                    state.releaseStep();
+                }
+            }
+
+            if (state.isAbandoned()) {
+                discardAbandonedEvent(event);
             }
 
         } finally {
-            nestedDispatchCount--;
+            state.nestedDispatchCount--;
+        }
+    }
+
+    /**
+     * Passes the specified event to the specified range of subscriptions, serially.
+     *
+     * @param event             Event to be processed.
+     * @param dispatchTable     Subscriptions to be used to process the event.
+     * @param from              Index of the first subscription to be used, inclusive.
+     * @param to                Index of the last subscription to be used, exclusive.
+     * @param exceptionHandlers Exception handlers to be used in case an unchecked exception is thrown.
+     * @return True if the event was processed by at least one event handler, false otherwise.
+     */
+    private boolean processEventThroughSubscriptions(Event<Object> event, DispatchTable dispatchTable, int from,
+                                                     int to, Collection<ExceptionHandler> exceptionHandlers) {
+        boolean delivered = false;
+
+        for (int i = from; i < to; i++) {
+            if (processEventThroughSubscription(event, dispatchTable.get(i), exceptionHandlers)) {
+                delivered = true;
+            }
+        }
+
+        return delivered;
+    }
+
+    /**
+     * Passes the specified event to the specified subscriptions serially, adding it to the pending batches of the
+     * subscriptions of batch event handlers if batch delivery is enabled.
+     *
+     * <p>
+     * The processing stops as soon as the specified state is abandoned, leaving the remaining subscriptions aside.
+     *
+     * @param event             Event to be processed.
+     * @param dispatchTable     Subscriptions to be used to process the event.
+     * @param state             Processing state of the current thread.
+     * @param exceptionHandlers Exception handlers to be used in case an unchecked exception is thrown.
+     * @return True if the event was processed or batched by at least one event handler, false otherwise.
+     */
+    private boolean processOrBatchEvent(Event<Object> event, DispatchTable dispatchTable, ProcessingState state,
+                                        Collection<ExceptionHandler> exceptionHandlers) {
+        boolean delivered = false;
+
+        int batchSize = maxBatchSize;
+        for (int i = 0; (i < dispatchTable.size()) && state.claimStep(); i++) {
+            try {
+                Subscription subscription = dispatchTable.get(i);
+                boolean deliveredToSubscription;
+                if ((batchSize > 0) && (subscription.getHandler() instanceof BatchEventHandler)) {
+                    deliveredToSubscription = batchEvent(event, subscription, batchSize, exceptionHandlers);
+                } else {
+                    deliveredToSubscription = processEventThroughSubscription(event, subscription,
+                            exceptionHandlers);
+                }
+                if (deliveredToSubscription) {
+                    delivered = true;
+                }
+            } finally {
+                state.releaseStep();
+            }
+        }
+
+        flushExpiredBatches(state);
+
+        return delivered;
+    }
+
+    /**
+     * Adds the specified event to the pending batch of the specified subscription if its filter accepts it, delivering
+     * the batch if it is full.
+     *
+     * @param event             Event to be batched.
+     * @param subscription      Subscription of a batch event handler.
+     * @param maxSize           Maximum number of events per batch.
+     * @param exceptionHandlers Exception handlers to be used in case an unchecked exception is thrown.
+     * @return True if the event was accepted by the filter, false otherwise.
+     */
+    private boolean batchEvent(Event<Object> event, Subscription subscription, int maxSize,
+                               Collection<ExceptionHandler> exceptionHandlers) {
+        boolean accepted = false;
+
+        try {
+            EventFilter<Object> filter = subscription.getFilter();
+            accepted = (filter == null) || filter.accept(event);
+            if (!accepted) {
+                recordOutcome(event, subscription, DeliveryReport.Outcome.FILTERED, null);
+            }
+        } catch (Throwable t) {
+            recordOutcome(event, subscription, DeliveryReport.Outcome.FAILED, t);
+            processUncheckedException(t, exceptionHandlers, event);
+        }
+
+        if (accepted) {
+            PendingBatch fullBatch = null;
+            synchronized (pendingBatches) {
+                PendingBatch batch = pendingBatches.computeIfAbsent(subscription, k -> new PendingBatch(System
+                        .nanoTime()));
+                batch.events.add(event);
+                batch.exceptionHandlers = exceptionHandlers;
+                if (batch.events.size() >= maxSize) {
+                    pendingBatches.remove(subscription);
+                    fullBatch = batch;
+                }
+            }
+            if (fullBatch != null) {
+                deliverBatch(subscription, fullBatch);
+            }
+        }
+
+        return accepted;
+    }
+
+    /**
+     * Delivers all the pending batches.
+     * <p>
+     * This method is to be called by the concrete dispatchers whenever they have no more events to process, on the
+     * thread processing the events. It does nothing if this thread was abandoned.
+     */
+    protected final void flushBatches() {
+        ProcessingState state = processingState.get();
+        boolean flushing = true;
+        while (flushing && state.claimStep()) {
+            try {
+                Map.Entry<Subscription, PendingBatch> entry = null;
+                synchronized (pendingBatches) {
+                    Iterator<Map.Entry<Subscription, PendingBatch>> batchIterator = pendingBatches.entrySet()
+                            .iterator();
+                    if (batchIterator.hasNext()) {
+                        entry = batchIterator.next();
+                        batchIterator.remove();
+                    }
+                }
+                if (entry == null) {
+                    flushing = false;
+                } else {
+                    deliverBatch(entry.getKey(), entry.getValue());
+                }
+            } finally {
+                state.releaseStep();
+            }
+        }
+    }
+
+    /**
+     * Delivers the pending batches whose first event has been waiting for longer than the maximum batch delay.
+     * <p>
+     * The delivery stops as soon as the specified state is abandoned, leaving the remaining batches to the replacement
+     * thread.
+     *
+     * @param state Processing state of the current thread.
+     */
+    private void flushExpiredBatches(ProcessingState state) {
+        List<Map.Entry<Subscription, PendingBatch>> expiredBatches = null;
+        synchronized (pendingBatches) {
+            if (!pendingBatches.isEmpty()) {
+                long now = System.nanoTime();
+                long maxDelay = maxBatchDelayNanos;
+                expiredBatches = new ArrayList<>();
+                for (Map.Entry<Subscription, PendingBatch> entry : pendingBatches.entrySet()) {
+                    if ((now - entry.getValue().startNanos) >= maxDelay) {
+                        // Copy the entry since the map may change before it is delivered
+                        expiredBatches.add(new AbstractMap.SimpleImmutableEntry<>(entry));
+                    }
+                }
+            }
+        }
+        if (expiredBatches != null) {
+            for (int i = 0; (i < expiredBatches.size()) && state.claimStep(); i++) {
+                try {
+                    Map.Entry<Subscription, PendingBatch> entry = expiredBatches.get(i);
+                    boolean removed;
+                    synchronized (pendingBatches) {
+                        removed = pendingBatches.remove(entry.getKey(), entry.getValue());
+                    }
+                    if (removed) {
+                        deliverBatch(entry.getKey(), entry.getValue());
+                    }
+                } finally {
+                    state.releaseStep();
+                }
+            }
+        }
+    }
+
+    /**
+     * Passes the specified batch to the batch event handler of the specified subscription.
+     * <p>
+     * If the event handler is no longer available, the batch is discarded.
+     *
+     * @param subscription Subscription of a batch event handler.
+     * @param batch        Batch of events to be delivered.
+     */
+    private void deliverBatch(Subscription subscription, PendingBatch batch) {
+        EventHandler<Object> handler = subscription.getHandler();
+        if (handler instanceof BatchEventHandler) {
+            Throwable failure = null;
+            try {
+                LOGGER.debug("Handling batch of {} events with handler '{}'", batch.events.size(), handler);
+                ((BatchEventHandler<Object>) handler).handleEvents(batch.events);
+            } catch (Throwable t) {
+                failure = t;
+            }
+            DeliveryReport.Outcome outcome = (failure == null) ? DeliveryReport.Outcome.DELIVERED : DeliveryReport
+                    .Outcome.FAILED;
+            for (Event<Object> event : batch.events) {
+                recordOutcome(event, subscription, outcome, failure);
+            }
+            if (failure != null) {
+                processUncheckedException(failure, batch.exceptionHandlers, batch.events.get(batch.events.size() - 1));
+            }
+        } else {
+            for (Event<Object> event : batch.events) {
+                recordOutcome(event, subscription, DeliveryReport.Outcome.COLLECTED, null);
+            }
+        }
+    }
+
+    /**
+     * Records the specified outcome if the specified event is a {@link TrackedEvent}.
+     *
+     * @param event        Processed event.
+     * @param subscription Processed subscription.
+     * @param outcome      Outcome of the processing.
+     * @param failure      Exception thrown by the filter or the event handler, or null.
+     */
+    private static void recordOutcome(Event<Object> event, Subscription subscription, DeliveryReport.Outcome outcome,
+                                      Throwable failure) {
+        if (event instanceof TrackedEvent) {
+            ((TrackedEvent<Object>) event).recordOutcome(subscription, outcome, failure);
         }
     }
 
-    protected final void queueEvent(Event<Object> event, Map<EventHandler<Object>, EventFilter<Object>>
-            eventHandlers, Collection<EventHandler<Object>> undeliveredEventHandlers,
+    /**
+     * Queues the specified event so that it is processed by {@link #processQueue()} on the current thread, applying
+     * the overflow policy if the queue of the current thread is full.
+     *
+     * @param event                    Event to be queued.
+     * @param dispatchTable            Subscriptions to be used to process the event.
+     * @param undeliveredEventHandlers Event handlers to be used if the event is not delivered.
+     * @param exceptionHandlers        Exception handlers to be used in case an unchecked exception is thrown.
+     * @see #setQueueBound(int, OverflowPolicy)
+     */
+    protected final void queueEvent(Event<Object> event, DispatchTable dispatchTable,
+                                    Collection<EventHandler<Object>> undeliveredEventHandlers,
                                     Collection<ExceptionHandler> exceptionHandlers) {
-        queuedEvents.offer(new QueueEntry(event, eventHandlers, undeliveredEventHandlers, exceptionHandlers));
+        QueuedEventRing queuedEvents = processingState.get().queuedEvents;
+        int capacity = queueCapacity;
+        int depth = queuedEvents.offer(event, dispatchTable, undeliveredEventHandlers, exceptionHandlers, capacity);
+        if (depth < 0) {
+            OverflowPolicy policy = overflowPolicy;
+            switch (policy) {
+                case BLOCK:
+                case CALLER_RUNS:
+                    // Waiting for the queue to be drained by this very thread would never end
+                    processEvent(event, dispatchTable, undeliveredEventHandlers, exceptionHandlers);
+                    break;
+                case DROP_NEWEST:
+                    recordDroppedEvent(event);
+                    break;
+                case DROP_OLDEST:
+                    Event<Object> oldestEvent = queuedEvents.removeOldest();
+                    if (oldestEvent != null) {
+                        queuedEventCount.decrementAndGet();
+                        recordDroppedEvent(oldestEvent);
+                    }
+                    depth = queuedEvents.offer(event, dispatchTable, undeliveredEventHandlers, exceptionHandlers,
+                            capacity);
+                    if (depth < 0) {
+                        recordDroppedEvent(event);
+                    }
+                    break;
+                case REJECT:
+                    throw recordRejectedEvent(event);
+                default:
+                    LOGGER.error("Unsupported overflow policy: {}", policy);
+            }
+        }
+        if (depth > 0) {
+            queuedEventCount.incrementAndGet();
+            recordQueueDepth(depth);
+        }
     }
 
+    /**
+     * Processes the events queued by the current thread until its queue is empty, or until the current thread is
+     * abandoned, in which case the remaining events are left to the replacement thread.
+     */
     protected final void processQueue() {
-        while (!queuedEvents.isEmpty()) {
-            QueueEntry entry = queuedEvents.poll();
-            processEvent(entry.getEvent(), entry.getEventHandlers(), entry.getUndeliveredEventHandlers(), entry
-                    .getExceptionHandlers());
+        ProcessingState state = processingState.get();
+        while (!state.isAbandoned() && state.queuedEvents.processNext(queuedEventProcessor)) {
+            // Process until the queue is empty
+        }
+    }
+
+    /**
+     * Moves the events queued by the thread of the specified abandoned processing state to the queue of the current
+     * thread, so that they are processed by the next call to {@link #processQueue()}.
+     *
+     * @param abandonedState Processing state of an abandoned thread.
+     */
+    final void adoptQueuedEvents(ProcessingState abandonedState) {
+        QueuedEventRing queuedEvents = processingState.get().queuedEvents;
+        int capacity = Integer.MAX_VALUE; // Already counted and bounded when queued by the abandoned thread
+        QueuedEventRing.Processor mover = (event, dispatchTable, undeliveredEventHandlers, exceptionHandlers) ->
+                queuedEvents.offer(event, dispatchTable, undeliveredEventHandlers, exceptionHandlers, capacity);
+        while (abandonedState.queuedEvents.processNext(mover)) {
+            // Move until the queue of the abandoned thread is empty
         }
     }
 
-    private static class QueueEntry {
+    /**
+     * Processes the specified event, just removed from a queue.
+     *
+     * @param event                    Event to be processed.
+     * @param dispatchTable            Subscriptions to be used to process the event.
+     * @param undeliveredEventHandlers Event handlers to be used if the event is not delivered.
+     * @param exceptionHandlers        Exception handlers to be used in case an unchecked exception is thrown.
+     */
+    private void processQueuedEvent(Event<Object> event, DispatchTable dispatchTable,
+                                    Collection<EventHandler<Object>> undeliveredEventHandlers,
+                                    Collection<ExceptionHandler> exceptionHandlers) {
+        queuedEventCount.decrementAndGet();
+        processEvent(event, dispatchTable, undeliveredEventHandlers, exceptionHandlers);
+    }
+
+    /**
+     * Records that the specified event could not be fully processed because the current thread was abandoned.
+     *
+     * @param event Event whose remaining subscriptions were left aside.
+     */
+    private static void discardAbandonedEvent(Event<Object> event) {
+        if (event instanceof TrackedEvent) {
+            ((TrackedEvent<?>) event).discard();
+        }
+        LOGGER.debug("Stopped processing event '{}' because its thread was abandoned", event);
+    }
 
+    /**
+     * Task processing a range of subscriptions for an event, splitting it in halves until it is small enough.
+     */
+    private final class FanOutTask extends RecursiveTask<Boolean> {
+
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Event to be processed.
+         */
         private final Event<Object> event;
 
-        private final Map<EventHandler<Object>, EventFilter<Object>> eventHandlers;
+        /**
+         * Subscriptions to be used to process the event.
+         */
+        private final DispatchTable dispatchTable;
 
-        private final Collection<EventHandler<Object>> undeliveredEventHandlers;
+        /**
+         * Index of the first subscription to be used, inclusive.
+         */
+        private final int from;
 
-        private final Collection<ExceptionHandler> exceptionHandlers;
+        /**
+         * Index of the last subscription to be used, exclusive.
+         */
+        private final int to;
 
-        public QueueEntry(Event<Object> event, Map<EventHandler<Object>, EventFilter<Object>> eventHandlers,
-                          Collection<EventHandler<Object>> undeliveredEventHandlers,
-                          Collection<ExceptionHandler> exceptionHandlers) {
+        /**
+         * Maximum number of subscriptions processed without splitting the range.
+         */
+        private final int chunkSize;
 
+        /**
+         * Exception handlers to be used in case an unchecked exception is thrown.
+         */
+        private final Collection<ExceptionHandler> exceptionHandlers;
+
+        FanOutTask(Event<Object> event, DispatchTable dispatchTable, int from, int to, int chunkSize,
+                   Collection<ExceptionHandler> exceptionHandlers) {
             this.event = event;
-            this.eventHandlers = eventHandlers;
-            this.undeliveredEventHandlers = undeliveredEventHandlers;
+            this.dispatchTable = dispatchTable;
+            this.from = from;
+            this.to = to;
+            this.chunkSize = chunkSize;
             this.exceptionHandlers = exceptionHandlers;
         }
 
-        public Event<Object> getEvent() {
-            return event;
+        /**
+         * @see RecursiveTask#compute()
+         */
+        @Override
+        protected Boolean compute() {
+            boolean delivered;
+
+            if ((to - from) <= chunkSize) {
+                // Count the event on the worker too, so that the events published by its handlers are nested
+                ProcessingState state = processingState.get();
+                state.nestedDispatchCount++;
+                try {
+                    delivered = processEventThroughSubscriptions(event, dispatchTable, from, to, exceptionHandlers);
+                } finally {
+                    state.nestedDispatchCount--;
+                }
+            } else {
+                int middle = (from + to) >>> 1;
+                FanOutTask second = new FanOutTask(event, dispatchTable, middle, to, chunkSize, exceptionHandlers);
+                second.fork();
+                boolean firstDelivered = new FanOutTask(event, dispatchTable, from, middle, chunkSize,
+                        exceptionHandlers).compute();
+                // Always join so that the whole range has been processed before deciding
+                boolean secondDelivered = second.join();
+                delivered = firstDelivered || secondDelivered;
+            }
+
+            return delivered;
         }
+    }
+
+    /**
+     * Processing state of a thread.
+     * <p>
+     * The processing is made of steps, typically passing an event to a subscription, that are claimed one at a time.
+     * Once the state is abandoned, no step can be claimed anymore, so that the thread stops processing as soon as the
+     * step in progress, if any, returns.
+     */
+    static final class ProcessingState {
+
+        /**
+         * Number of events being processed by the thread, only accessed by the thread itself.
+         */
+        private int nestedDispatchCount = 0;
+
+        /**
+         * Events queued by the thread while processing other events, to be processed afterwards by the same thread.
+         */
+        private final QueuedEventRing queuedEvents = new QueuedEventRing();
 
-        public Map<EventHandler<Object>, EventFilter<Object>> getEventHandlers() {
-            return eventHandlers;
+        /**
+         * Number of nested steps in progress, or -1 if the state is abandoned.
+         */
+        private final AtomicInteger stepCount = new AtomicInteger();
+
+        /**
+         * Claims the next processing step, to be released after it, unless the state is abandoned.
+         *
+         * @return True if the step can be processed, false if the state is abandoned.
+         */
+        boolean claimStep() {
+            boolean claimed = false;
+
+            int count = stepCount.get();
+            while ((count >= 0) && !claimed) {
+                claimed = stepCount.compareAndSet(count, count + 1);
+                if (!claimed) {
+                    count = stepCount.get();
+                }
+            }
+
+            return claimed;
+        }
+
+        /**
+         * Releases the step claimed last, unless the state was abandoned in the meantime.
+         */
+        void releaseStep() {
+            int count = stepCount.get();
+            while ((count > 0) && !stepCount.compareAndSet(count, count - 1)) {
+                count = stepCount.get();
+            }
         }
 
-        public Collection<EventHandler<Object>> getUndeliveredEventHandlers() {
-            return undeliveredEventHandlers;
+        /**
+         * Abandons this state, so that no other step can be claimed.
+         */
+        void abandon() {
+            stepCount.set(-1);
         }
 
-        public Collection<ExceptionHandler> getExceptionHandlers() {
-            return exceptionHandlers;
+        /**
+         * Tells whether this state was abandoned.
+         *
+         * @return True if abandoned, false otherwise.
+         */
+        boolean isAbandoned() {
+            return stepCount.get() < 0;
+        }
+    }
+
+    /**
+     * Events accumulated for a batch event handler.
+     */
+    private static final class PendingBatch {
+
+        /**
+         * Time at which the first event was added, in nanoseconds.
+         */
+        private final long startNanos;
+
+        /**
+         * Events accumulated so far, in the order in which they were processed.
+         */
+        private final List<Event<Object>> events = new ArrayList<>();
+
+        /**
+         * Exception handlers of the last added event.
+         */
+        private Collection<ExceptionHandler> exceptionHandlers;
+
+        PendingBatch(long startNanos) {
+            this.startNanos = startNanos;
         }
     }
 }
@@ -25,19 +25,38 @@
 
 package com.github.leanframeworks.minibus.base.dispatcher;
 
+import com.github.leanframeworks.minibus.api.DispatchTable;
 import com.github.leanframeworks.minibus.api.Event;
-import com.github.leanframeworks.minibus.api.EventFilter;
 import com.github.leanframeworks.minibus.api.EventHandler;
 import com.github.leanframeworks.minibus.api.ExceptionHandler;
+import com.github.leanframeworks.minibus.api.TrackedEvent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
 
 /**
  * Abstract implementation of a dispatcher strategy dispatching event in a serial manner on a single UI thread (e.g.
  * EDT, FX application thread, etc.).
+ * <p>
+ * The events dispatched from other threads are accumulated in a buffer, and at most one task draining this buffer is
+ * scheduled on the UI thread at a time. This way, bursts of events do not flood the event queue of the UI toolkit with
+ * one task per event. Each drain task only processes the events that were accumulated when it started, so that the UI
+ * thread can still process other tasks in between under a continuous flow of events.
+ * <p>
+ * Optionally, the buffered events can be conflated (see {@link #setConflationKey(Function)}): a pending event is
+ * replaced by a newer event having the same conflation key, so that the event handlers only see the latest event per
+ * key in each drain.
+ * <p>
+ * The buffer can be bounded (see {@link #AbstractUIThreadDispatcher(NestedDispatchStrategy, int, OverflowPolicy)}),
+ * in which case the {@link OverflowPolicy} decides what happens to the events that do not fit. Since the events can
+ * only be processed on the UI thread, {@link OverflowPolicy#CALLER_RUNS} blocks the publishers like {@link
+ * OverflowPolicy#BLOCK}. The conflated events are not counted in this bound, as they are already bounded by the number
+ * of conflation keys.
  */
 public abstract class AbstractUIThreadDispatcher extends AbstractSerialDispatcher {
 
@@ -46,63 +65,407 @@ public abstract class AbstractUIThreadDispatcher extends AbstractSerialDispatche
      */
     private static final Logger LOGGER = LoggerFactory.getLogger(AbstractUIThreadDispatcher.class);
 
+    /**
+     * Conflation key function conflating the events per topic.
+     */
+    public static final Function<Event<Object>, Object> TOPIC_CONFLATION_KEY = Event::getTopic;
+
     private final NestedDispatchStrategy nestedDispatchStrategy;
 
+    /**
+     * Function giving the conflation key of the events, or null if the events are not conflated.
+     */
+    private volatile Function<Event<Object>, Object> conflationKey = null;
+
+    /**
+     * Conflated events waiting for the next drain task, per conflation key, in the order in which the keys appeared.
+     * <p>
+     * This map is replaced by a new one at the beginning of each drain and must only be accessed while holding the
+     * {@link #conflationLock}.
+     */
+    private Map<Object, PendingEvent> conflatedEvents = new LinkedHashMap<>();
+
+    /**
+     * Lock guarding the conflated events.
+     */
+    private final Object conflationLock = new Object();
+
+    /**
+     * Events waiting for the next drain task.
+     */
+    private final QueuedEventRing pendingEvents = new QueuedEventRing();
+
+    /**
+     * Lock on which the publishers wait for room in the pending events, notified at the end of each drain.
+     */
+    private final Object pendingEventsLock = new Object();
+
+    /**
+     * True if a drain task is scheduled on the UI thread but has not started yet.
+     */
+    private final AtomicBoolean drainScheduled = new AtomicBoolean(false);
+
+    /**
+     * Task processing the pending events on the UI thread, created once for all.
+     */
+    private final Runnable drainTask = this::drainPendingEvents;
+
+    /**
+     * Processor of the pending events, created once for all.
+     */
+    private final QueuedEventRing.Processor pendingEventProcessor = this::dispatchOnUIThread;
+
     /**
      * Constructor.
      *
      * @param nestedDispatchStrategy Strategy to dispatch events while an event is already being dispatched.
      */
     public AbstractUIThreadDispatcher(NestedDispatchStrategy nestedDispatchStrategy) {
+        this(nestedDispatchStrategy, Integer.MAX_VALUE, OverflowPolicy.BLOCK);
+    }
+
+    /**
+     * Constructor.
+     * <p>
+     * The specified bound applies to the events waiting for the UI thread as well as to the events queued while
+     * dispatching.
+     *
+     * @param nestedDispatchStrategy Strategy to dispatch events while an event is already being dispatched.
+     * @param queueCapacity          Maximum number of events waiting to be processed, or {@link Integer#MAX_VALUE}
+     *                               for an unbounded queue.
+     * @param overflowPolicy         Policy to be applied when the queue is full.
+     * @see #setQueueBound(int, OverflowPolicy)
+     */
+    public AbstractUIThreadDispatcher(NestedDispatchStrategy nestedDispatchStrategy, int queueCapacity,
+                                      OverflowPolicy overflowPolicy) {
         this.nestedDispatchStrategy = nestedDispatchStrategy;
+        setQueueBound(queueCapacity, overflowPolicy);
     }
 
     public NestedDispatchStrategy getNestedDispatchStrategy() {
         return nestedDispatchStrategy;
     }
 
+    /**
+     * Enables or disables the conflation of the events dispatched from other threads.
+     * <p>
+     * When enabled, an event replaces the pending event having the same conflation key, if any, keeping its place in
+     * the buffer. The events for which the function returns null are never conflated. Note that the conflated events
+     * are processed after the other buffered events of the same drain.
+     * <p>
+     * The events dispatched from the UI thread itself are processed right away and therefore never conflated. Also
+     * note that the conflated events are not subject to the queue bound, since there is at most one of them per key.
+     *
+     * @param conflationKey Function giving the conflation key of an event (for instance {@link
+     *                      #TOPIC_CONFLATION_KEY}), or null to disable conflation.
+     */
+    public void setConflationKey(Function<Event<Object>, Object> conflationKey) {
+        this.conflationKey = conflationKey;
+    }
+
+    /**
+     * Gets the function giving the conflation key of the events.
+     *
+     * @return Conflation key function, or null if the events are not conflated.
+     * @see #setConflationKey(Function)
+     */
+    public Function<Event<Object>, Object> getConflationKey() {
+        return conflationKey;
+    }
+
+    /**
+     * @see AbstractSerialDispatcher#getQueuedEventCount()
+     */
+    @Override
+    public int getQueuedEventCount() {
+        return pendingEvents.size() + super.getQueuedEventCount();
+    }
+
     @Override
-    public void dispatch(Event<Object> event, Map<EventHandler<Object>, EventFilter<Object>> eventHandlers,
+    public void dispatch(Event<Object> event, DispatchTable dispatchTable,
                          Collection<EventHandler<Object>> undeliveredEventHandlers,
                          Collection<ExceptionHandler> exceptionHandlers) {
         if (isUIThread()) {
             // Already on the right thread
-            if (getNestedDispatchCount() > 0) {
-                // Already dispatching, so process event depending on defined strategy
-                NestedDispatchStrategy nestedDispatchStrategy = getNestedDispatchStrategy();
-                switch (nestedDispatchStrategy) {
-                    case PROCESS_IMMEDIATELY:
-                        processEvent(event, eventHandlers, undeliveredEventHandlers, exceptionHandlers);
-                        processQueue();
-                        break;
-                    case QUEUE:
-                        queueEvent(event, eventHandlers, undeliveredEventHandlers, exceptionHandlers);
-                        break;
-                    case RESCHEDULE:
-                        runLaterOnUIThread(() -> {
-                            processEvent(event, eventHandlers, undeliveredEventHandlers, exceptionHandlers);
-                            processQueue();
-                        });
-                        break;
-                    default:
-                        LOGGER.error("Unsupported nested dispatch strategy: {}", nestedDispatchStrategy);
-                }
-            } else {
-                // Not dispatching, so process event now
-                processEvent(event, eventHandlers, undeliveredEventHandlers, exceptionHandlers);
-                processQueue();
-            }
+            dispatchOnUIThread(event, dispatchTable, undeliveredEventHandlers, exceptionHandlers);
         } else {
             // Not on the right thread, so process event later
-            runLaterOnUIThread(() -> dispatch(event, eventHandlers, undeliveredEventHandlers,
-                    exceptionHandlers));
+            runLaterOnUIThread(event, dispatchTable, undeliveredEventHandlers, exceptionHandlers);
+        }
+    }
+
+    /**
+     * Dispatches the specified event while on the UI thread.
+     *
+     * @param event                    Event to be dispatched.
+     * @param dispatchTable            Subscriptions to be used to process the event.
+     * @param undeliveredEventHandlers Event handlers to be used if the event is not delivered.
+     * @param exceptionHandlers        Exception handlers to be used in case an unchecked exception is thrown.
+     */
+    private void dispatchOnUIThread(Event<Object> event, DispatchTable dispatchTable,
+                                    Collection<EventHandler<Object>> undeliveredEventHandlers,
+                                    Collection<ExceptionHandler> exceptionHandlers) {
+        if (getNestedDispatchCount() > 0) {
+            // Already dispatching, so process event depending on defined strategy
+            NestedDispatchStrategy nestedDispatchStrategy = getNestedDispatchStrategy();
+            switch (nestedDispatchStrategy) {
+                case PROCESS_IMMEDIATELY:
+                    processEvent(event, dispatchTable, undeliveredEventHandlers, exceptionHandlers);
+                    processQueue();
+                    break;
+                case QUEUE:
+                    queueEvent(event, dispatchTable, undeliveredEventHandlers, exceptionHandlers);
+                    break;
+                case RESCHEDULE:
+                    runLaterOnUIThread(event, dispatchTable, undeliveredEventHandlers, exceptionHandlers);
+                    break;
+                default:
+                    LOGGER.error("Unsupported nested dispatch strategy: {}", nestedDispatchStrategy);
+            }
+        } else {
+            // Not dispatching, so process event now
+            processEvent(event, dispatchTable, undeliveredEventHandlers, exceptionHandlers);
+            processQueue();
+        }
+    }
+
+    /**
+     * Adds the specified event to the pending events and schedules a drain task if none is scheduled yet.
+     *
+     * @param event                    Event to be processed later.
+     * @param dispatchTable            Subscriptions to be used to process the event.
+     * @param undeliveredEventHandlers Event handlers to be used if the event is not delivered.
+     * @param exceptionHandlers        Exception handlers to be used in case an unchecked exception is thrown.
+     */
+    private void runLaterOnUIThread(Event<Object> event, DispatchTable dispatchTable,
+                                    Collection<EventHandler<Object>> undeliveredEventHandlers,
+                                    Collection<ExceptionHandler> exceptionHandlers) {
+        Function<Event<Object>, Object> keyFunction = conflationKey;
+        Object key = (keyFunction == null) ? null : keyFunction.apply(event);
+        if (key == null) {
+            offerPendingEvent(event, dispatchTable, undeliveredEventHandlers, exceptionHandlers);
+        } else {
+            Event<Object> replacedEvent = null;
+            synchronized (conflationLock) {
+                PendingEvent pendingEvent = conflatedEvents.get(key);
+                if (pendingEvent == null) {
+                    conflatedEvents.put(key, new PendingEvent(event, dispatchTable, undeliveredEventHandlers,
+                            exceptionHandlers));
+                } else {
+                    // Replace in place to keep the order in which the keys appeared
+                    replacedEvent = pendingEvent.event;
+                    pendingEvent.replace(event, dispatchTable, undeliveredEventHandlers, exceptionHandlers);
+                }
+            }
+            if (replacedEvent instanceof TrackedEvent) {
+                // Complete the tracking outside of the lock
+                ((TrackedEvent<?>) replacedEvent).discard();
+            }
+        }
+        if (drainScheduled.compareAndSet(false, true)) {
+            runLaterOnUIThread(drainTask);
+        }
+    }
+
+    /**
+     * Adds the specified event to the pending events, applying the overflow policy if they are too many.
+     *
+     * @param event                    Event to be processed later.
+     * @param dispatchTable            Subscriptions to be used to process the event.
+     * @param undeliveredEventHandlers Event handlers to be used if the event is not delivered.
+     * @param exceptionHandlers        Exception handlers to be used in case an unchecked exception is thrown.
+     * @see #setQueueBound(int, OverflowPolicy)
+     */
+    private void offerPendingEvent(Event<Object> event, DispatchTable dispatchTable,
+                                   Collection<EventHandler<Object>> undeliveredEventHandlers,
+                                   Collection<ExceptionHandler> exceptionHandlers) {
+        int capacity = getQueueCapacity();
+        int depth = pendingEvents.offer(event, dispatchTable, undeliveredEventHandlers, exceptionHandlers, capacity);
+        if (depth < 0) {
+            OverflowPolicy policy = getOverflowPolicy();
+            switch (policy) {
+                case BLOCK:
+                case CALLER_RUNS:
+                    if (isUIThread()) {
+                        // Waiting for the pending events to be drained by this very thread would never end
+                        processEvent(event, dispatchTable, undeliveredEventHandlers, exceptionHandlers);
+                    } else {
+                        // The event handlers must be called on the UI thread, so the caller cannot run the event
+                        depth = putPendingEvent(event, dispatchTable, undeliveredEventHandlers, exceptionHandlers,
+                                capacity);
+                    }
+                    break;
+                case DROP_NEWEST:
+                    recordDroppedEvent(event);
+                    break;
+                case DROP_OLDEST:
+                    Event<Object> oldestEvent = pendingEvents.removeOldest();
+                    if (oldestEvent != null) {
+                        recordDroppedEvent(oldestEvent);
+                    }
+                    depth = pendingEvents.offer(event, dispatchTable, undeliveredEventHandlers, exceptionHandlers,
+                            capacity);
+                    if (depth < 0) {
+                        recordDroppedEvent(event);
+                    }
+                    break;
+                case REJECT:
+                    throw recordRejectedEvent(event);
+                default:
+                    LOGGER.error("Unsupported overflow policy: {}", policy);
+            }
+        }
+        if (depth > 0) {
+            recordQueueDepth(depth);
+        }
+    }
+
+    /**
+     * Adds the specified event to the pending events, waiting for a drain to make room if they are too many.
+     *
+     * @param event                    Event to be processed later.
+     * @param dispatchTable            Subscriptions to be used to process the event.
+     * @param undeliveredEventHandlers Event handlers to be used if the event is not delivered.
+     * @param exceptionHandlers        Exception handlers to be used in case an unchecked exception is thrown.
+     * @param capacity                 Maximum number of pending events.
+     * @return Number of pending events after adding the event, or -1 if the publisher was interrupted.
+     */
+    private int putPendingEvent(Event<Object> event, DispatchTable dispatchTable,
+                                Collection<EventHandler<Object>> undeliveredEventHandlers,
+                                Collection<ExceptionHandler> exceptionHandlers, int capacity) {
+        int depth = -1;
+
+        try {
+            synchronized (pendingEventsLock) {
+                // Try again while holding the lock, so that the end of a drain cannot be missed
+                depth = pendingEvents.offer(event, dispatchTable, undeliveredEventHandlers, exceptionHandlers,
+                        capacity);
+                while (depth < 0) {
+                    // Make sure a drain is coming before waiting for it
+                    if (drainScheduled.compareAndSet(false, true)) {
+                        runLaterOnUIThread(drainTask);
+                    }
+                    pendingEventsLock.wait();
+                    depth = pendingEvents.offer(event, dispatchTable, undeliveredEventHandlers, exceptionHandlers,
+                            capacity);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            recordDroppedEvent(event);
+        }
+
+        return depth;
+    }
+
+    /**
+     * Processes, on the UI thread, the events that are pending when the drain starts.
+     * <p>
+     * The events added afterwards schedule another drain task.
+     */
+    private void drainPendingEvents() {
+        // Reset the flag first so that no event added from now on can be missed
+        drainScheduled.set(false);
+        int count = pendingEvents.size();
+        Map<Object, PendingEvent> drainedConflatedEvents;
+        synchronized (conflationLock) {
+            drainedConflatedEvents = conflatedEvents;
+            if (!drainedConflatedEvents.isEmpty()) {
+                conflatedEvents = new LinkedHashMap<>();
+            }
+        }
+        try {
+            for (int i = 0; i < count; i++) {
+                pendingEvents.processNext(pendingEventProcessor);
+            }
+            for (PendingEvent pendingEvent : drainedConflatedEvents.values()) {
+                dispatchOnUIThread(pendingEvent.event, pendingEvent.dispatchTable,
+                        pendingEvent.undeliveredEventHandlers, pendingEvent.exceptionHandlers);
+            }
+        } finally {
+            // Wake up the publishers waiting for room
+            synchronized (pendingEventsLock) {
+                pendingEventsLock.notifyAll();
+            }
+            // Make sure the remaining events are not stranded if an exception interrupted the drain
+            if (hasPendingEvents() && drainScheduled.compareAndSet(false, true)) {
+                runLaterOnUIThread(drainTask);
+            }
+        }
+    }
+
+    /**
+     * Tells whether events are waiting for a drain task.
+     *
+     * @return True if there are pending events, false otherwise.
+     */
+    private boolean hasPendingEvents() {
+        boolean result = pendingEvents.size() > 0;
+
+        if (!result) {
+            synchronized (conflationLock) {
+                result = !conflatedEvents.isEmpty();
+            }
         }
+
+        return result;
     }
 
     protected abstract boolean isUIThread();
 
     protected abstract void runLaterOnUIThread(Runnable runnable);
 
+    /**
+     * Conflated event waiting for the next drain task.
+     * <p>
+     * It is only accessed while holding the conflation lock, until it is drained.
+     */
+    private static final class PendingEvent {
+
+        /**
+         * Latest event for the conflation key.
+         */
+        private Event<Object> event;
+
+        /**
+         * Subscriptions to be used to process the event.
+         */
+        private DispatchTable dispatchTable;
+
+        /**
+         * Event handlers to be used if the event is not delivered.
+         */
+        private Collection<EventHandler<Object>> undeliveredEventHandlers;
+
+        /**
+         * Exception handlers to be used in case an unchecked exception is thrown.
+         */
+        private Collection<ExceptionHandler> exceptionHandlers;
+
+        PendingEvent(Event<Object> event, DispatchTable dispatchTable,
+                     Collection<EventHandler<Object>> undeliveredEventHandlers,
+                     Collection<ExceptionHandler> exceptionHandlers) {
+            replace(event, dispatchTable, undeliveredEventHandlers, exceptionHandlers);
+        }
+
+        /**
+         * Replaces the pending event by the specified newer one.
+         *
+         * @param event                    Newer event.
+         * @param dispatchTable            Subscriptions to be used to process the newer event.
+         * @param undeliveredEventHandlers Event handlers to be used if the newer event is not delivered.
+         * @param exceptionHandlers        Exception handlers to be used in case an unchecked exception is thrown.
+         */
+        void replace(Event<Object> event, DispatchTable dispatchTable,
+                     Collection<EventHandler<Object>> undeliveredEventHandlers,
+                     Collection<ExceptionHandler> exceptionHandlers) {
+            this.event = event;
+            this.dispatchTable = dispatchTable;
+            this.undeliveredEventHandlers = undeliveredEventHandlers;
+            this.exceptionHandlers = exceptionHandlers;
+        }
+    }
+
     public enum NestedDispatchStrategy {
         PROCESS_IMMEDIATELY,
         QUEUE,
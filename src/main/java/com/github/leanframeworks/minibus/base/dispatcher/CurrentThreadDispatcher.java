@@ -25,19 +25,19 @@
 
 package com.github.leanframeworks.minibus.base.dispatcher;
 
+import com.github.leanframeworks.minibus.api.DispatchTable;
 import com.github.leanframeworks.minibus.api.Event;
-import com.github.leanframeworks.minibus.api.EventFilter;
 import com.github.leanframeworks.minibus.api.EventHandler;
 import com.github.leanframeworks.minibus.api.ExceptionHandler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.Collection;
-import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Dispatcher strategy dispatching events on the current thread (whatever it may be when the {@link #dispatch(Event,
- * Map, Collection, Collection)} method is called).
+ * DispatchTable, Collection, Collection)} method is called).
  */
 public class CurrentThreadDispatcher extends AbstractSerialDispatcher {
 
@@ -56,8 +56,16 @@ public class CurrentThreadDispatcher extends AbstractSerialDispatcher {
         return nestedDispatchStrategy;
     }
 
+    /**
+     * @see AbstractSerialDispatcher#setParallelFanOut(ForkJoinPool, int)
+     */
+    @Override
+    public void setParallelFanOut(ForkJoinPool pool, int threshold) {
+        super.setParallelFanOut(pool, threshold);
+    }
+
     @Override
-    public void dispatch(Event<Object> event, Map<EventHandler<Object>, EventFilter<Object>> eventHandlers,
+    public void dispatch(Event<Object> event, DispatchTable dispatchTable,
                          Collection<EventHandler<Object>> undeliveredEventHandlers,
                          Collection<ExceptionHandler> exceptionHandlers) {
         if (getNestedDispatchCount() > 0) {
@@ -65,18 +73,18 @@ public class CurrentThreadDispatcher extends AbstractSerialDispatcher {
             NestedDispatchStrategy nestedDispatchStrategy = getNestedDispatchStrategy();
             switch (nestedDispatchStrategy) {
                 case PROCESS_IMMEDIATELY:
-                    processEvent(event, eventHandlers, undeliveredEventHandlers, exceptionHandlers);
+                    processEvent(event, dispatchTable, undeliveredEventHandlers, exceptionHandlers);
                     processQueue();
                     break;
                 case QUEUE:
-                    queueEvent(event, eventHandlers, undeliveredEventHandlers, exceptionHandlers);
+                    queueEvent(event, dispatchTable, undeliveredEventHandlers, exceptionHandlers);
                     break;
                 default:
                     LOGGER.error("Unsupported nested dispatch strategy: {}", nestedDispatchStrategy);
             }
         } else {
             // Not dispatching, so process event now
-            processEvent(event, eventHandlers, undeliveredEventHandlers, exceptionHandlers);
+            processEvent(event, dispatchTable, undeliveredEventHandlers, exceptionHandlers);
             processQueue();
         }
     }
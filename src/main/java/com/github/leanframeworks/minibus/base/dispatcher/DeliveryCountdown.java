@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2017, LeanFrameworks
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.github.leanframeworks.minibus.base.dispatcher;
+
+import com.github.leanframeworks.minibus.api.Event;
+import com.github.leanframeworks.minibus.api.EventHandler;
+import com.github.leanframeworks.minibus.api.ExceptionHandler;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Delivery state of an event whose processing is split into several parts, possibly running on different threads.
+ * <p>
+ * The event is considered undelivered if none of the parts delivered it to an event handler. The last part to
+ * complete is then responsible for passing the event to the undelivered event handlers.
+ */
+final class DeliveryCountdown {
+
+    private final Event<Object> event;
+
+    private final Collection<EventHandler<Object>> undeliveredEventHandlers;
+
+    private final Collection<ExceptionHandler> exceptionHandlers;
+
+    /**
+     * Number of parts that still need to be completed.
+     */
+    private final AtomicInteger remainingPartCount;
+
+    /**
+     * True if at least one event handler processed the event.
+     */
+    private volatile boolean delivered = false;
+
+    /**
+     * Constructor.
+     *
+     * @param event                    Event being dispatched.
+     * @param undeliveredEventHandlers Event handlers to be used to process the event if it is not delivered.
+     * @param exceptionHandlers        Exception handlers to be used in case an unchecked exception is thrown.
+     * @param partCount                Number of parts in which the processing of the event is split.
+     */
+    DeliveryCountdown(Event<Object> event, Collection<EventHandler<Object>> undeliveredEventHandlers,
+                      Collection<ExceptionHandler> exceptionHandlers, int partCount) {
+        this.event = event;
+        this.undeliveredEventHandlers = undeliveredEventHandlers;
+        this.exceptionHandlers = exceptionHandlers;
+        this.remainingPartCount = new AtomicInteger(partCount);
+    }
+
+    Event<Object> getEvent() {
+        return event;
+    }
+
+    Collection<EventHandler<Object>> getUndeliveredEventHandlers() {
+        return undeliveredEventHandlers;
+    }
+
+    Collection<ExceptionHandler> getExceptionHandlers() {
+        return exceptionHandlers;
+    }
+
+    /**
+     * Records that a part of the processing of the event completed.
+     *
+     * @param deliveredByPart True if the event was processed by at least one event handler in this part.
+     * @return True if this was the last part and the event was not delivered at all, false otherwise.
+     */
+    boolean complete(boolean deliveredByPart) {
+        if (deliveredByPart) {
+            delivered = true;
+        }
+        return (remainingPartCount.decrementAndGet() == 0) && !delivered;
+    }
+}
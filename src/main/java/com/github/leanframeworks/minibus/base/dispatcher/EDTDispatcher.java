@@ -41,6 +41,14 @@ public class EDTDispatcher extends AbstractUIThreadDispatcher {
         super(nestedDispatchStrategy);
     }
 
+    /**
+     * @see AbstractUIThreadDispatcher#AbstractUIThreadDispatcher(NestedDispatchStrategy, int, OverflowPolicy)
+     */
+    public EDTDispatcher(NestedDispatchStrategy nestedDispatchStrategy, int queueCapacity,
+                         OverflowPolicy overflowPolicy) {
+        super(nestedDispatchStrategy, queueCapacity, overflowPolicy);
+    }
+
     /**
      * @see AbstractUIThreadDispatcher#dispose()
      */
@@ -43,6 +43,14 @@ public class FxApplicationThreadDispatcher extends AbstractUIThreadDispatcher {
         super(nestedDispatchStrategy);
     }
 
+    /**
+     * @see AbstractUIThreadDispatcher#AbstractUIThreadDispatcher(NestedDispatchStrategy, int, OverflowPolicy)
+     */
+    public FxApplicationThreadDispatcher(NestedDispatchStrategy nestedDispatchStrategy, int queueCapacity,
+                                         OverflowPolicy overflowPolicy) {
+        super(nestedDispatchStrategy, queueCapacity, overflowPolicy);
+    }
+
     /**
      * @see AbstractUIThreadDispatcher#dispose()
      */
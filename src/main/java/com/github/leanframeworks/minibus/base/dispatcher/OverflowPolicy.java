@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2017, LeanFrameworks
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.github.leanframeworks.minibus.base.dispatcher;
+
+/**
+ * Policy applied by a dispatcher when an event is to be queued but the queue is full.
+ */
+public enum OverflowPolicy {
+
+    /**
+     * Blocks the publisher until there is room in the queue.
+     * <p>
+     * When the publisher is the thread draining the queue, it cannot wait for itself, so the event is processed
+     * immediately instead.
+     */
+    BLOCK,
+
+    /**
+     * Discards the event being queued.
+     */
+    DROP_NEWEST,
+
+    /**
+     * Discards the oldest queued event to make room for the event being queued.
+     */
+    DROP_OLDEST,
+
+    /**
+     * Processes the event on the publishing thread instead of queuing it.
+     * <p>
+     * Note that the event may then be processed before the events that are still queued.
+     */
+    CALLER_RUNS,
+
+    /**
+     * Rejects the event by throwing a {@link java.util.concurrent.RejectedExecutionException} to the publisher.
+     */
+    REJECT
+}
@@ -0,0 +1,259 @@
+/*
+ * Copyright (c) 2017, LeanFrameworks
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.github.leanframeworks.minibus.base.dispatcher;
+
+import com.github.leanframeworks.minibus.api.DispatchTable;
+import com.github.leanframeworks.minibus.api.Event;
+import com.github.leanframeworks.minibus.api.EventHandler;
+import com.github.leanframeworks.minibus.api.ExceptionHandler;
+
+import java.util.Collection;
+
+/**
+ * Growable FIFO ring of events waiting to be processed, along with their subscriptions and handlers.
+ * <p>
+ * The entries are stored in parallel arrays rather than in entry objects, and the arrays are reused, so that queuing
+ * and processing an event does not allocate anything once the ring has grown to the needed size.
+ * <p>
+ * The ring is thread-safe, but the lock is only held to add or remove an entry, never while processing it.
+ */
+final class QueuedEventRing {
+
+    /**
+     * Initial number of slots, which must be a power of two.
+     */
+    private static final int INITIAL_LENGTH = 16;
+
+    /**
+     * Processor of the entries removed from the ring.
+     */
+    @FunctionalInterface
+    interface Processor {
+
+        /**
+         * Processes the specified queued entry.
+         *
+         * @param event                    Queued event.
+         * @param dispatchTable            Subscriptions to be used to process the event.
+         * @param undeliveredEventHandlers Event handlers to be used if the event is not delivered.
+         * @param exceptionHandlers        Exception handlers to be used in case an unchecked exception is thrown.
+         */
+        void process(Event<Object> event, DispatchTable dispatchTable,
+                     Collection<EventHandler<Object>> undeliveredEventHandlers,
+                     Collection<ExceptionHandler> exceptionHandlers);
+    }
+
+    /**
+     * Queued events, indexed by slot.
+     */
+    private Event<Object>[] events;
+
+    /**
+     * Subscriptions to be used to process the queued events, indexed by slot.
+     */
+    private DispatchTable[] dispatchTables;
+
+    /**
+     * Event handlers to be used if the queued events are not delivered, indexed by slot.
+     */
+    private Collection<EventHandler<Object>>[] undeliveredEventHandlers;
+
+    /**
+     * Exception handlers to be used for the queued events, indexed by slot.
+     */
+    private Collection<ExceptionHandler>[] exceptionHandlers;
+
+    /**
+     * Index of the oldest entry.
+     */
+    private int head = 0;
+
+    /**
+     * Number of entries, volatile so that it can be read without the lock.
+     */
+    private volatile int size = 0;
+
+    /**
+     * Constructor.
+     */
+    QueuedEventRing() {
+        allocate(INITIAL_LENGTH);
+    }
+
+    /**
+     * Allocates the arrays for the specified number of slots.
+     *
+     * @param length Number of slots, which must be a power of two.
+     */
+    private void allocate(int length) {
+        // Safe casts, the arrays are never exposed
+        @SuppressWarnings("unchecked")
+        Event<Object>[] newEvents = (Event<Object>[]) new Event<?>[length];
+        @SuppressWarnings("unchecked")
+        Collection<EventHandler<Object>>[] newUndeliveredEventHandlers = (Collection<EventHandler<Object>>[]) new
+                Collection<?>[length];
+        @SuppressWarnings("unchecked")
+        Collection<ExceptionHandler>[] newExceptionHandlers = (Collection<ExceptionHandler>[]) new
+                Collection<?>[length];
+
+        events = newEvents;
+        dispatchTables = new DispatchTable[length];
+        undeliveredEventHandlers = newUndeliveredEventHandlers;
+        exceptionHandlers = newExceptionHandlers;
+    }
+
+    /**
+     * Gets the number of entries in the ring.
+     *
+     * @return Number of entries.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Adds the specified entry at the end of the ring, unless the ring already holds the specified maximum number of
+     * entries.
+     *
+     * @param event                    Event to be queued.
+     * @param dispatchTable            Subscriptions to be used to process the event.
+     * @param undeliveredEventHandlers Event handlers to be used if the event is not delivered.
+     * @param exceptionHandlers        Exception handlers to be used in case an unchecked exception is thrown.
+     * @param capacity                 Maximum number of entries.
+     * @return Number of entries after adding the entry, or -1 if the ring is full.
+     */
+    synchronized int offer(Event<Object> event, DispatchTable dispatchTable,
+                           Collection<EventHandler<Object>> undeliveredEventHandlers,
+                           Collection<ExceptionHandler> exceptionHandlers, int capacity) {
+        int result = -1;
+
+        int currentSize = size;
+        if (currentSize < capacity) {
+            if (currentSize == events.length) {
+                grow();
+            }
+            int index = (head + currentSize) & (events.length - 1);
+            events[index] = event;
+            dispatchTables[index] = dispatchTable;
+            this.undeliveredEventHandlers[index] = undeliveredEventHandlers;
+            this.exceptionHandlers[index] = exceptionHandlers;
+            result = currentSize + 1;
+            size = result;
+        }
+
+        return result;
+    }
+
+    /**
+     * Removes the oldest entry from the ring and passes it to the specified processor, outside of the lock.
+     *
+     * @param processor Processor of the removed entry.
+     * @return True if an entry was processed, false if the ring is empty.
+     */
+    boolean processNext(Processor processor) {
+        boolean result = false;
+
+        Event<Object> event = null;
+        DispatchTable dispatchTable = null;
+        Collection<EventHandler<Object>> entryUndeliveredEventHandlers = null;
+        Collection<ExceptionHandler> entryExceptionHandlers = null;
+        synchronized (this) {
+            if (size > 0) {
+                event = events[head];
+                dispatchTable = dispatchTables[head];
+                entryUndeliveredEventHandlers = undeliveredEventHandlers[head];
+                entryExceptionHandlers = exceptionHandlers[head];
+                removeHead();
+                result = true;
+            }
+        }
+
+        if (result) {
+            processor.process(event, dispatchTable, entryUndeliveredEventHandlers, entryExceptionHandlers);
+        }
+
+        return result;
+    }
+
+    /**
+     * Removes the oldest entry from the ring without processing it.
+     *
+     * @return Event of the removed entry, or null if the ring is empty.
+     */
+    synchronized Event<Object> removeOldest() {
+        Event<Object> result = null;
+
+        if (size > 0) {
+            result = events[head];
+            removeHead();
+        }
+
+        return result;
+    }
+
+    /**
+     * Clears the slot of the oldest entry, so that it can be garbage collected, and moves the head forward.
+     */
+    private void removeHead() {
+        events[head] = null;
+        dispatchTables[head] = null;
+        undeliveredEventHandlers[head] = null;
+        exceptionHandlers[head] = null;
+        head = (head + 1) & (events.length - 1);
+        size = size - 1;
+    }
+
+    /**
+     * Doubles the number of slots, moving the entries to the beginning of the new arrays.
+     */
+    private void grow() {
+        Event<Object>[] oldEvents = events;
+        DispatchTable[] oldDispatchTables = dispatchTables;
+        Collection<EventHandler<Object>>[] oldUndeliveredEventHandlers = undeliveredEventHandlers;
+        Collection<ExceptionHandler>[] oldExceptionHandlers = exceptionHandlers;
+
+        int oldLength = oldEvents.length;
+        allocate(oldLength << 1);
+        int firstPartLength = oldLength - head;
+        copy(oldEvents, events, firstPartLength);
+        copy(oldDispatchTables, dispatchTables, firstPartLength);
+        copy(oldUndeliveredEventHandlers, undeliveredEventHandlers, firstPartLength);
+        copy(oldExceptionHandlers, exceptionHandlers, firstPartLength);
+        head = 0;
+    }
+
+    /**
+     * Copies the entries of the specified full ring to the beginning of the specified array, in FIFO order.
+     *
+     * @param source          Full ring.
+     * @param target          Larger array.
+     * @param firstPartLength Number of entries from the head to the end of the source array.
+     */
+    private void copy(Object[] source, Object[] target, int firstPartLength) {
+        System.arraycopy(source, head, target, 0, firstPartLength);
+        System.arraycopy(source, 0, target, firstPartLength, head);
+    }
+}
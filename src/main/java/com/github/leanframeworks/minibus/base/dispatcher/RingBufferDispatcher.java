@@ -0,0 +1,356 @@
+/*
+ * Copyright (c) 2017, LeanFrameworks
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.github.leanframeworks.minibus.base.dispatcher;
+
+import com.github.leanframeworks.minibus.api.DispatchTable;
+import com.github.leanframeworks.minibus.api.Event;
+import com.github.leanframeworks.minibus.api.EventHandler;
+import com.github.leanframeworks.minibus.api.ExceptionHandler;
+import com.github.leanframeworks.minibus.api.TrackedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Dispatcher strategy dispatching events on a single, dedicated thread through a ring buffer of preallocated slots.
+ * <p>
+ * Publishers claim a slot by incrementing a sequence, fill it and publish it by writing the sequence of the slot. The
+ * dispatching thread consumes the slots in sequence order and makes them available again once the event has been
+ * processed. This way, events cross threads without locks and without allocating anything.
+ * <p>
+ * When the ring buffer is full, publishers wait until the dispatching thread frees a slot. When it is empty, the
+ * dispatching thread spins for a short while before parking until the next event is published.
+ * <p>
+ * The dispatching thread is a daemon thread, started when the first event is dispatched. Once the dispatcher is
+ * disposed, the events not processed yet are discarded if they are {@link TrackedEvent}s, including the events of the
+ * publishers waiting for a free slot and the events dispatched afterwards.
+ */
+public class RingBufferDispatcher extends AbstractSerialDispatcher {
+
+    /**
+     * Logger for this class.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(RingBufferDispatcher.class);
+
+    /**
+     * Default number of slots of the ring buffer.
+     */
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    /**
+     * Number of times the dispatching thread checks for a new event before parking.
+     */
+    private static final int SPIN_COUNT = 1000;
+
+    /**
+     * Preallocated slots of the ring buffer.
+     */
+    private final Slot[] slots;
+
+    /**
+     * Mask to be applied to a sequence to get the index of its slot.
+     */
+    private final int indexMask;
+
+    /**
+     * Last sequence claimed by a publisher.
+     */
+    private final AtomicLong claimedSequence = new AtomicLong(-1);
+
+    /**
+     * Last sequence processed by the dispatching thread.
+     */
+    private final AtomicLong consumedSequence = new AtomicLong(-1);
+
+    /**
+     * True if the dispatching thread is parked or about to be, waiting for a new event.
+     */
+    private volatile boolean consumerParked = false;
+
+    /**
+     * False once this dispatcher has been disposed.
+     */
+    private volatile boolean running = true;
+
+    private final NestedDispatchStrategy nestedDispatchStrategy;
+
+    /**
+     * Dedicated thread processing the events.
+     */
+    private final Thread dispatchThread;
+
+    /**
+     * True once the dispatching thread has been started.
+     */
+    private final AtomicBoolean dispatchThreadStarted = new AtomicBoolean(false);
+
+    /**
+     * Constructor.
+     * <p>
+     * The ring buffer will have {@link #DEFAULT_CAPACITY} slots.
+     *
+     * @param nestedDispatchStrategy Strategy to dispatch events while an event is already being dispatched.
+     */
+    public RingBufferDispatcher(NestedDispatchStrategy nestedDispatchStrategy) {
+        this(DEFAULT_CAPACITY, nestedDispatchStrategy);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param capacity               Number of slots of the ring buffer, rounded up to the next power of two.
+     * @param nestedDispatchStrategy Strategy to dispatch events while an event is already being dispatched.
+     */
+    public RingBufferDispatcher(int capacity, NestedDispatchStrategy nestedDispatchStrategy) {
+        this.nestedDispatchStrategy = nestedDispatchStrategy;
+
+        int roundedCapacity = 1;
+        while (roundedCapacity < capacity) {
+            roundedCapacity <<= 1;
+        }
+        slots = new Slot[roundedCapacity];
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = new Slot();
+        }
+        indexMask = roundedCapacity - 1;
+
+        // Only started with the first event, so that this dispatcher is fully constructed when the thread runs
+        dispatchThread = new Thread(this::consume, getClass().getSimpleName());
+        dispatchThread.setDaemon(true);
+    }
+
+    public NestedDispatchStrategy getNestedDispatchStrategy() {
+        return nestedDispatchStrategy;
+    }
+
+    /**
+     * Gets the number of slots of the ring buffer.
+     *
+     * @return Capacity.
+     */
+    public int getCapacity() {
+        return slots.length;
+    }
+
+    @Override
+    public void dispatch(Event<Object> event, DispatchTable dispatchTable,
+                         Collection<EventHandler<Object>> undeliveredEventHandlers,
+                         Collection<ExceptionHandler> exceptionHandlers) {
+        if (Thread.currentThread() == dispatchThread) {
+            // Already dispatching, so process event depending on defined strategy
+            NestedDispatchStrategy nestedDispatchStrategy = getNestedDispatchStrategy();
+            switch (nestedDispatchStrategy) {
+                case PROCESS_IMMEDIATELY:
+                    processEvent(event, dispatchTable, undeliveredEventHandlers, exceptionHandlers);
+                    processQueue();
+                    break;
+                case QUEUE:
+                    queueEvent(event, dispatchTable, undeliveredEventHandlers, exceptionHandlers);
+                    break;
+                default:
+                    LOGGER.error("Unsupported nested dispatch strategy: {}", nestedDispatchStrategy);
+            }
+        } else if (running) {
+            if (!dispatchThreadStarted.get() && dispatchThreadStarted.compareAndSet(false, true)) {
+                dispatchThread.start();
+            }
+            publish(event, dispatchTable, undeliveredEventHandlers, exceptionHandlers);
+        } else {
+            discardEvent(event);
+        }
+    }
+
+    /**
+     * Claims, fills and publishes the next slot of the ring buffer, waiting for it to be free if needed.
+     *
+     * @param event                    Event to be dispatched.
+     * @param dispatchTable            Subscriptions to be used to process the event.
+     * @param undeliveredEventHandlers Event handlers to be used to process the event if it is not delivered.
+     * @param exceptionHandlers        Exception handlers to be used in case an unchecked exception is thrown.
+     */
+    private void publish(Event<Object> event, DispatchTable dispatchTable,
+                         Collection<EventHandler<Object>> undeliveredEventHandlers,
+                         Collection<ExceptionHandler> exceptionHandlers) {
+        long sequence = claimedSequence.incrementAndGet();
+
+        // Wait for the dispatching thread to free the slot, that is, to process the event one lap before
+        long wrapSequence = sequence - slots.length;
+        while ((consumedSequence.get() < wrapSequence) && running) {
+            LockSupport.parkNanos(1);
+        }
+
+        if (running) {
+            Slot slot = slots[(int) sequence & indexMask];
+            slot.event = event;
+            slot.dispatchTable = dispatchTable;
+            slot.undeliveredEventHandlers = undeliveredEventHandlers;
+            slot.exceptionHandlers = exceptionHandlers;
+            slot.sequence = sequence;
+
+            if (running) {
+                // Only wake up the dispatching thread if it is parked (see consume())
+                if (consumerParked) {
+                    LockSupport.unpark(dispatchThread);
+                }
+            } else {
+                // Disposed in the meantime, possibly after the dispatching thread discarded the remaining slots
+                discardEvent(event);
+            }
+        } else {
+            // Disposed while waiting for the slot to be free
+            discardEvent(event);
+        }
+    }
+
+    /**
+     * Processes the events published in the ring buffer, in sequence order, until this dispatcher is disposed.
+     */
+    private void consume() {
+        long nextSequence = 0;
+        while (running) {
+            Slot slot = slots[(int) nextSequence & indexMask];
+            if (waitForSlot(slot, nextSequence)) {
+                Event<Object> event = slot.event;
+                DispatchTable dispatchTable = slot.dispatchTable;
+                Collection<EventHandler<Object>> undeliveredEventHandlers = slot.undeliveredEventHandlers;
+                Collection<ExceptionHandler> exceptionHandlers = slot.exceptionHandlers;
+
+                // Do not retain the event longer than needed
+                slot.event = null;
+                slot.dispatchTable = null;
+                slot.undeliveredEventHandlers = null;
+                slot.exceptionHandlers = null;
+
+                try {
+                    processEvent(event, dispatchTable, undeliveredEventHandlers, exceptionHandlers);
+                    processQueue();
+                } catch (Throwable t) {
+                    LOGGER.error("Unhandled exception while dispatching event '" + event + "'", t);
+                } finally {
+                    consumedSequence.lazySet(nextSequence);
+                    nextSequence++;
+                }
+            }
+        }
+
+        discardPublishedSlots(nextSequence);
+    }
+
+    /**
+     * Discards the events published in the ring buffer but not processed before this dispatcher was disposed.
+     *
+     * @param firstSequence Sequence of the first slot not processed.
+     */
+    private void discardPublishedSlots(long firstSequence) {
+        // Slots further than one lap ahead cannot have been published, their publishers still wait for a free slot
+        long lastSequence = Math.min(claimedSequence.get(), firstSequence + slots.length - 1);
+        for (long sequence = firstSequence; sequence <= lastSequence; sequence++) {
+            Slot slot = slots[(int) sequence & indexMask];
+            if (slot.sequence == sequence) {
+                discardEvent(slot.event);
+                slot.event = null;
+                slot.dispatchTable = null;
+                slot.undeliveredEventHandlers = null;
+                slot.exceptionHandlers = null;
+            }
+        }
+    }
+
+    /**
+     * Records that the specified event will not be processed because this dispatcher is disposed.
+     *
+     * @param event Event that will not be processed.
+     */
+    private static void discardEvent(Event<Object> event) {
+        if (event instanceof TrackedEvent) {
+            ((TrackedEvent<?>) event).discard();
+        }
+        LOGGER.debug("Discarded event '{}' because the dispatcher is disposed", event);
+    }
+
+    /**
+     * Waits until the specified slot has been published for the specified sequence or until this dispatcher is
+     * disposed.
+     *
+     * @param slot     Slot to be waited for.
+     * @param sequence Sequence for which the slot is expected to be published.
+     * @return True if the slot has been published, false if this dispatcher has been disposed, in which case the slot
+     * is left to {@link #discardPublishedSlots(long)}.
+     */
+    private boolean waitForSlot(Slot slot, long sequence) {
+        int spinCount = 0;
+        while ((slot.sequence != sequence) && running) {
+            if (spinCount < SPIN_COUNT) {
+                spinCount++;
+            } else {
+                // Publishers check this flag after publishing, so either they unpark this thread or it sees the slot
+                consumerParked = true;
+                if (slot.sequence != sequence) {
+                    LockSupport.park(this);
+                }
+                consumerParked = false;
+            }
+        }
+        return (slot.sequence == sequence) && running;
+    }
+
+    /**
+     * @see AbstractDispatcher#dispose()
+     */
+    @Override
+    public void dispose() {
+        running = false;
+        LockSupport.unpark(dispatchThread);
+    }
+
+    public enum NestedDispatchStrategy {
+        PROCESS_IMMEDIATELY,
+        QUEUE
+    }
+
+    /**
+     * Preallocated slot of the ring buffer, reused for every lap.
+     */
+    private static final class Slot {
+
+        private Event<Object> event;
+
+        private DispatchTable dispatchTable;
+
+        private Collection<EventHandler<Object>> undeliveredEventHandlers;
+
+        private Collection<ExceptionHandler> exceptionHandlers;
+
+        /**
+         * Sequence for which the slot was last published, written last by the publisher.
+         */
+        private volatile long sequence = -1;
+    }
+}
@@ -25,18 +25,34 @@
 
 package com.github.leanframeworks.minibus.base.dispatcher;
 
+import com.github.leanframeworks.minibus.api.DispatchTable;
 import com.github.leanframeworks.minibus.api.Event;
-import com.github.leanframeworks.minibus.api.EventFilter;
 import com.github.leanframeworks.minibus.api.EventHandler;
 import com.github.leanframeworks.minibus.api.ExceptionHandler;
+import com.github.leanframeworks.minibus.api.TrackedEvent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.Collection;
-import java.util.Map;
-import java.util.concurrent.ExecutorService;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
+/**
+ * Dispatcher strategy dispatching events on a single, dedicated thread.
+ * <p>
+ * Optionally, a time-out can be set for the processing of each event (see {@link #setHandlerTimeout(long)}). A
+ * watchdog thread then checks the event being processed and, if it overruns, reports a {@link
+ * DispatchTimeoutException} to the exception handlers and moves the remaining events to a replacement thread, so that
+ * a single hanging event handler does not hold up all the others.
+ */
 public class SingleThreadDispatcher extends AbstractSerialDispatcher {
 
     /**
@@ -44,58 +60,474 @@ public class SingleThreadDispatcher extends AbstractSerialDispatcher {
      */
     private static final Logger LOGGER = LoggerFactory.getLogger(SingleThreadDispatcher.class);
 
-    private final ExecutorService executorService = Executors.newSingleThreadExecutor();
+    /**
+     * Single thread executor whose queue is inspected to know when to deliver the pending batches.
+     */
+    private volatile ThreadPoolExecutor executorService;
+
+    /**
+     * Thread of the executor, used to detect when the dispatching thread itself overflows the queue.
+     */
+    private volatile Thread dispatchThread = null;
+
+    /**
+     * Lock making sure that the events processed by publishers, according to the overflow policy, are not processed
+     * at the same time as the events processed by the thread of the executor.
+     */
+    private volatile Object processingLock = new Object();
+
+    /**
+     * Maximum time during which an event can be processed, in nanoseconds, or 0 if there is no time-out.
+     */
+    private volatile long handlerTimeoutNanos = 0;
+
+    /**
+     * Watchdog checking the task being processed, or null if there is no time-out.
+     */
+    private ScheduledExecutorService watchdog = null;
+
+    /**
+     * Task being processed by the thread of the executor, or null if it is idle.
+     */
+    private final AtomicReference<DispatchTask> currentTask = new AtomicReference<>();
+
+    /**
+     * True once the dispatcher is disposed.
+     */
+    private volatile boolean disposed = false;
 
     private final NestedDispatchStrategy nestedDispatchStrategy;
 
     public SingleThreadDispatcher(NestedDispatchStrategy nestedDispatchStrategy) {
+        this(nestedDispatchStrategy, Integer.MAX_VALUE, OverflowPolicy.BLOCK);
+    }
+
+    /**
+     * Constructor.
+     * <p>
+     * The specified bound applies to the events waiting for the dispatching thread as well as to the events queued
+     * while dispatching.
+     *
+     * @param nestedDispatchStrategy Strategy for the events dispatched while dispatching.
+     * @param queueCapacity          Maximum number of events waiting to be processed, or {@link Integer#MAX_VALUE}
+     *                               for an unbounded queue.
+     * @param overflowPolicy         Policy to be applied when the queue is full.
+     * @see #setQueueBound(int, OverflowPolicy)
+     */
+    public SingleThreadDispatcher(NestedDispatchStrategy nestedDispatchStrategy, int queueCapacity,
+                                  OverflowPolicy overflowPolicy) {
         this.nestedDispatchStrategy = nestedDispatchStrategy;
+        setQueueBound(queueCapacity, overflowPolicy);
+        executorService = createExecutor();
+    }
+
+    /**
+     * Creates the single thread executor processing the events.
+     *
+     * @return New executor.
+     */
+    private ThreadPoolExecutor createExecutor() {
+        return new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(getQueueCapacity()), r -> {
+            Thread thread = Executors.defaultThreadFactory().newThread(r);
+            dispatchThread = thread;
+            return thread;
+        }, (r, executor) -> handleOverflow((DispatchTask) r, executor)); // Safe cast, only dispatch tasks are executed
     }
 
     public NestedDispatchStrategy getNestedDispatchStrategy() {
         return nestedDispatchStrategy;
     }
 
+    /**
+     * @see AbstractSerialDispatcher#setParallelFanOut(ForkJoinPool, int)
+     */
+    @Override
+    public void setParallelFanOut(ForkJoinPool pool, int threshold) {
+        super.setParallelFanOut(pool, threshold);
+    }
+
+    /**
+     * @see AbstractSerialDispatcher#setBatchDelivery(int, long)
+     */
+    @Override
+    public void setBatchDelivery(int maxSize, long maxDelayMillis) {
+        super.setBatchDelivery(maxSize, maxDelayMillis);
+    }
+
+    /**
+     * Sets the maximum time during which an event can be processed.
+     * <p>
+     * If an event is processed for longer than that, the thread processing it is interrupted and abandoned, a {@link
+     * DispatchTimeoutException} is passed to the exception handlers of the event (or logged if there are none), and
+     * the next events are processed on a new thread. The abandoned thread still completes the event handler it is
+     * stuck in, if it ever returns, but does not process anything else: the event it was processing is not passed to
+     * the remaining subscriptions, and is discarded if it is a {@link TrackedEvent}, so that the events are never
+     * delivered by two threads at a time.
+     * <p>
+     * The time-out applies to the whole processing of an event, that is to all its event handlers.
+     *
+     * @param timeoutMillis Time-out in milliseconds, or 0 to disable the watchdog.
+     */
+    public synchronized void setHandlerTimeout(long timeoutMillis) {
+        handlerTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, timeoutMillis));
+        if (watchdog != null) {
+            watchdog.shutdownNow();
+            watchdog = null;
+        }
+        if ((timeoutMillis > 0) && !disposed) {
+            watchdog = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = Executors.defaultThreadFactory().newThread(r);
+                thread.setDaemon(true);
+                return thread;
+            });
+            // Check often enough to detect the overruns with a reasonable precision
+            long period = Math.max(1, timeoutMillis / 4);
+            watchdog.scheduleWithFixedDelay(this::checkCurrentTask, period, period, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Gets the maximum time during which an event can be processed.
+     *
+     * @return Time-out in milliseconds, or 0 if there is no time-out.
+     * @see #setHandlerTimeout(long)
+     */
+    public long getHandlerTimeout() {
+        return TimeUnit.NANOSECONDS.toMillis(handlerTimeoutNanos);
+    }
+
+    /**
+     * Checks whether the task being processed overran the time-out, and abandons it if it did.
+     * <p>
+     * This method is called periodically by the watchdog.
+     */
+    private void checkCurrentTask() {
+        try {
+            DispatchTask task = currentTask.get();
+            long timeout = handlerTimeoutNanos;
+            if ((task != null) && (timeout > 0)) {
+                long elapsed = System.nanoTime() - task.startNanos;
+                if (elapsed > timeout) {
+                    abandonTask(task, elapsed);
+                }
+            }
+        } catch (Throwable t) {
+            // Keep the watchdog alive
+            LOGGER.error("Failed to check the event being processed", t);
+        }
+    }
+
+    /**
+     * Abandons the specified task, processing the next events on a new thread, and reports the time-out.
+     *
+     * @param task         Task having overrun the time-out.
+     * @param elapsedNanos Time during which the task has been processed, in nanoseconds.
+     */
+    private synchronized void abandonTask(DispatchTask task, long elapsedNanos) {
+        if (currentTask.compareAndSet(task, null)) {
+            // Stop the thread from processing anything else once the step it is stuck in returns
+            task.processingState.abandon();
+
+            if (!disposed) {
+                // Move the events not processed yet before publishing the replacement, so that they remain first
+                ThreadPoolExecutor abandonedExecutor = executorService;
+                ThreadPoolExecutor replacementExecutor = createExecutor();
+                List<Runnable> remainingTasks = abandonedExecutor.shutdownNow();
+                processingLock = new Object();
+                // Take over the events queued and batched by the abandoned thread, even if no other event comes
+                replacementExecutor.execute(new DispatchTask(task.processingState));
+                for (Runnable remainingTask : remainingTasks) {
+                    replacementExecutor.execute(remainingTask);
+                }
+                executorService = replacementExecutor;
+
+                reportTimeout(task, elapsedNanos);
+            }
+        }
+    }
+
+    /**
+     * Reports the time-out of the specified task to the exception handlers of its event.
+     *
+     * @param task         Task having overrun the time-out.
+     * @param elapsedNanos Time during which the task has been processed, in nanoseconds.
+     */
+    private void reportTimeout(DispatchTask task, long elapsedNanos) {
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+        String subject = (task.abandonedState == null) ? ("Event '" + task.event + "' has") : "Events left by an " +
+                "abandoned thread have";
+        DispatchTimeoutException exception = new DispatchTimeoutException(subject + " been processed for " +
+                elapsedMillis + " ms, continuing on a new thread", elapsedMillis);
+        if ((task.exceptionHandlers == null) || task.exceptionHandlers.isEmpty()) {
+            LOGGER.error(exception.getMessage());
+        } else {
+            for (ExceptionHandler exceptionHandler : task.exceptionHandlers) {
+                try {
+                    exceptionHandler.handleException(exception, task.event);
+                } catch (Throwable t) {
+                    LOGGER.error("Exception handler failed to handle time-out", t);
+                }
+            }
+        }
+    }
+
+    /**
+     * @see AbstractSerialDispatcher#getQueuedEventCount()
+     */
     @Override
-    public void dispatch(Event<Object> event, Map<EventHandler<Object>, EventFilter<Object>> eventHandlers,
+    public int getQueuedEventCount() {
+        return executorService.getQueue().size() + super.getQueuedEventCount();
+    }
+
+    @Override
+    public void dispatch(Event<Object> event, DispatchTable dispatchTable,
                          Collection<EventHandler<Object>> undeliveredEventHandlers,
                          Collection<ExceptionHandler> exceptionHandlers) {
-        executorService.execute(() -> {
-            if (getNestedDispatchCount() > 0) {
+        executorService.execute(new DispatchTask(event, dispatchTable, undeliveredEventHandlers, exceptionHandlers,
+                false));
+        recordQueueDepth(executorService.getQueue().size());
+    }
+
+    /**
+     * Applies the overflow policy to the specified task that could not be queued.
+     *
+     * @param task     Task that could not be queued.
+     * @param executor Executor that could not queue the task.
+     */
+    private void handleOverflow(DispatchTask task, ThreadPoolExecutor executor) {
+        if (!executor.isShutdown()) {
+            applyOverflowPolicy(task, executor);
+        } else if (disposed) {
+            throw new RejectedExecutionException("Dispatcher is disposed, rejected event: " + task.event);
+        } else {
+            // The thread was replaced in the meantime
+            executeOnReplacementThread(task);
+        }
+    }
+
+    /**
+     * Queues the specified task on the executor replacing an abandoned one.
+     *
+     * @param task Task that could not be queued on the abandoned executor.
+     */
+    private void executeOnReplacementThread(DispatchTask task) {
+        ThreadPoolExecutor replacementExecutor;
+        synchronized (this) {
+            // Wait for the replacement to be published, after the events of the abandoned executor
+            replacementExecutor = executorService;
+        }
+        replacementExecutor.execute(task);
+    }
+
+    /**
+     * Applies the overflow policy to the specified task that could not be queued in the specified executor.
+     *
+     * @param task     Task that could not be queued.
+     * @param executor Executor that could not queue the task.
+     */
+    private void applyOverflowPolicy(DispatchTask task, ThreadPoolExecutor executor) {
+        BlockingQueue<Runnable> queue = executor.getQueue();
+        OverflowPolicy policy = getOverflowPolicy();
+        switch (policy) {
+            case BLOCK:
+                if (Thread.currentThread() == dispatchThread) {
+                    // Waiting for the queue to be drained by this very thread would never end
+                    task.processNow();
+                } else {
+                    try {
+                        queue.put(task);
+                        if (executor.isShutdown() && queue.remove(task)) {
+                            // The thread was replaced while waiting
+                            executeOnReplacementThread(task);
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        recordDroppedEvent(task.event);
+                    }
+                }
+                break;
+            case CALLER_RUNS:
+                task.processNow();
+                break;
+            case DROP_NEWEST:
+                recordDroppedEvent(task.event);
+                break;
+            case DROP_OLDEST:
+                Runnable oldestTask = queue.poll();
+                if (oldestTask != null) {
+                    // Safe cast, only dispatch tasks are executed
+                    recordDroppedEvent(((DispatchTask) oldestTask).event);
+                }
+                if (!queue.offer(task)) {
+                    recordDroppedEvent(task.event);
+                }
+                break;
+            case REJECT:
+                throw recordRejectedEvent(task.event);
+            default:
+                LOGGER.error("Unsupported overflow policy: {}", policy);
+        }
+    }
+
+    /**
+     * Delivers the pending batches if there are no more events waiting to be processed.
+     * <p>
+     * While events keep coming, the batches are delivered when they are full or expired.
+     */
+    private void flushBatchesIfIdle() {
+        if (executorService.getQueue().isEmpty()) {
+            flushBatches();
+        }
+    }
+
+    /**
+     * @see AbstractDispatcher#dispose()
+     */
+    @Override
+    public void dispose() {
+        synchronized (this) {
+            disposed = true;
+            if (watchdog != null) {
+                watchdog.shutdownNow();
+                watchdog = null;
+            }
+        }
+        executorService.shutdownNow();
+    }
+
+    /**
+     * Task processing an event on the dispatching thread, or on the publishing thread in case of overflow.
+     * <p>
+     * When a thread is abandoned, a task without event takes over the events it queued and batched instead.
+     */
+    private final class DispatchTask implements Runnable {
+
+        private final Event<Object> event;
+
+        private final DispatchTable dispatchTable;
+
+        private final Collection<EventHandler<Object>> undeliveredEventHandlers;
+
+        private final Collection<ExceptionHandler> exceptionHandlers;
+
+        /**
+         * True if the nested dispatch strategy was already applied to this task.
+         */
+        private final boolean rescheduled;
+
+        /**
+         * Time at which the thread of the executor started processing this task, in nanoseconds.
+         */
+        private volatile long startNanos = 0;
+
+        /**
+         * Processing state of the thread of the executor, abandoned by the watchdog if this task overruns the time-out.
+         */
+        private volatile ProcessingState processingState = null;
+
+        /**
+         * Processing state of the abandoned thread whose events are taken over, or null if this task processes an
+         * event.
+         */
+        private final ProcessingState abandonedState;
+
+        DispatchTask(Event<Object> event, DispatchTable dispatchTable,
+                     Collection<EventHandler<Object>> undeliveredEventHandlers,
+                     Collection<ExceptionHandler> exceptionHandlers, boolean rescheduled) {
+            this.event = event;
+            this.dispatchTable = dispatchTable;
+            this.undeliveredEventHandlers = undeliveredEventHandlers;
+            this.exceptionHandlers = exceptionHandlers;
+            this.rescheduled = rescheduled;
+            this.abandonedState = null;
+        }
+
+        /**
+         * Constructor for a task taking over the events queued and batched by an abandoned thread.
+         *
+         * @param abandonedState Processing state of the abandoned thread.
+         */
+        DispatchTask(ProcessingState abandonedState) {
+            this.event = null;
+            this.dispatchTable = null;
+            this.undeliveredEventHandlers = null;
+            this.exceptionHandlers = null;
+            this.rescheduled = true;
+            this.abandonedState = abandonedState;
+        }
+
+        /**
+         * @see Runnable#run()
+         */
+        @Override
+        public void run() {
+            synchronized (processingLock) {
+                processingState = getProcessingState();
+                startNanos = System.nanoTime();
+                currentTask.set(this);
+                try {
+                    process();
+                } finally {
+                    // No-op if abandoned by the watchdog in the meantime
+                    currentTask.compareAndSet(this, null);
+                }
+            }
+        }
+
+        /**
+         * Processes the event depending on the nested dispatch strategy.
+         */
+        private void process() {
+            if (abandonedState != null) {
+                // Process the events left by the abandoned thread, in the order in which it would have
+                adoptQueuedEvents(abandonedState);
+                processQueue();
+            } else if (!rescheduled && (getNestedDispatchCount() > 0)) {
                 // Already dispatching, so process event depending on defined strategy
                 NestedDispatchStrategy nestedDispatchStrategy = getNestedDispatchStrategy();
                 switch (nestedDispatchStrategy) {
                     case PROCESS_IMMEDIATELY:
-                        processEvent(event, eventHandlers, undeliveredEventHandlers, exceptionHandlers);
+                        processEvent(event, dispatchTable, undeliveredEventHandlers, exceptionHandlers);
                         processQueue();
                         break;
                     case QUEUE:
-                        queueEvent(event, eventHandlers, undeliveredEventHandlers, exceptionHandlers);
+                        queueEvent(event, dispatchTable, undeliveredEventHandlers, exceptionHandlers);
                         break;
                     case RESCHEDULE:
-                        executorService.execute(() -> {
-                            processEvent(event, eventHandlers, undeliveredEventHandlers, exceptionHandlers);
-                            processQueue();
-                        });
+                        executorService.execute(new DispatchTask(event, dispatchTable, undeliveredEventHandlers,
+                                exceptionHandlers, true));
                         break;
                     default:
                         LOGGER.error("Unsupported nested dispatch strategy: {}", nestedDispatchStrategy);
                 }
             } else {
                 // Not dispatching, so process event now
-                processEvent(event, eventHandlers, undeliveredEventHandlers, exceptionHandlers);
+                processEvent(event, dispatchTable, undeliveredEventHandlers, exceptionHandlers);
                 processQueue();
             }
-        });
-    }
+            // Processing the queue and flushing the batches is left to the replacement thread if abandoned
+            flushBatchesIfIdle();
+        }
 
-
-    /**
-     * @see AbstractDispatcher#dispose()
-     */
-    @Override
-    public void dispose() {
-        executorService.shutdownNow();
+        /**
+         * Processes the event right away, regardless of the nested dispatch strategy.
+         */
+        void processNow() {
+            boolean processed = false;
+            while (!processed) {
+                Object lock = processingLock;
+                synchronized (lock) {
+                    // The thread may have been replaced while waiting for the lock of the abandoned one
+                    if (lock == processingLock) {
+                        processEvent(event, dispatchTable, undeliveredEventHandlers, exceptionHandlers);
+                        processQueue();
+                        flushBatchesIfIdle();
+                        processed = true;
+                    }
+                }
+            }
+        }
     }
 
     public enum NestedDispatchStrategy {
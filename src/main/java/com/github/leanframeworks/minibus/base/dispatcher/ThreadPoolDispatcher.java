@@ -0,0 +1,270 @@
+/*
+ * Copyright (c) 2017, LeanFrameworks
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.github.leanframeworks.minibus.base.dispatcher;
+
+import com.github.leanframeworks.minibus.api.DispatchTable;
+import com.github.leanframeworks.minibus.api.Event;
+import com.github.leanframeworks.minibus.api.EventHandler;
+import com.github.leanframeworks.minibus.api.ExceptionHandler;
+import com.github.leanframeworks.minibus.api.Subscription;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Dispatcher strategy dispatching events on a pool of threads, so that several event handlers can process events
+ * concurrently.
+ * <p>
+ * The subscriptions are striped over the threads of the pool according to their identifiers: all the events for a
+ * given subscription are always processed by the same thread, in the order in which they were dispatched. This means
+ * that an event handler never processes two events at the same time for the same subscription, and that a slow event
+ * handler only delays the subscriptions sharing its thread.
+ * <p>
+ * An event is considered undelivered if none of the event handlers processed it on any of the threads. In this case,
+ * the undelivered event handlers are called on the thread that was the last one to complete the dispatch of the event.
+ */
+public class ThreadPoolDispatcher extends AbstractDispatcher {
+
+    /**
+     * Logger for this class.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(ThreadPoolDispatcher.class);
+
+    /**
+     * Serial executors, one per thread of the pool.
+     */
+    private final Stripe[] stripes;
+
+    /**
+     * Serial executor of the current thread, if the current thread belongs to the pool.
+     */
+    private final ThreadLocal<Stripe> currentStripe = new ThreadLocal<>();
+
+    private final NestedDispatchStrategy nestedDispatchStrategy;
+
+    /**
+     * Constructor.
+     * <p>
+     * The pool will have as many threads as available processors.
+     *
+     * @param nestedDispatchStrategy Strategy to dispatch events while an event is already being dispatched.
+     */
+    public ThreadPoolDispatcher(NestedDispatchStrategy nestedDispatchStrategy) {
+        this(Runtime.getRuntime().availableProcessors(), nestedDispatchStrategy);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param threadCount            Number of threads of the pool.
+     * @param nestedDispatchStrategy Strategy to dispatch events while an event is already being dispatched.
+     */
+    public ThreadPoolDispatcher(int threadCount, NestedDispatchStrategy nestedDispatchStrategy) {
+        this.nestedDispatchStrategy = nestedDispatchStrategy;
+        if (threadCount < 1) {
+            LOGGER.error("Invalid thread count {}, using a single thread instead", threadCount);
+        }
+        stripes = new Stripe[Math.max(1, threadCount)];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    public NestedDispatchStrategy getNestedDispatchStrategy() {
+        return nestedDispatchStrategy;
+    }
+
+    /**
+     * Gets the number of threads of the pool.
+     *
+     * @return Thread count.
+     */
+    public int getThreadCount() {
+        return stripes.length;
+    }
+
+    @Override
+    public void dispatch(Event<Object> event, DispatchTable dispatchTable,
+                         Collection<EventHandler<Object>> undeliveredEventHandlers,
+                         Collection<ExceptionHandler> exceptionHandlers) {
+        // Split the dispatch table per thread, preserving the subscription order
+        List<List<Subscription>> stripeSubscriptions = new ArrayList<>(stripes.length);
+        for (int i = 0; i < stripes.length; i++) {
+            stripeSubscriptions.add(null);
+        }
+        int stripeCount = 0;
+        for (int i = 0; i < dispatchTable.size(); i++) {
+            Subscription subscription = dispatchTable.get(i);
+            int stripeIndex = Math.floorMod(subscription.getId(), stripes.length);
+            List<Subscription> subscriptions = stripeSubscriptions.get(stripeIndex);
+            if (subscriptions == null) {
+                subscriptions = new ArrayList<>();
+                stripeSubscriptions.set(stripeIndex, subscriptions);
+                stripeCount++;
+            }
+            subscriptions.add(subscription);
+        }
+
+        if (stripeCount == 0) {
+            // Still process the undelivered event on the pool, spreading the topics over the threads
+            DeliveryCountdown delivery = new DeliveryCountdown(event, undeliveredEventHandlers, exceptionHandlers,
+                    1);
+            Stripe stripe = stripes[Math.floorMod(Objects.hashCode(event.getTopic()), stripes.length)];
+            dispatch(stripe, () -> processEvent(Collections.emptyList(), delivery));
+        } else {
+            DeliveryCountdown delivery = new DeliveryCountdown(event, undeliveredEventHandlers, exceptionHandlers,
+                    stripeCount);
+            for (int i = 0; i < stripes.length; i++) {
+                List<Subscription> subscriptions = stripeSubscriptions.get(i);
+                if (subscriptions != null) {
+                    dispatch(stripes[i], () -> processEvent(subscriptions, delivery));
+                }
+            }
+        }
+    }
+
+    /**
+     * Dispatches the specified task on the specified serial executor, taking into account the nested dispatch strategy
+     * if the task is dispatched from the thread of this serial executor.
+     *
+     * @param stripe Serial executor on which the task is to be run.
+     * @param task   Task processing an event.
+     */
+    private void dispatch(Stripe stripe, Runnable task) {
+        if (currentStripe.get() == stripe) {
+            // Already dispatching on this thread, so process event depending on defined strategy
+            NestedDispatchStrategy nestedDispatchStrategy = getNestedDispatchStrategy();
+            switch (nestedDispatchStrategy) {
+                case PROCESS_IMMEDIATELY:
+                    task.run();
+                    break;
+                case QUEUE:
+                    stripe.queuedTasks.offer(task);
+                    break;
+                case RESCHEDULE:
+                    stripe.execute(task);
+                    break;
+                default:
+                    LOGGER.error("Unsupported nested dispatch strategy: {}", nestedDispatchStrategy);
+            }
+        } else {
+            stripe.execute(task);
+        }
+    }
+
+    /**
+     * Passes the specified event to the specified subscriptions, on the current thread of the pool.
+     *
+     * @param subscriptions Subscriptions handled by the current thread.
+     * @param delivery      Delivery state of the event, shared with the other threads of the pool.
+     */
+    private void processEvent(List<Subscription> subscriptions, DeliveryCountdown delivery) {
+        LOGGER.debug("Dispatching event '{}'", delivery.getEvent());
+
+        boolean delivered = false;
+        try {
+            for (Subscription subscription : subscriptions) {
+                if (processEventThroughSubscription(delivery.getEvent(), subscription, delivery
+                        .getExceptionHandlers())) {
+                    delivered = true;
+                }
+            }
+        } finally {
+            if (delivery.complete(delivered)) {
+                processUndeliveredEvent(delivery.getEvent(), delivery.getUndeliveredEventHandlers(), delivery
+                        .getExceptionHandlers());
+            }
+        }
+    }
+
+    /**
+     * @see AbstractDispatcher#dispose()
+     */
+    @Override
+    public void dispose() {
+        for (Stripe stripe : stripes) {
+            stripe.executorService.shutdownNow();
+        }
+    }
+
+    public enum NestedDispatchStrategy {
+        PROCESS_IMMEDIATELY,
+        QUEUE,
+        RESCHEDULE
+    }
+
+    /**
+     * Serial executor running on a single thread of the pool.
+     */
+    private final class Stripe implements ThreadFactory {
+
+        private final ExecutorService executorService = Executors.newSingleThreadExecutor(this);
+
+        /**
+         * Tasks queued while dispatching on this thread, to be run after the current one.
+         * <p>
+         * This queue is only accessed from the thread of this serial executor.
+         */
+        private final Queue<Runnable> queuedTasks = new ArrayDeque<>();
+
+        /**
+         * Runs the specified task on the thread of this serial executor, followed by the tasks it queued.
+         *
+         * @param task Task to be run.
+         */
+        void execute(Runnable task) {
+            executorService.execute(() -> {
+                task.run();
+                Runnable queuedTask = queuedTasks.poll();
+                while (queuedTask != null) {
+                    queuedTask.run();
+                    queuedTask = queuedTasks.poll();
+                }
+            });
+        }
+
+        /**
+         * @see ThreadFactory#newThread(Runnable)
+         */
+        @Override
+        public Thread newThread(Runnable r) {
+            return Executors.defaultThreadFactory().newThread(() -> {
+                currentStripe.set(this);
+                r.run();
+            });
+        }
+    }
+}
@@ -0,0 +1,443 @@
+/*
+ * Copyright (c) 2017, LeanFrameworks
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.github.leanframeworks.minibus.base.dispatcher;
+
+import com.github.leanframeworks.minibus.api.DispatchTable;
+import com.github.leanframeworks.minibus.api.Event;
+import com.github.leanframeworks.minibus.api.EventHandler;
+import com.github.leanframeworks.minibus.api.ExceptionHandler;
+import com.github.leanframeworks.minibus.api.Subscription;
+import com.github.leanframeworks.minibus.api.TrackedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Method;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Dispatcher strategy running the event handlers on virtual threads, so that blocking event handlers (for example,
+ * doing I/O) do not hold platform threads.
+ * <p>
+ * Each subscription has a mailbox, drained by at most one thread at a time: the events for a given subscription are
+ * always processed one at a time, in the order in which they were dispatched, whereas different subscriptions are
+ * processed concurrently. The number of event handlers running at the same time is bounded.
+ * <p>
+ * Virtual threads are looked up at runtime, so that this dispatcher can be used on any Java version: if they are not
+ * available (before Java 21), a fixed pool of platform threads, as many as the maximum concurrency, is used instead.
+ * <p>
+ * Since the mailboxes already preserve the order per subscription, events dispatched while an event is already being
+ * dispatched are simply added to the mailboxes, like any other event.
+ * <p>
+ * Once the dispatcher is disposed, the events still waiting in the mailboxes and the events dispatched afterwards are
+ * not processed: if they are {@link TrackedEvent}s, they are discarded.
+ */
+public class VirtualThreadDispatcher extends AbstractDispatcher {
+
+    /**
+     * Logger for this class.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(VirtualThreadDispatcher.class);
+
+    /**
+     * Default maximum number of event handlers running at the same time.
+     */
+    public static final int DEFAULT_MAX_CONCURRENCY = 256;
+
+    /**
+     * Executor starting a new thread per task, virtual if possible.
+     */
+    private final ExecutorService executorService;
+
+    /**
+     * True if the executor uses virtual threads, false if it uses platform threads.
+     */
+    private final boolean virtualThreads;
+
+    /**
+     * Permits bounding the number of event handlers running at the same time.
+     */
+    private final Semaphore concurrencyPermits;
+
+    /**
+     * Maximum number of event handlers running at the same time.
+     */
+    private final int maxConcurrency;
+
+    /**
+     * Mailboxes of the subscriptions having events being processed, per subscription ID.
+     * <p>
+     * A mailbox is present only while it is being drained, and is only modified atomically through this mapping.
+     */
+    private final Map<Integer, Queue<EventTask>> mailboxes = new ConcurrentHashMap<>();
+
+    /**
+     * True once the dispatcher is disposed, so that no more events are processed.
+     */
+    private volatile boolean disposed = false;
+
+    /**
+     * Constructor.
+     * <p>
+     * At most {@link #DEFAULT_MAX_CONCURRENCY} event handlers will run at the same time.
+     */
+    public VirtualThreadDispatcher() {
+        this(DEFAULT_MAX_CONCURRENCY);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param maxConcurrency Maximum number of event handlers running at the same time.
+     */
+    public VirtualThreadDispatcher(int maxConcurrency) {
+        if (maxConcurrency < 1) {
+            LOGGER.error("Invalid maximum concurrency {}, using 1 instead", maxConcurrency);
+        }
+        this.maxConcurrency = Math.max(1, maxConcurrency);
+        this.concurrencyPermits = new Semaphore(this.maxConcurrency);
+
+        ExecutorService virtualThreadExecutorService = createVirtualThreadExecutorService();
+        if (virtualThreadExecutorService == null) {
+            LOGGER.info("Virtual threads are not available, using platform threads instead");
+            executorService = Executors.newFixedThreadPool(this.maxConcurrency);
+            virtualThreads = false;
+        } else {
+            executorService = virtualThreadExecutorService;
+            virtualThreads = true;
+        }
+    }
+
+    /**
+     * Creates an executor starting a new virtual thread per task, if supported by the current Java runtime.
+     *
+     * @return Executor, or null if virtual threads are not supported.
+     */
+    private static ExecutorService createVirtualThreadExecutorService() {
+        ExecutorService virtualThreadExecutorService;
+
+        try {
+            Method factoryMethod = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            virtualThreadExecutorService = (ExecutorService) factoryMethod.invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // Not available or only as preview feature
+            LOGGER.debug("Cannot create virtual thread executor", e);
+            virtualThreadExecutorService = null;
+        }
+
+        return virtualThreadExecutorService;
+    }
+
+    /**
+     * States whether the event handlers run on virtual threads.
+     *
+     * @return True if virtual threads are used, false if platform threads are used instead.
+     */
+    public boolean isUsingVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * Gets the maximum number of event handlers running at the same time.
+     *
+     * @return Maximum concurrency.
+     */
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    @Override
+    public void dispatch(Event<Object> event, DispatchTable dispatchTable,
+                         Collection<EventHandler<Object>> undeliveredEventHandlers,
+                         Collection<ExceptionHandler> exceptionHandlers) {
+        if (dispatchTable.isEmpty()) {
+            DeliveryCountdown delivery = new DeliveryCountdown(event, undeliveredEventHandlers, exceptionHandlers, 1);
+            execute(new MailboxDrain(null, new EventTask(null, delivery)));
+        } else {
+            DeliveryCountdown delivery = new DeliveryCountdown(event, undeliveredEventHandlers, exceptionHandlers,
+                    dispatchTable.size());
+            for (int i = 0; i < dispatchTable.size(); i++) {
+                Subscription subscription = dispatchTable.get(i);
+                post(subscription.getId(), new EventTask(subscription, delivery));
+            }
+        }
+    }
+
+    /**
+     * Adds the specified task to the mailbox of the specified subscription, starting to drain the mailbox on a new
+     * thread if it is not already being drained.
+     *
+     * @param subscriptionId Identifier of the subscription.
+     * @param task           Task processing an event for the subscription.
+     */
+    private void post(Integer subscriptionId, EventTask task) {
+        boolean[] drainNeeded = new boolean[1];
+        mailboxes.compute(subscriptionId, (k, mailbox) -> {
+            Queue<EventTask> resultMailbox = mailbox;
+            if (resultMailbox == null) {
+                // First task will be run directly by the new draining thread
+                resultMailbox = new ArrayDeque<>();
+                drainNeeded[0] = true;
+            } else {
+                resultMailbox.offer(task);
+            }
+            return resultMailbox;
+        });
+
+        if (drainNeeded[0]) {
+            execute(new MailboxDrain(subscriptionId, task));
+        }
+    }
+
+    /**
+     * Starts the specified mailbox drain on a new thread, or discards it if the dispatcher is already disposed.
+     *
+     * @param drain Mailbox drain to be started.
+     */
+    private void execute(MailboxDrain drain) {
+        try {
+            executorService.execute(drain);
+        } catch (RejectedExecutionException e) {
+            // Disposed in the meantime, so the mailbox would never be drained
+            LOGGER.debug("Dispatcher disposed, discarding event", e);
+            drain.discard();
+        }
+    }
+
+    /**
+     * Runs the specified task and all the tasks subsequently added to the mailbox of the specified subscription, until
+     * the mailbox is empty.
+     *
+     * @param subscriptionId Identifier of the subscription.
+     * @param firstTask      First task to be run.
+     */
+    private void drainMailbox(Integer subscriptionId, EventTask firstTask) {
+        EventTask task = firstTask;
+        while (task != null) {
+            runWithPermit(task);
+
+            // Discard the mailbox atomically once empty, so that the next task starts a new draining thread
+            EventTask[] nextTask = new EventTask[1];
+            mailboxes.computeIfPresent(subscriptionId, (k, mailbox) -> {
+                nextTask[0] = mailbox.poll();
+                return (nextTask[0] == null) ? null : mailbox;
+            });
+            task = nextTask[0];
+        }
+    }
+
+    /**
+     * Removes the mailbox of the specified subscription and discards all the tasks it contains.
+     *
+     * @param subscriptionId Identifier of the subscription.
+     */
+    private void discardMailbox(Integer subscriptionId) {
+        Queue<EventTask> mailbox = mailboxes.remove(subscriptionId);
+        if (mailbox != null) {
+            mailbox.forEach(EventTask::discard);
+        }
+    }
+
+    /**
+     * Runs the specified task once a concurrency permit is available, or discards it if the dispatcher is disposed
+     * in the meantime.
+     *
+     * @param task Task to be run.
+     */
+    private void runWithPermit(EventTask task) {
+        try {
+            concurrencyPermits.acquire();
+            try {
+                if (disposed) {
+                    task.discard();
+                } else {
+                    task.run();
+                }
+            } finally {
+                concurrencyPermits.release();
+            }
+        } catch (InterruptedException e) {
+            // Keep the interrupted status, so that the remaining tasks of the mailbox are discarded as well
+            LOGGER.debug("Interrupted while waiting to process event", e);
+            task.discard();
+            Thread.currentThread().interrupt();
+        } catch (Throwable t) {
+            // No exception handler, so nothing else can be done
+            LOGGER.error("Unhandled exception while processing event", t);
+        }
+    }
+
+    /**
+     * Passes the event of the specified delivery state to the event handler of the specified subscription.
+     *
+     * @param subscription Subscription holding the event filter and event handler to be used.
+     * @param delivery     Delivery state of the event, shared with the other subscriptions.
+     */
+    private void processEvent(Subscription subscription, DeliveryCountdown delivery) {
+        boolean delivered = false;
+        try {
+            delivered = processEventThroughSubscription(delivery.getEvent(), subscription, delivery
+                    .getExceptionHandlers());
+        } finally {
+            if (delivery.complete(delivered)) {
+                processUndeliveredEvent(delivery.getEvent(), delivery.getUndeliveredEventHandlers(), delivery
+                        .getExceptionHandlers());
+            }
+        }
+    }
+
+    /**
+     * Records that the specified event will not be processed because the dispatcher is disposed.
+     *
+     * @param event Event that will not be processed.
+     */
+    private static void discardEvent(Event<Object> event) {
+        if (event instanceof TrackedEvent) {
+            ((TrackedEvent<?>) event).discard();
+        }
+        LOGGER.debug("Stopped processing event '{}' because the dispatcher is disposed", event);
+    }
+
+    /**
+     * @see AbstractDispatcher#dispose()
+     */
+    @Override
+    public void dispose() {
+        disposed = true;
+        for (Runnable neverStarted : executorService.shutdownNow()) {
+            if (neverStarted instanceof MailboxDrain) {
+                ((MailboxDrain) neverStarted).discard();
+            }
+        }
+    }
+
+    /**
+     * Part of the processing of an event, for a single subscription.
+     */
+    private final class EventTask implements Runnable {
+
+        /**
+         * Subscription to process the event, or null if the event is not dispatched to any subscription.
+         */
+        private final Subscription subscription;
+
+        /**
+         * Delivery state of the event, shared with the other subscriptions.
+         */
+        private final DeliveryCountdown delivery;
+
+        /**
+         * Constructor.
+         *
+         * @param subscription Subscription to process the event, or null if the event is not dispatched to any
+         *                     subscription.
+         * @param delivery     Delivery state of the event, shared with the other subscriptions.
+         */
+        EventTask(Subscription subscription, DeliveryCountdown delivery) {
+            this.subscription = subscription;
+            this.delivery = delivery;
+        }
+
+        /**
+         * @see Runnable#run()
+         */
+        @Override
+        public void run() {
+            if (subscription == null) {
+                if (delivery.complete(false)) {
+                    processUndeliveredEvent(delivery.getEvent(), delivery.getUndeliveredEventHandlers(), delivery
+                            .getExceptionHandlers());
+                }
+            } else {
+                processEvent(subscription, delivery);
+            }
+        }
+
+        /**
+         * Completes this part of the processing without running any event handler.
+         */
+        void discard() {
+            delivery.complete(false);
+            discardEvent(delivery.getEvent());
+        }
+    }
+
+    /**
+     * Task draining the mailbox of a subscription, starting with a given task.
+     */
+    private final class MailboxDrain implements Runnable {
+
+        /**
+         * Identifier of the subscription, or null if the task has no mailbox.
+         */
+        private final Integer subscriptionId;
+
+        /**
+         * First task to be run.
+         */
+        private final EventTask firstTask;
+
+        /**
+         * Constructor.
+         *
+         * @param subscriptionId Identifier of the subscription, or null if the task has no mailbox.
+         * @param firstTask      First task to be run.
+         */
+        MailboxDrain(Integer subscriptionId, EventTask firstTask) {
+            this.subscriptionId = subscriptionId;
+            this.firstTask = firstTask;
+        }
+
+        /**
+         * @see Runnable#run()
+         */
+        @Override
+        public void run() {
+            if (subscriptionId == null) {
+                runWithPermit(firstTask);
+            } else {
+                drainMailbox(subscriptionId, firstTask);
+            }
+        }
+
+        /**
+         * Discards the first task and all the tasks added to the mailbox in the meantime.
+         */
+        void discard() {
+            firstTask.discard();
+            if (subscriptionId != null) {
+                discardMailbox(subscriptionId);
+            }
+        }
+    }
+}
@@ -26,6 +26,7 @@
 package com.github.leanframeworks.minibus.base.filter;
 
 import com.github.leanframeworks.minibus.api.EventFilter;
+import com.github.leanframeworks.minibus.base.util.TypeHierarchy;
 
 import java.util.Collections;
 import java.util.HashSet;
@@ -33,12 +34,20 @@ import java.util.Set;
 
 public abstract class AbstractClassFilter<C> implements EventFilter<C> {
 
-    private final Set<Class<?>> classes = new HashSet<>();
-
     private final boolean acceptSubClasses;
 
     private final boolean acceptNull;
 
+    /**
+     * Accepted classes, replaced as a whole on every modification.
+     * <p>
+     * When sub-classes are accepted, the tested classes are looked up by their shared type hierarchies, so that no
+     * decision has to be cached, and thus invalidated, per filter.
+     *
+     * @see TypeHierarchy
+     */
+    private volatile Set<Class<?>> classes;
+
     public AbstractClassFilter(Class<?>... classes) {
         this(false, classes);
     }
@@ -50,30 +59,59 @@ public abstract class AbstractClassFilter<C> implements EventFilter<C> {
     public AbstractClassFilter(boolean acceptSubClasses, boolean acceptNull, Class<?>... classes) {
         this.acceptSubClasses = acceptSubClasses;
         this.acceptNull = acceptNull;
-        Collections.addAll(this.classes, classes);
+        Set<Class<?>> initialClasses = new HashSet<>();
+        Collections.addAll(initialClasses, classes);
+        setClasses(initialClasses);
     }
 
-    public void addClass(Class<?> clazz) {
-        classes.add(clazz);
+    public synchronized void addClass(Class<?> clazz) {
+        Set<Class<?>> modifiedClasses = new HashSet<>(classes);
+        if (modifiedClasses.add(clazz)) {
+            setClasses(modifiedClasses);
+        }
     }
 
-    public void removeClass(Class<?> clazz) {
-        classes.remove(clazz);
+    public synchronized void removeClass(Class<?> clazz) {
+        Set<Class<?>> modifiedClasses = new HashSet<>(classes);
+        if (modifiedClasses.remove(clazz)) {
+            setClasses(modifiedClasses);
+        }
     }
 
-    protected boolean accept(Class<?> testedClass) {
-        boolean accept;
+    private void setClasses(Set<Class<?>> modifiedClasses) {
+        classes = Collections.unmodifiableSet(modifiedClasses);
+    }
 
-        if (testedClass == null) {
-            accept = acceptNull;
-        } else if (acceptSubClasses) {
-            accept = false;
+    private static boolean isAssignableToAny(Set<Class<?>> classes, Class<?> testedClass) {
+        boolean assignable = false;
+
+        if (testedClass.isArray()) {
+            // Array covariance is not part of the type hierarchies
             for (Class<?> clazz : classes) {
                 if (clazz.isAssignableFrom(testedClass)) {
-                    accept = true;
+                    assignable = true;
                     break;
                 }
             }
+        } else {
+            for (Class<?> type : TypeHierarchy.of(testedClass)) {
+                if (classes.contains(type)) {
+                    assignable = true;
+                    break;
+                }
+            }
+        }
+
+        return assignable;
+    }
+
+    protected boolean accept(Class<?> testedClass) {
+        boolean accept;
+
+        if (testedClass == null) {
+            accept = acceptNull;
+        } else if (acceptSubClasses) {
+            accept = isAssignableToAny(classes, testedClass);
         } else {
             accept = classes.contains(testedClass);
         }
@@ -0,0 +1,528 @@
+/*
+ * Copyright (c) 2017, LeanFrameworks
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.github.leanframeworks.minibus.base.filter;
+
+import com.github.leanframeworks.minibus.api.CompositeEventFilter;
+import com.github.leanframeworks.minibus.api.Event;
+import com.github.leanframeworks.minibus.api.EventFilter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Event filter compiling a composed event filter into a flat evaluation tree whose AND and OR operands are reordered
+ * according to their measured cost and selectivity.
+ * <p>
+ * The operands of AND operations are progressively ordered so that the cheapest operands rejecting the most events are
+ * evaluated first, and the operands of OR operations so that the cheapest operands accepting the most events are
+ * evaluated first. For this purpose, statistics are collected for every operand: the number of evaluations and
+ * acceptances are always counted, whereas the evaluation time is only measured for a random sample of the evaluations,
+ * or not at all if cost sampling is disabled.
+ * <p>
+ * The evaluation tree mirrors the structure of the composite event filter, which is already normalized when composing
+ * (see {@link CompositeEventFilter}).
+ * <p>
+ * Since the evaluation order may change, this event filter must only be used when the operands are independent from
+ * each other and have no side effects. In particular, an operand must not rely on another operand having accepted the
+ * event before (for example, checking the class of the content before casting it). For this reason, the event buses
+ * never apply it implicitly: the filters to be adapted must be wrapped explicitly when subscribing.
+ * <p>
+ * The statistics can be collected concurrently by several threads.
+ *
+ * @param <C> Type of content in the event.
+ * @see CompositeEventFilter
+ */
+public class AdaptiveEventFilter<C> implements EventFilter<C> {
+
+    /**
+     * Default average number of evaluations of an operand between two measurements of its evaluation time.
+     */
+    public static final int DEFAULT_COST_SAMPLING_INTERVAL = 16;
+
+    /**
+     * Average number of evaluations of an AND or OR operation between two reorderings of its operands.
+     */
+    private static final int REORDERING_INTERVAL = 1024;
+
+    /**
+     * Root of the compiled evaluation tree.
+     */
+    private final Node<C> root;
+
+    /**
+     * Statistics of the non-composite event filters, in their original order.
+     */
+    private final List<Leaf<C>> leaves = new ArrayList<>();
+
+    /**
+     * Constructor.
+     * <p>
+     * The operands will be reordered according to their measured cost and selectivity.
+     *
+     * @param filter Event filter to be compiled, typically composed with {@link EventFilter#and(EventFilter)}, {@link
+     *               EventFilter#or(EventFilter)} and {@link EventFilter#not()}.
+     */
+    public AdaptiveEventFilter(EventFilter<C> filter) {
+        this(filter, true);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param filter  Event filter to be compiled, typically composed with {@link EventFilter#and(EventFilter)}, {@link
+     *                EventFilter#or(EventFilter)} and {@link EventFilter#not()}.
+     * @param reorder True if the operands should be reordered according to their measured cost and selectivity, false
+     *                if only the statistics should be collected.
+     */
+    public AdaptiveEventFilter(EventFilter<C> filter, boolean reorder) {
+        this(filter, reorder, DEFAULT_COST_SAMPLING_INTERVAL);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param filter               Event filter to be compiled, typically composed with {@link
+     *                             EventFilter#and(EventFilter)}, {@link EventFilter#or(EventFilter)} and {@link
+     *                             EventFilter#not()}.
+     * @param reorder              True if the operands should be reordered according to their measured cost and
+     *                             selectivity, false if only the statistics should be collected.
+     * @param costSamplingInterval Average number of evaluations of an operand between two measurements of its
+     *                             evaluation time, or 0 to never measure it, in which case the operands are only
+     *                             reordered according to their selectivity.
+     */
+    public AdaptiveEventFilter(EventFilter<C> filter, boolean reorder, int costSamplingInterval) {
+        this.root = compile(filter, reorder, costSamplingInterval);
+    }
+
+    /**
+     * Compiles the specified event filter into an evaluation tree.
+     *
+     * @param filter               Event filter to be compiled.
+     * @param reorder              True if the operands should be reordered.
+     * @param costSamplingInterval Average number of evaluations between two measurements of the evaluation time, or 0
+     *                             to never measure it.
+     * @return Compiled evaluation tree.
+     */
+    private Node<C> compile(EventFilter<C> filter, boolean reorder, int costSamplingInterval) {
+        Node<C> node;
+
+        if (filter instanceof CompositeEventFilter) {
+            CompositeEventFilter<C> composite = (CompositeEventFilter<C>) filter;
+            List<Node<C>> operands = new ArrayList<>();
+            for (EventFilter<C> operand : composite.getOperands()) {
+                operands.add(compile(operand, reorder, costSamplingInterval));
+            }
+            if (composite.getOperator() == CompositeEventFilter.Operator.NOT) {
+                node = new Negation<>(operands.get(0), costSamplingInterval);
+            } else {
+                node = new Junction<>(composite.getOperator() == CompositeEventFilter.Operator.AND, operands,
+                        reorder, costSamplingInterval);
+            }
+        } else {
+            Leaf<C> leaf = new Leaf<>(filter, costSamplingInterval);
+            leaves.add(leaf);
+            node = leaf;
+        }
+
+        return node;
+    }
+
+    /**
+     * @see EventFilter#accept(Event)
+     */
+    @Override
+    public boolean accept(Event<C> event) {
+        return root.evaluate(event);
+    }
+
+    /**
+     * Gets a snapshot of the statistics collected for each non-composite event filter.
+     *
+     * @return Statistics, in the original order of the event filters.
+     */
+    public List<Statistics> getStatistics() {
+        List<Statistics> statistics = new ArrayList<>(leaves.size());
+        for (Leaf<C> leaf : leaves) {
+            statistics.add(new Statistics(leaf.filter, leaf.evaluationCount.sum(), leaf.acceptanceCount.sum(), leaf
+                    .getAverageCost()));
+        }
+        return Collections.unmodifiableList(statistics);
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[" + root + "]";
+    }
+
+    /**
+     * Snapshot of the statistics collected for an event filter.
+     */
+    public static final class Statistics {
+
+        /**
+         * Event filter for which the statistics were collected.
+         */
+        private final EventFilter<?> filter;
+
+        /**
+         * Number of times the event filter was evaluated.
+         */
+        private final long evaluationCount;
+
+        /**
+         * Number of times the event filter accepted the event.
+         */
+        private final long acceptanceCount;
+
+        /**
+         * Average sampled evaluation time, in nanoseconds.
+         */
+        private final double averageCost;
+
+        /**
+         * Constructor.
+         *
+         * @param filter          Event filter for which the statistics were collected.
+         * @param evaluationCount Number of times the event filter was evaluated.
+         * @param acceptanceCount Number of times the event filter accepted the event.
+         * @param averageCost     Average sampled evaluation time, in nanoseconds.
+         */
+        Statistics(EventFilter<?> filter, long evaluationCount, long acceptanceCount, double averageCost) {
+            this.filter = filter;
+            this.evaluationCount = evaluationCount;
+            this.acceptanceCount = acceptanceCount;
+            this.averageCost = averageCost;
+        }
+
+        /**
+         * Gets the event filter for which the statistics were collected.
+         *
+         * @return Event filter.
+         */
+        public EventFilter<?> getFilter() {
+            return filter;
+        }
+
+        /**
+         * Gets the number of times the event filter was evaluated.
+         *
+         * @return Evaluation count.
+         */
+        public long getEvaluationCount() {
+            return evaluationCount;
+        }
+
+        /**
+         * Gets the number of times the event filter accepted the event.
+         *
+         * @return Acceptance count.
+         */
+        public long getAcceptanceCount() {
+            return acceptanceCount;
+        }
+
+        /**
+         * Gets the average sampled evaluation time.
+         *
+         * @return Average evaluation time in nanoseconds, or 0 if not sampled yet.
+         */
+        public double getAverageCost() {
+            return averageCost;
+        }
+
+        @Override
+        public String toString() {
+            return filter + ": " + acceptanceCount + "/" + evaluationCount + " accepted, " + averageCost + " ns";
+        }
+    }
+
+    /**
+     * Node of the compiled evaluation tree, collecting its own statistics.
+     *
+     * @param <C> Type of content in the event.
+     */
+    private abstract static class Node<C> {
+
+        /**
+         * Number of times this node was evaluated.
+         */
+        final LongAdder evaluationCount = new LongAdder();
+
+        /**
+         * Number of times this node accepted the event.
+         */
+        final LongAdder acceptanceCount = new LongAdder();
+
+        /**
+         * Number of times the evaluation time of this node was sampled.
+         */
+        final LongAdder sampleCount = new LongAdder();
+
+        /**
+         * Sum of the sampled evaluation times of this node, in nanoseconds.
+         */
+        final LongAdder sampledCost = new LongAdder();
+
+        /**
+         * Average number of evaluations between two measurements of the evaluation time, or 0 to never measure it.
+         */
+        private final int costSamplingInterval;
+
+        /**
+         * Constructor.
+         *
+         * @param costSamplingInterval Average number of evaluations between two measurements of the evaluation time,
+         *                             or 0 to never measure it.
+         */
+        Node(int costSamplingInterval) {
+            this.costSamplingInterval = costSamplingInterval;
+        }
+
+        /**
+         * Evaluates this node for the specified event, collecting the statistics.
+         *
+         * @param event Event to be filtered in or out.
+         * @return True if the event is accepted, false otherwise.
+         */
+        final boolean evaluate(Event<C> event) {
+            boolean accepted;
+
+            // Sample randomly rather than every n-th evaluation, so that no shared counter has to be read
+            if ((costSamplingInterval > 0) && (ThreadLocalRandom.current().nextInt(costSamplingInterval) == 0)) {
+                long start = System.nanoTime();
+                accepted = doEvaluate(event);
+                sampledCost.add(System.nanoTime() - start);
+                sampleCount.increment();
+            } else {
+                accepted = doEvaluate(event);
+            }
+            evaluationCount.increment();
+            if (accepted) {
+                acceptanceCount.increment();
+            }
+
+            return accepted;
+        }
+
+        /**
+         * Evaluates this node for the specified event.
+         *
+         * @param event Event to be filtered in or out.
+         * @return True if the event is accepted, false otherwise.
+         */
+        abstract boolean doEvaluate(Event<C> event);
+
+        /**
+         * Gets the average sampled evaluation time of this node.
+         *
+         * @return Average evaluation time in nanoseconds, or 0 if not sampled yet.
+         */
+        final double getAverageCost() {
+            long samples = sampleCount.sum();
+            return (samples == 0) ? 0 : ((double) sampledCost.sum() / samples);
+        }
+
+        /**
+         * Gets the rate at which this node accepted the events.
+         *
+         * @return Acceptance rate between 0 and 1, or 0.5 if not evaluated yet.
+         */
+        final double getAcceptanceRate() {
+            long evaluations = evaluationCount.sum();
+            return (evaluations == 0) ? 0.5 : ((double) acceptanceCount.sum() / evaluations);
+        }
+    }
+
+    /**
+     * Node evaluating a non-composite event filter.
+     *
+     * @param <C> Type of content in the event.
+     */
+    private static final class Leaf<C> extends Node<C> {
+
+        /**
+         * Event filter to be evaluated.
+         */
+        private final EventFilter<C> filter;
+
+        /**
+         * Constructor.
+         *
+         * @param filter               Event filter to be evaluated.
+         * @param costSamplingInterval Average number of evaluations between two measurements of the evaluation time,
+         *                             or 0 to never measure it.
+         */
+        Leaf(EventFilter<C> filter, int costSamplingInterval) {
+            super(costSamplingInterval);
+            this.filter = filter;
+        }
+
+        /**
+         * @see Node#doEvaluate(Event)
+         */
+        @Override
+        boolean doEvaluate(Event<C> event) {
+            return filter.accept(event);
+        }
+
+        @Override
+        public String toString() {
+            return String.valueOf(filter);
+        }
+    }
+
+    /**
+     * Node negating another node.
+     *
+     * @param <C> Type of content in the event.
+     */
+    private static final class Negation<C> extends Node<C> {
+
+        /**
+         * Node to be negated.
+         */
+        private final Node<C> operand;
+
+        /**
+         * Constructor.
+         *
+         * @param operand              Node to be negated.
+         * @param costSamplingInterval Average number of evaluations between two measurements of the evaluation time,
+         *                             or 0 to never measure it.
+         */
+        Negation(Node<C> operand, int costSamplingInterval) {
+            super(costSamplingInterval);
+            this.operand = operand;
+        }
+
+        /**
+         * @see Node#doEvaluate(Event)
+         */
+        @Override
+        boolean doEvaluate(Event<C> event) {
+            return !operand.evaluate(event);
+        }
+
+        @Override
+        public String toString() {
+            return "NOT[" + operand + "]";
+        }
+    }
+
+    /**
+     * Node combining other nodes with an AND or OR operation, periodically reordering them.
+     *
+     * @param <C> Type of content in the event.
+     */
+    private static final class Junction<C> extends Node<C> {
+
+        /**
+         * True for an AND operation, false for an OR operation.
+         */
+        private final boolean conjunction;
+
+        /**
+         * True if the operands should be reordered.
+         */
+        private final boolean reorder;
+
+        /**
+         * Operands in their current evaluation order, replaced as a whole when reordered.
+         */
+        private volatile Node<C>[] operands;
+
+        /**
+         * Constructor.
+         *
+         * @param conjunction          True for an AND operation, false for an OR operation.
+         * @param operands             Operands in their original order.
+         * @param reorder              True if the operands should be reordered.
+         * @param costSamplingInterval Average number of evaluations between two measurements of the evaluation time,
+         *                             or 0 to never measure it.
+         */
+        @SuppressWarnings("unchecked")
+        Junction(boolean conjunction, List<Node<C>> operands, boolean reorder, int costSamplingInterval) {
+            super(costSamplingInterval);
+            this.conjunction = conjunction;
+            this.reorder = reorder;
+            this.operands = operands.toArray((Node<C>[]) new Node<?>[operands.size()]);
+        }
+
+        /**
+         * @see Node#doEvaluate(Event)
+         */
+        @Override
+        boolean doEvaluate(Event<C> event) {
+            if (reorder && (ThreadLocalRandom.current().nextInt(REORDERING_INTERVAL) == 0)) {
+                reorderOperands();
+            }
+
+            // Short-circuit as soon as an operand decides for the whole operation
+            boolean result = conjunction;
+            for (Node<C> operand : operands) {
+                if (operand.evaluate(event) != conjunction) {
+                    result = !conjunction;
+                    break;
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Sorts the operands by increasing cost per decisive evaluation, that is, the average cost divided by the rate
+         * at which the operand decides for the whole operation (rejection rate for AND, acceptance rate for OR).
+         */
+        private void reorderOperands() {
+            Node<C>[] reordered = operands.clone();
+            double[] ranks = new double[reordered.length];
+            for (int i = 0; i < reordered.length; i++) {
+                Node<C> operand = reordered[i];
+                double decisiveRate = conjunction ? (1 - operand.getAcceptanceRate()) : operand.getAcceptanceRate();
+                ranks[i] = Math.max(operand.getAverageCost(), 1) / Math.max(decisiveRate, 0.001);
+            }
+            Integer[] order = new Integer[reordered.length];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, Comparator.comparingDouble(i -> ranks[i]));
+            Node<C>[] sorted = reordered.clone();
+            for (int i = 0; i < order.length; i++) {
+                sorted[i] = reordered[order[i]];
+            }
+            operands = sorted;
+        }
+
+        @Override
+        public String toString() {
+            return (conjunction ? "AND" : "OR") + Arrays.toString(operands);
+        }
+    }
+}
@@ -28,16 +28,24 @@ package com.github.leanframeworks.minibus.base.filter;
 import com.github.leanframeworks.minibus.api.Event;
 import com.github.leanframeworks.minibus.api.EventFilter;
 import com.github.leanframeworks.minibus.api.Topic;
+import com.github.leanframeworks.minibus.base.topic.SimpleTopic;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 /**
  * Event filter implementation based on topics.
+ * <p>
+ * The topics are compiled into a bit set of simple topic indices, so that checking whether an event topic is covered
+ * by any of the simple topics is a single bit set intersection, regardless of the number of topics.
  *
+ * @see SimpleTopic#isCoveredByAny(BitSet)
  * @param <C> Type of content in the event.
  */
 public class TopicFilter<C> implements EventFilter<C> {
@@ -51,11 +59,11 @@ public class TopicFilter<C> implements EventFilter<C> {
     private final boolean accept;
 
     /**
-     * Topics for which the events are either accepted or rejected.
+     * Compiled topics for which the events are either accepted or rejected, replaced as a whole on every modification.
      *
      * @see #accept
      */
-    private final Set<Topic<? extends C>> topics;
+    private volatile CompiledTopics<C> topics;
 
     /**
      * Constructor.
@@ -106,7 +114,7 @@ public class TopicFilter<C> implements EventFilter<C> {
      */
     public TopicFilter(boolean accept, Collection<Topic<? extends C>> topics) {
         this.accept = accept;
-        this.topics = new HashSet<>(topics);
+        this.topics = new CompiledTopics<>(new HashSet<>(topics));
     }
 
     /**
@@ -114,8 +122,11 @@ public class TopicFilter<C> implements EventFilter<C> {
      *
      * @param topic Event topic to be added.
      */
-    public void addTopic(Topic<? extends C> topic) {
-        topics.add(topic);
+    public synchronized void addTopic(Topic<? extends C> topic) {
+        Set<Topic<? extends C>> modifiedTopics = new HashSet<>(topics.topics);
+        if (modifiedTopics.add(topic)) {
+            topics = new CompiledTopics<>(modifiedTopics);
+        }
     }
 
     /**
@@ -123,8 +134,11 @@ public class TopicFilter<C> implements EventFilter<C> {
      *
      * @param topic Event topic to be removed.
      */
-    public void removeTopic(Topic<? extends C> topic) {
-        topics.remove(topic);
+    public synchronized void removeTopic(Topic<? extends C> topic) {
+        Set<Topic<? extends C>> modifiedTopics = new HashSet<>(topics.topics);
+        if (modifiedTopics.remove(topic)) {
+            topics = new CompiledTopics<>(modifiedTopics);
+        }
     }
 
     /**
@@ -132,28 +146,88 @@ public class TopicFilter<C> implements EventFilter<C> {
      */
     @Override
     public boolean accept(Event<C> event) {
-        boolean result;
+        // If no topic specified, reject event if accepting (not accepted for any topic), or accept event if rejecting
+        // (not rejected for any topic)
+        return topics.cover(event.getTopic()) == accept;
+    }
 
-        if (accept) {
-            // If no topic specified, reject event (not accepted for any topic)
-            result = false;
+    /**
+     * Immutable set of topics, compiled for fast coverage checks.
+     *
+     * @param <C> Type of content in the event.
+     */
+    private static final class CompiledTopics<C> {
+
+        /**
+         * All topics.
+         */
+        private final Set<Topic<? extends C>> topics;
+
+        /**
+         * Indices of the simple topics.
+         */
+        private final BitSet simpleTopics = new BitSet();
+
+        /**
+         * Topics that are not simple topics.
+         */
+        private final List<Topic<? extends C>> otherTopics = new ArrayList<>();
+
+        /**
+         * Constructor.
+         *
+         * @param topics Topics to be compiled.
+         */
+        CompiledTopics(Set<Topic<? extends C>> topics) {
+            this.topics = Collections.unmodifiableSet(topics);
             for (Topic<? extends C> topic : topics) {
-                if (topic.covers(event.getTopic())) {
-                    result = true;
-                    break;
+                if (topic instanceof SimpleTopic) {
+                    simpleTopics.set(((SimpleTopic<?>) topic).getIndex());
+                } else if (topic != null) {
+                    otherTopics.add(topic);
                 }
             }
-        } else {
-            // If no topic specified, accept event (not rejected for any topic)
-            result = true;
-            for (Topic<? extends C> topic : topics) {
-                if (topic.covers(event.getTopic())) {
-                    result = false;
-                    break;
+        }
+
+        /**
+         * States whether any of the topics covers the specified topic.
+         *
+         * @param eventTopic Topic of the event.
+         * @return True if the event topic is covered, false otherwise.
+         */
+        boolean cover(Topic<?> eventTopic) {
+            boolean result = false;
+
+            if (eventTopic instanceof SimpleTopic) {
+                result = ((SimpleTopic<?>) eventTopic).isCoveredByAny(simpleTopics);
+                if (!result) {
+                    result = coveredByAny(otherTopics, eventTopic);
                 }
+            } else {
+                result = coveredByAny(topics, eventTopic);
             }
+
+            return result;
         }
 
-        return result;
+        /**
+         * States whether any of the specified topics covers the specified topic.
+         *
+         * @param coveringTopics Potentially covering topics.
+         * @param eventTopic     Topic of the event.
+         * @return True if the event topic is covered, false otherwise.
+         */
+        private static boolean coveredByAny(Collection<? extends Topic<?>> coveringTopics, Topic<?> eventTopic) {
+            boolean result = false;
+
+            for (Topic<?> topic : coveringTopics) {
+                if ((topic != null) && topic.covers(eventTopic)) {
+                    result = true;
+                    break;
+                }
+            }
+
+            return result;
+        }
     }
 }
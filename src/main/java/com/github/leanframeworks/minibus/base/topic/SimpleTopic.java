@@ -26,25 +26,57 @@
 package com.github.leanframeworks.minibus.base.topic;
 
 import com.github.leanframeworks.minibus.api.Topic;
+import com.github.leanframeworks.minibus.base.util.DenseIndexAllocator;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
 
 /**
  * Simple implementation of a topic that can be named (e.g. for logging and debugging purposes).
  * <p>
  * Note that two instances having the same contents will not be considered equal.
+ * <p>
+ * A simple topic can have several parent topics (see {@link #withParents(String, Topic[])}). The topics covering a
+ * simple topic are compiled into a transitive closure, indexed by dense topic indices, so that {@link #covers(Topic)}
+ * is a single bit test between simple topics, even with diamond-shaped hierarchies. Since the parent topics are not
+ * expected to change, this closure is only compiled once, on first use. The indices of the topics that have been
+ * garbage collected are reused, so the closures do not grow with the number of topics created over time.
  *
  * @param <C> Type of content that can be sent on this topic.
  */
 public class SimpleTopic<C> implements Topic<C> {
 
+    /**
+     * Allocator of the dense indices of the simple topics.
+     */
+    private static final DenseIndexAllocator INDEX_ALLOCATOR = new DenseIndexAllocator();
+
+    /**
+     * Dense index of this topic in the coverage bit sets.
+     */
+    private final int index = INDEX_ALLOCATOR.allocate(this);
+
     /**
      * Topic name.
      */
     private final String name;
 
     /**
-     * Parent topic covering this topic.
+     * Parent topics covering this topic.
      */
-    private final Topic<? super C> parent;
+    private final List<Topic<? super C>> parents;
+
+    /**
+     * Compiled transitive closure of the topics covering this topic, or null if not compiled yet.
+     */
+    private volatile Coverage coverage = null;
 
     /**
      * Constructor.
@@ -52,7 +84,7 @@ public class SimpleTopic<C> implements Topic<C> {
      * A unique name will be chosen.
      */
     public SimpleTopic() {
-        this(null, null);
+        this(null, Collections.emptyList());
     }
 
     /**
@@ -64,7 +96,7 @@ public class SimpleTopic<C> implements Topic<C> {
      * @param name Unique name or null.
      */
     public SimpleTopic(String name) {
-        this(name, null);
+        this(name, Collections.emptyList());
     }
 
     /**
@@ -86,12 +118,44 @@ public class SimpleTopic<C> implements Topic<C> {
      * @param parent Parent topic covering this topic, or null.
      */
     public SimpleTopic(String name, Topic<? super C> parent) {
+        this(name, (parent == null) ? Collections.emptyList() : Collections.singletonList(parent));
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param name    Unique name or null.
+     * @param parents Non-null parent topics covering this topic, not to be modified after this call.
+     */
+    private SimpleTopic(String name, List<Topic<? super C>> parents) {
         if (name == null) {
             this.name = Topic.super.getName();
         } else {
             this.name = name;
         }
-        this.parent = parent;
+        this.parents = Collections.unmodifiableList(parents);
+    }
+
+    /**
+     * Creates a topic covered by several parent topics.
+     * <p>
+     * The specified name should either be unique or null. If it is null, a unique name will be chosen (different for
+     * each instance).
+     *
+     * @param name    Unique name or null.
+     * @param parents Parent topics covering the topic, null ones being ignored.
+     * @param <C>     Type of content that can be sent on the topic.
+     * @return Newly created topic.
+     */
+    @SafeVarargs
+    public static <C> SimpleTopic<C> withParents(String name, Topic<? super C>... parents) {
+        List<Topic<? super C>> nonNullParents = new ArrayList<>(parents.length);
+        for (Topic<? super C> parent : parents) {
+            if (parent != null) {
+                nonNullParents.add(parent);
+            }
+        }
+        return new SimpleTopic<>(name, nonNullParents);
     }
 
     /**
@@ -107,14 +171,128 @@ public class SimpleTopic<C> implements Topic<C> {
      */
     @Override
     public Topic<? super C> getParentTopic() {
-        return parent;
+        return parents.isEmpty() ? null : parents.get(0);
+    }
+
+    /**
+     * @see Topic#getParentTopics()
+     */
+    @Override
+    public Collection<Topic<? super C>> getParentTopics() {
+        return parents;
+    }
+
+    /**
+     * Gets the dense index of this topic, unique among the simple topics that have not been garbage collected.
+     * <p>
+     * This index can be used to represent sets of simple topics as bit sets.
+     *
+     * @return Topic index.
+     * @see #isCoveredByAny(BitSet)
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * States whether this topic is covered by any of the simple topics whose indices are set in the specified bit set.
+     *
+     * @param topicIndices Indices of simple topics.
+     * @return True if at least one of the specified topics covers this topic, false otherwise.
+     * @see #getIndex()
+     */
+    public boolean isCoveredByAny(BitSet topicIndices) {
+        return getCoverage().simpleTopics.intersects(topicIndices);
+    }
+
+    /**
+     * @see Topic#covers(Topic)
+     */
+    @Override
+    public boolean covers(Topic<?> topic) {
+        boolean result;
+
+        if (topic instanceof SimpleTopic) {
+            result = ((SimpleTopic<?>) topic).getCoverage().simpleTopics.get(index);
+        } else {
+            // Other kinds of topics may have their own coverage logic
+            result = Topic.super.covers(topic);
+        }
+
+        return result;
+    }
+
+    /**
+     * Gets the compiled transitive closure of the topics covering this topic, compiling it if needed.
+     *
+     * @return Coverage.
+     */
+    private Coverage getCoverage() {
+        Coverage compiledCoverage = coverage;
+        if (compiledCoverage == null) {
+            compiledCoverage = compileCoverage();
+            coverage = compiledCoverage;
+        }
+        return compiledCoverage;
+    }
+
+    /**
+     * Compiles the transitive closure of the topics covering this topic, including itself.
+     * <p>
+     * The parents of the topics that are not simple topics are followed as well, so that the simple topics covering
+     * them are also part of the closure.
+     *
+     * @return Compiled coverage.
+     */
+    private Coverage compileCoverage() {
+        BitSet simpleTopics = new BitSet();
+        Set<Topic<?>> otherTopics = new LinkedHashSet<>();
+
+        Deque<Topic<?>> toBeVisited = new ArrayDeque<>();
+        simpleTopics.set(index);
+        toBeVisited.push(this);
+        while (!toBeVisited.isEmpty()) {
+            for (Topic<?> parent : toBeVisited.pop().getParentTopics()) {
+                if (parent instanceof SimpleTopic) {
+                    SimpleTopic<?> simpleParent = (SimpleTopic<?>) parent;
+                    if (!simpleTopics.get(simpleParent.index)) {
+                        simpleTopics.set(simpleParent.index);
+                        toBeVisited.push(simpleParent);
+                    }
+                } else if ((parent != null) && otherTopics.add(parent)) {
+                    toBeVisited.push(parent);
+                }
+            }
+        }
+
+        return new Coverage(simpleTopics);
+    }
+
+    /**
+     * Immutable transitive closure of the topics covering a simple topic.
+     */
+    private static final class Coverage {
+
+        /**
+         * Indices of the covering simple topics.
+         */
+        private final BitSet simpleTopics;
+
+        /**
+         * Constructor.
+         *
+         * @param simpleTopics Indices of the covering simple topics.
+         */
+        Coverage(BitSet simpleTopics) {
+            this.simpleTopics = simpleTopics;
+        }
     }
 
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder(getClass().getSimpleName());
         sb.append('[').append(name);
-        if (parent != null) {
+        for (Topic<? super C> parent : parents) {
             sb.append("; ").append(parent);
         }
         sb.append(']');
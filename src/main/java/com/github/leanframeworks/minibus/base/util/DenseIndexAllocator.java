@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2017, LeanFrameworks
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.github.leanframeworks.minibus.base.util;
+
+import java.lang.ref.PhantomReference;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Allocator of dense indices, unique among the live owners of the indices.
+ * <p>
+ * The index of an owner is released once the owner has been garbage collected, and is then reused for a new owner.
+ * This way, the indices remain bounded by the peak number of live owners, and so do the bit sets indexed by them,
+ * however many owners are created over time.
+ * <p>
+ * Note that reusing an index is only safe if every bit set holding it also strongly references its owner, so that
+ * the owner cannot be collected while the index is still in use.
+ */
+public final class DenseIndexAllocator {
+
+    /**
+     * Indices currently allocated to live owners, or to owners whose collection has not been noticed yet.
+     */
+    private final BitSet allocatedIndices = new BitSet();
+
+    /**
+     * References to the owners of the allocated indices, kept reachable until their owners are collected.
+     */
+    private final Set<IndexReference> ownerReferences = new HashSet<>();
+
+    /**
+     * Queue notified when the owners of allocated indices have been garbage collected.
+     */
+    private final ReferenceQueue<Object> collectedOwners = new ReferenceQueue<>();
+
+    /**
+     * Allocates the lowest index that is not used by any live owner.
+     *
+     * @param owner Object to which the index is allocated.
+     * @return Allocated index.
+     */
+    public synchronized int allocate(Object owner) {
+        releaseCollectedIndices();
+        int index = allocatedIndices.nextClearBit(0);
+        allocatedIndices.set(index);
+        ownerReferences.add(new IndexReference(owner, index, collectedOwners));
+        return index;
+    }
+
+    /**
+     * Gets the number of indices currently allocated, mostly useful for testing purposes.
+     *
+     * @return Number of allocated indices, including the ones of owners collected since the last allocation.
+     */
+    public synchronized int getAllocatedCount() {
+        releaseCollectedIndices();
+        return ownerReferences.size();
+    }
+
+    /**
+     * Releases the indices of the owners that have been garbage collected.
+     */
+    private void releaseCollectedIndices() {
+        Reference<?> reference = collectedOwners.poll();
+        while (reference != null) {
+            IndexReference indexReference = (IndexReference) reference;
+            ownerReferences.remove(indexReference);
+            allocatedIndices.clear(indexReference.index);
+            reference = collectedOwners.poll();
+        }
+    }
+
+    /**
+     * Reference to the owner of an index, notified once the owner has been garbage collected.
+     */
+    private static final class IndexReference extends PhantomReference<Object> {
+
+        /**
+         * Index allocated to the referenced owner.
+         */
+        private final int index;
+
+        /**
+         * Constructor.
+         *
+         * @param owner Owner of the index.
+         * @param index Index allocated to the owner.
+         * @param queue Queue to be notified when the owner has been garbage collected.
+         */
+        IndexReference(Object owner, int index, ReferenceQueue<Object> queue) {
+            super(owner, queue);
+            this.index = index;
+        }
+    }
+}
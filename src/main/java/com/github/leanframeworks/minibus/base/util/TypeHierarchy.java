@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2017, LeanFrameworks
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.github.leanframeworks.minibus.base.util;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Type hierarchies of classes, computed only once per class.
+ * <p>
+ * The type hierarchy of a class is made of the class itself, its super classes and then all the interfaces it
+ * implements, directly or not. A class is assignable to a type if and only if the type is part of its hierarchy,
+ * except for the covariance of array classes.
+ */
+public final class TypeHierarchy {
+
+    /**
+     * Type hierarchies, cached per class.
+     */
+    private static final ClassValue<Class<?>[]> TYPES = new ClassValue<Class<?>[]>() {
+        @Override
+        protected Class<?>[] computeValue(Class<?> type) {
+            Set<Class<?>> typeHierarchy = new LinkedHashSet<>();
+            for (Class<?> clazz = type; clazz != null; clazz = clazz.getSuperclass()) {
+                typeHierarchy.add(clazz);
+            }
+            List<Class<?>> types = new ArrayList<>(typeHierarchy);
+            for (int i = 0; i < types.size(); i++) {
+                for (Class<?> interfaceClass : types.get(i).getInterfaces()) {
+                    if (typeHierarchy.add(interfaceClass)) {
+                        types.add(interfaceClass);
+                    }
+                }
+            }
+            return typeHierarchy.toArray(new Class<?>[typeHierarchy.size()]);
+        }
+    };
+
+    /**
+     * Private constructor for utility class.
+     */
+    private TypeHierarchy() {
+        // Nothing to be done
+    }
+
+    /**
+     * Gets the type hierarchy of the specified class: the class itself, its super classes and then all the interfaces
+     * it implements.
+     *
+     * @param clazz Class whose type hierarchy is to be retrieved.
+     * @return Shared array of types, not to be modified.
+     */
+    public static Class<?>[] of(Class<?> clazz) {
+        return TYPES.get(clazz);
+    }
+}
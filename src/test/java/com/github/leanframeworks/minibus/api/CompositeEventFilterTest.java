@@ -0,0 +1,54 @@
+package com.github.leanframeworks.minibus.api;
+
+import com.github.leanframeworks.minibus.base.channel.BroadcastChannel;
+import com.github.leanframeworks.minibus.base.topic.SimpleTopic;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class CompositeEventFilterTest {
+
+    private static final Topic<Integer> INTEGER = new SimpleTopic<>("integer");
+
+    private static final EventFilter<Integer> EVEN = e -> (e.getContent() % 2) == 0;
+    private static final EventFilter<Integer> MULTIPLE_OF_3 = e -> (e.getContent() % 3) == 0;
+    private static final EventFilter<Integer> MULTIPLE_OF_5 = e -> (e.getContent() % 5) == 0;
+    private static final EventFilter<Integer> SMALL = e -> e.getContent() < 50;
+
+    @Test
+    public void flattenSuccessiveOperationsOfSameKind() {
+        CompositeEventFilter<Integer> and = (CompositeEventFilter<Integer>) EVEN.and(MULTIPLE_OF_3.and
+                (MULTIPLE_OF_5)).and(SMALL);
+        assertEquals(CompositeEventFilter.Operator.AND, and.getOperator());
+        assertEquals(Arrays.asList(EVEN, MULTIPLE_OF_3, MULTIPLE_OF_5, SMALL), and.getOperands());
+
+        CompositeEventFilter<Integer> or = (CompositeEventFilter<Integer>) EVEN.or(MULTIPLE_OF_3).or(SMALL.and
+                (MULTIPLE_OF_5));
+        assertEquals(CompositeEventFilter.Operator.OR, or.getOperator());
+        assertEquals(3, or.getOperands().size());
+        assertEquals(CompositeEventFilter.Operator.AND, ((CompositeEventFilter<Integer>) or.getOperands().get(2))
+                .getOperator());
+    }
+
+    @Test
+    public void removeDoubleNegations() {
+        assertSame(EVEN, EVEN.not().not());
+        EventFilter<Integer> and = EVEN.and(SMALL);
+        assertSame(and, and.not().not());
+    }
+
+    @Test
+    public void evaluateLikeTheOperandsWouldBe() {
+        EventFilter<Integer> composite = EVEN.and(MULTIPLE_OF_3.or(MULTIPLE_OF_5.not())).or(SMALL.not().not()
+                .and(MULTIPLE_OF_5));
+        for (int i = 0; i < 100; i++) {
+            Event<Integer> event = new Event<>(INTEGER, BroadcastChannel.getInstance(), i);
+            boolean expected = (EVEN.accept(event) && (MULTIPLE_OF_3.accept(event) || !MULTIPLE_OF_5.accept(event)))
+                    || (SMALL.accept(event) && MULTIPLE_OF_5.accept(event));
+            assertEquals("Content " + i, expected, composite.accept(event));
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.github.leanframeworks.minibus.api;
+
+import com.github.leanframeworks.minibus.base.channel.BroadcastChannel;
+import com.github.leanframeworks.minibus.base.topic.SimpleTopic;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class TrackedEventTest {
+
+    private static final Topic<Integer> INTEGER = new SimpleTopic<>("integer");
+
+    @Test
+    public void completeOnceAllOutcomesAreRecorded() throws Exception {
+        TrackedEvent<Integer> event = new TrackedEvent<>(INTEGER, BroadcastChannel.getInstance(), 1);
+        event.expectOutcomes(2);
+        event.recordOutcome(null, DeliveryReport.Outcome.DELIVERED, null);
+        assertFalse(event.getCompletion().isDone());
+        event.recordOutcome(null, DeliveryReport.Outcome.FILTERED, null);
+
+        DeliveryReport<Integer> report = event.getCompletion().get(10, TimeUnit.SECONDS);
+        assertEquals(2, report.size());
+        assertEquals(DeliveryReport.Outcome.DELIVERED, report.getOutcome(0));
+        assertEquals(DeliveryReport.Outcome.FILTERED, report.getOutcome(1));
+        assertFalse(report.isDiscarded());
+    }
+
+    @Test
+    public void ignoreOutcomesRecordedAfterDiscard() throws Exception {
+        TrackedEvent<Integer> event = new TrackedEvent<>(INTEGER, BroadcastChannel.getInstance(), 1);
+        event.expectOutcomes(3);
+        event.recordOutcome(null, DeliveryReport.Outcome.DELIVERED, null);
+        event.discard();
+        DeliveryReport<Integer> report = event.getCompletion().get(10, TimeUnit.SECONDS);
+
+        event.recordOutcome(null, DeliveryReport.Outcome.FAILED, new RuntimeException("Late"));
+        assertTrue(report.isDiscarded());
+        assertEquals(1, report.size());
+        assertEquals(1, report.count(DeliveryReport.Outcome.DELIVERED));
+        assertEquals(0, report.count(DeliveryReport.Outcome.FAILED));
+    }
+
+    @Test
+    public void onlyReportFullyRecordedOutcomesWhenDiscardedConcurrently() throws Exception {
+        for (int iteration = 0; iteration < 200; iteration++) {
+            TrackedEvent<Integer> event = new TrackedEvent<>(INTEGER, BroadcastChannel.getInstance(), iteration);
+            int writerCount = 4;
+            int outcomeCountPerWriter = 50;
+            event.expectOutcomes(writerCount * outcomeCountPerWriter);
+            CountDownLatch start = new CountDownLatch(1);
+            List<Thread> writers = new ArrayList<>();
+            for (int i = 0; i < writerCount; i++) {
+                Thread writer = new Thread(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    for (int j = 0; j < outcomeCountPerWriter; j++) {
+                        event.recordOutcome(null, DeliveryReport.Outcome.DELIVERED, null);
+                    }
+                });
+                writer.start();
+                writers.add(writer);
+            }
+
+            start.countDown();
+            event.discard();
+            DeliveryReport<Integer> report = event.getCompletion().get(10, TimeUnit.SECONDS);
+            int size = report.size();
+            for (Thread writer : writers) {
+                writer.join(10000);
+            }
+
+            // Late writers must neither expose half-written entries nor modify the report
+            assertEquals(size, report.size());
+            for (int i = 0; i < size; i++) {
+                assertNotNull(report.getOutcome(i));
+            }
+            assertEquals(size, report.count(DeliveryReport.Outcome.DELIVERED));
+        }
+    }
+}
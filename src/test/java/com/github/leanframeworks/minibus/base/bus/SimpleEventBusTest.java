@@ -26,17 +26,51 @@
 package com.github.leanframeworks.minibus.base.bus;
 
 import com.github.leanframeworks.minibus.api.Channel;
+import com.github.leanframeworks.minibus.api.DeliveryReport;
+import com.github.leanframeworks.minibus.api.DispatchTable;
+import com.github.leanframeworks.minibus.api.Dispatcher;
 import com.github.leanframeworks.minibus.api.Event;
 import com.github.leanframeworks.minibus.api.EventFilter;
 import com.github.leanframeworks.minibus.api.EventHandler;
+import com.github.leanframeworks.minibus.api.ExceptionHandler;
+import com.github.leanframeworks.minibus.api.RequestEvent;
 import com.github.leanframeworks.minibus.api.Topic;
+import com.github.leanframeworks.minibus.base.channel.BroadcastChannel;
 import com.github.leanframeworks.minibus.base.channel.SimpleChannel;
 import com.github.leanframeworks.minibus.base.dispatcher.CurrentThreadDispatcher;
+import com.github.leanframeworks.minibus.base.dispatcher.ThreadPoolDispatcher;
 import com.github.leanframeworks.minibus.base.topic.SimpleTopic;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.io.Serializable;
+import java.lang.ref.Reference;
+import java.lang.reflect.Array;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 
@@ -144,6 +178,609 @@ public class SimpleEventBusTest {
         BUS.publish(OtherTopics.EXTENDS_VOID, null);
     }
 
+    @Test
+    public void deliverToSubscribersOfCoveringTopics() {
+        SimpleEventBus bus = new SimpleEventBus(new CurrentThreadDispatcher(CurrentThreadDispatcher
+                .NestedDispatchStrategy.PROCESS_IMMEDIATELY));
+        List<String> received = new ArrayList<>();
+
+        bus.subscribe(OtherTopics.OBJECT, e -> received.add("object:" + e.getContent()));
+        bus.subscribe(OtherTopics.NUMBER, e -> received.add("number:" + e.getContent()));
+        bus.subscribe(OtherTopics.INTEGER, e -> received.add("integer:" + e.getContent()));
+
+        bus.publish(OtherTopics.INTEGER, 1);
+        assertEquals(Arrays.asList("object:1", "number:1", "integer:1"), received);
+
+        received.clear();
+        bus.publish(OtherTopics.NUMBER, 2.0);
+        assertEquals(Arrays.asList("object:2.0", "number:2.0"), received);
+
+        received.clear();
+        bus.publish(OtherTopics.VOID, null);
+        assertEquals(Arrays.asList("object:null"), received);
+
+        // Subscriptions added later must also be taken into account
+        received.clear();
+        bus.subscribe(OtherTopics.VOID, e -> received.add("void:" + e.getContent()));
+        bus.publish(OtherTopics.VOID, null);
+        assertEquals(Arrays.asList("object:null", "void:null"), received);
+
+        bus.dispose();
+    }
+
+    @Test
+    public void unsubscribeByIdHandlerAndTopic() {
+        SimpleEventBus bus = new SimpleEventBus(new CurrentThreadDispatcher(CurrentThreadDispatcher
+                .NestedDispatchStrategy.PROCESS_IMMEDIATELY));
+        List<String> received = new ArrayList<>();
+        EventHandler<Object> sharedHandler = e -> received.add("shared:" + e.getContent());
+
+        int id = bus.subscribe(ConnectionTopics.SERVER_ADDRESS, e -> received.add("id:" + e.getContent()));
+        bus.subscribe(ConnectionTopics.SERVER_ADDRESS, sharedHandler);
+        bus.subscribe(LoginTopics.USERNAME, sharedHandler);
+        bus.subscribe(LoginTopics.USERNAME, e -> received.add("topic:" + e.getContent()));
+
+        bus.unsubscribe(id);
+        bus.publish(ConnectionTopics.SERVER_ADDRESS, "a");
+        assertEquals(Arrays.asList("shared:a"), received);
+
+        received.clear();
+        bus.unsubscribe(sharedHandler);
+        bus.publish(ConnectionTopics.SERVER_ADDRESS, "b");
+        bus.publish(LoginTopics.USERNAME, "c");
+        assertEquals(Arrays.asList("topic:c"), received);
+
+        received.clear();
+        bus.unsubscribe(LoginTopics.USERNAME);
+        bus.publish(LoginTopics.USERNAME, "d");
+        assertEquals(0, received.size());
+        assertEquals(0, bus.topicToSubscription.size());
+        assertEquals(0, bus.idToSubscription.size());
+
+        bus.dispose();
+    }
+
+    @Test
+    public void subscribeUnsubscribeAndPublishConcurrently() throws InterruptedException {
+        SimpleEventBus bus = new SimpleEventBus(new CurrentThreadDispatcher(CurrentThreadDispatcher
+                .NestedDispatchStrategy.PROCESS_IMMEDIATELY));
+        int publisherCount = 3;
+        int churnerCount = 3;
+        int eventCountPerPublisher = 20000;
+        AtomicLong sequence = new AtomicLong();
+        Set<Object> received = ConcurrentHashMap.newKeySet();
+        AtomicInteger duplicateCount = new AtomicInteger();
+        AtomicInteger lateCount = new AtomicInteger();
+        AtomicInteger publishersLeft = new AtomicInteger(publisherCount);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+
+        bus.subscribe(ConnectionTopics.SERVER_ADDRESS, e -> {
+            if (!received.add(e.getContent())) {
+                duplicateCount.incrementAndGet();
+            }
+        });
+
+        for (int i = 0; i < publisherCount; i++) {
+            threads.add(new Thread(() -> {
+                awaitQuietly(start);
+                for (int j = 0; j < eventCountPerPublisher; j++) {
+                    bus.publish(ConnectionTopics.SERVER_ADDRESS, String.valueOf(sequence.incrementAndGet()));
+                }
+                publishersLeft.decrementAndGet();
+            }));
+        }
+        for (int i = 0; i < churnerCount; i++) {
+            threads.add(new Thread(() -> {
+                awaitQuietly(start);
+                while (publishersLeft.get() > 0) {
+                    // Events numbered after the unsubscription returned must not be delivered
+                    AtomicLong unsubscribedAt = new AtomicLong(Long.MAX_VALUE);
+                    int id = bus.subscribe(ConnectionTopics.SERVER_ADDRESS, e -> {
+                        if (Long.parseLong(e.getContent()) > unsubscribedAt.get()) {
+                            lateCount.incrementAndGet();
+                        }
+                    });
+                    bus.unsubscribe(id);
+                    unsubscribedAt.set(sequence.get());
+                }
+            }));
+        }
+
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join(TimeUnit.SECONDS.toMillis(30));
+        }
+
+        assertEquals(publisherCount * eventCountPerPublisher, received.size());
+        assertEquals(0, duplicateCount.get());
+        assertEquals(0, lateCount.get());
+        assertEquals(1, bus.getDispatchTable(ConnectionTopics.SERVER_ADDRESS).size());
+
+        bus.dispose();
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Test
+    public void keepDispatchTablesFlatUnderSubscriptionChurn() {
+        // Record the size of the dispatch table handed to the dispatcher for each event
+        List<Integer> dispatchedTableSizes = new ArrayList<>();
+        Dispatcher dispatcher = new CurrentThreadDispatcher(CurrentThreadDispatcher.NestedDispatchStrategy
+                .PROCESS_IMMEDIATELY) {
+            @Override
+            public void dispatch(Event<Object> event, DispatchTable dispatchTable,
+                                 Collection<EventHandler<Object>> undeliveredEventHandlers,
+                                 Collection<ExceptionHandler> exceptionHandlers) {
+                dispatchedTableSizes.add(dispatchTable.size());
+                super.dispatch(event, dispatchTable, undeliveredEventHandlers, exceptionHandlers);
+            }
+        };
+        SimpleEventBus bus = new SimpleEventBus(dispatcher);
+        List<Object> received = new ArrayList<>();
+        bus.subscribe(ConnectionTopics.SERVER_ADDRESS, e -> received.add(e.getContent()));
+
+        int sessionCount = 10000;
+        for (int i = 0; i < sessionCount; i++) {
+            EventHandler<Object> sessionHandler = e -> received.add(e.getContent());
+            int id = bus.subscribe(ConnectionTopics.SERVER_ADDRESS, sessionHandler);
+            bus.subscribe(ConnectionTopics.DO_CONNECT, sessionHandler);
+            bus.subscribe(LoginTopics.DO_LOGIN, sessionHandler);
+            bus.publish(ConnectionTopics.SERVER_ADDRESS, "session");
+            if ((i % 2) == 0) {
+                bus.unsubscribe(id);
+                bus.unsubscribe(sessionHandler);
+            } else {
+                bus.unsubscribe(sessionHandler);
+            }
+            assertTrue(bus.topicToSubscription.size() <= 3);
+        }
+
+        // Each publication only iterated over the live subscriptions, however many came and went before
+        assertEquals(sessionCount, dispatchedTableSizes.size());
+        assertEquals(Collections.singleton(2), new HashSet<>(dispatchedTableSizes));
+        assertEquals(2 * sessionCount, received.size());
+        assertEquals(1, bus.topicToSubscription.size());
+        assertEquals(1, bus.idToSubscription.size());
+
+        dispatchedTableSizes.clear();
+        received.clear();
+        bus.publish(ConnectionTopics.SERVER_ADDRESS, "last");
+        assertEquals(Collections.singletonList(1), dispatchedTableSizes);
+        assertEquals(Arrays.asList("last"), received);
+
+        bus.dispose();
+    }
+
+    @Test
+    public void expungeGarbageCollectedWeakSubscriptions() throws InterruptedException {
+        SimpleEventBus bus = new SimpleEventBus(new CurrentThreadDispatcher(CurrentThreadDispatcher
+                .NestedDispatchStrategy.PROCESS_IMMEDIATELY));
+        List<Object> received = new ArrayList<>();
+        EventHandler<Object> strongHandler = e -> received.add("strong");
+        EventHandler<Object> weakHandler = e -> received.add("weak");
+
+        bus.subscribe(LoginTopics.PASSWORD, strongHandler);
+        bus.subscribe(LoginTopics.PASSWORD, null, null, weakHandler, true);
+        assertEquals(2, bus.getDispatchTable(LoginTopics.PASSWORD).size());
+
+        // Only the bus references the weak handler from now on
+        ReferenceQueue<EventHandler<Object>> collected = new ReferenceQueue<>();
+        WeakReference<EventHandler<Object>> weakHandlerReference = new WeakReference<>(weakHandler, collected);
+        weakHandler = null;
+        Reference<?> collectedReference = null;
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while ((collectedReference == null) && (System.nanoTime() < deadline)) {
+            System.gc();
+            collectedReference = collected.remove(100);
+        }
+        if (collectedReference != weakHandlerReference) {
+            fail("Weak handler was not garbage collected within 10 seconds: the bus may still strongly reference it");
+        }
+
+        bus.publish(LoginTopics.PASSWORD, "secret");
+        assertEquals(Arrays.asList("strong"), received);
+        assertEquals(1, bus.getDispatchTable(LoginTopics.PASSWORD).size());
+        assertEquals(1, bus.idToSubscription.size());
+
+        bus.dispose();
+    }
+
+    @Test
+    public void deliverOnlyToSubscribersOfChannelsFlowedInto() {
+        SimpleEventBus bus = new SimpleEventBus(new CurrentThreadDispatcher(CurrentThreadDispatcher
+                .NestedDispatchStrategy.PROCESS_IMMEDIATELY));
+        List<String> received = new ArrayList<>();
+        SimpleChannel subChannel = new SimpleChannel("sub");
+        SimpleChannel mainChannel = new SimpleChannel("main", subChannel);
+
+        bus.subscribe(ConnectionTopics.SERVER_ADDRESS, e -> received.add("dedicated"));
+        bus.subscribe(ConnectionTopics.SERVER_ADDRESS, mainChannel, e -> received.add("main"));
+        bus.subscribe(ConnectionTopics.SERVER_ADDRESS, subChannel, e -> received.add("sub"));
+        bus.subscribe(ConnectionTopics.SERVER_ADDRESS, SpecificChannels.LOGIN, e -> received.add("login"));
+
+        bus.publish(ConnectionTopics.SERVER_ADDRESS, "broadcast");
+        assertEquals(Arrays.asList("dedicated", "main", "sub", "login"), received);
+
+        received.clear();
+        bus.publish(ConnectionTopics.SERVER_ADDRESS, mainChannel, "main");
+        assertEquals(Arrays.asList("main", "sub"), received);
+
+        received.clear();
+        bus.publish(ConnectionTopics.SERVER_ADDRESS, subChannel, "sub");
+        assertEquals(Arrays.asList("sub"), received);
+
+        received.clear();
+        bus.publish(ConnectionTopics.SERVER_ADDRESS, SpecificChannels.LOGIN, "login");
+        assertEquals(Arrays.asList("login"), received);
+
+        // Changes in the channel flows must be taken into account
+        received.clear();
+        subChannel.addSubChannel(SpecificChannels.LOGIN);
+        bus.publish(ConnectionTopics.SERVER_ADDRESS, mainChannel, "main");
+        assertEquals(Arrays.asList("main", "sub", "login"), received);
+
+        bus.dispose();
+    }
+
+    @Test
+    public void boundResolvedDispatchTablesOfDynamicTopicsAndChannels() {
+        SimpleEventBus bus = new SimpleEventBus(new CurrentThreadDispatcher(CurrentThreadDispatcher
+                .NestedDispatchStrategy.PROCESS_IMMEDIATELY));
+        List<Object> received = new ArrayList<>();
+        SimpleTopic<Object> entities = new SimpleTopic<>("entities");
+        bus.subscribe(entities, e -> received.add(e.getContent()));
+
+        // One topic per entity
+        int entityCount = 3 * AbstractEventBus.MAX_CACHED_TOPICS;
+        for (int i = 0; i < entityCount; i++) {
+            bus.publish(new SimpleTopic<>("entity-" + i, entities), i);
+            assertTrue(bus.getResolvedTopicCount() <= AbstractEventBus.MAX_CACHED_TOPICS);
+        }
+        assertEquals(entityCount, received.size());
+
+        // One channel per entity
+        received.clear();
+        SimpleChannel sessions = new SimpleChannel("sessions");
+        bus.subscribe(entities, sessions, e -> received.add(e.getContent()));
+        int sessionCount = 3 * AbstractEventBus.MAX_CACHED_CHANNELS;
+        for (int i = 0; i < sessionCount; i++) {
+            bus.publish(entities, new SimpleChannel("session-" + i, sessions), i);
+            assertTrue(bus.getResolvedChannelCount(entities) <= AbstractEventBus.MAX_CACHED_CHANNELS);
+        }
+        assertEquals(sessionCount, received.size());
+
+        // One content class per entity, as many array classes as dimensions and component types
+        List<Object> receivedByContentClass = new ArrayList<>();
+        bus.subscribe(Serializable.class, e -> receivedByContentClass.add(e.getContent()));
+        List<Class<?>> componentTypes = Arrays.asList(Integer.class, Long.class, String.class);
+        int maxDimensionCount = 255;
+        for (Class<?> componentType : componentTypes) {
+            for (int i = 1; i <= maxDimensionCount; i++) {
+                bus.publish(entities, Array.newInstance(componentType, new int[i]));
+                assertTrue(bus.getResolvedContentClassCount(entities) <= AbstractEventBus
+                        .MAX_CACHED_CONTENT_CLASSES);
+            }
+        }
+        assertEquals(componentTypes.size() * maxDimensionCount, receivedByContentClass.size());
+
+        bus.dispose();
+    }
+
+    @Test
+    public void resolveAgainOnlyDispatchTablesAffectedBySubscriptionChanges() {
+        SimpleEventBus bus = new SimpleEventBus(new CurrentThreadDispatcher(CurrentThreadDispatcher
+                .NestedDispatchStrategy.PROCESS_IMMEDIATELY));
+        List<String> received = new ArrayList<>();
+        Topic<Object> orders = new SimpleTopic<>("orders");
+        Topic<Object> euOrders = new SimpleTopic<>("orders.eu", orders);
+        Topic<Object> users = new SimpleTopic<>("users");
+        bus.subscribe(orders, e -> received.add("orders"));
+        bus.publish(orders, "1");
+        bus.publish(euOrders, "2");
+        bus.publish(users, "3");
+        assertEquals(3, bus.getResolvedTopicCount());
+
+        // Only the topics covered by the topic of the subscription are resolved again
+        int euOrdersId = bus.subscribe(euOrders, e -> received.add("eu"));
+        assertEquals(2, bus.getResolvedTopicCount());
+        received.clear();
+        bus.publish(euOrders, "4");
+        assertEquals(Arrays.asList("orders", "eu"), received);
+        bus.unsubscribe(euOrdersId);
+        assertEquals(2, bus.getResolvedTopicCount());
+
+        // Only the topics matching the topic pattern of the subscription are resolved again
+        bus.publish(euOrders, "5");
+        bus.subscribe("users", e -> received.add("users"));
+        assertEquals(2, bus.getResolvedTopicCount());
+        received.clear();
+        bus.publish(users, "6");
+        assertEquals(Collections.singletonList("users"), received);
+
+        // All topics may be merged with content classes
+        bus.subscribe(String.class, e -> received.add("string"));
+        assertEquals(0, bus.getResolvedTopicCount());
+        received.clear();
+        bus.publish(euOrders, "7");
+        assertEquals(Arrays.asList("orders", "string"), received);
+
+        bus.dispose();
+    }
+
+    @Test
+    public void completePublishAsyncOnceAllHandlersAreDone() throws Exception {
+        SimpleEventBus bus = new SimpleEventBus(new ThreadPoolDispatcher(4, ThreadPoolDispatcher
+                .NestedDispatchStrategy.QUEUE));
+        bus.addExceptionHandler((t, e) -> {
+            // Failure is expected and reported
+        });
+        AtomicInteger handledCount = new AtomicInteger();
+        int deliveredId = bus.subscribe(OtherTopics.INTEGER, e -> handledCount.incrementAndGet());
+        int filteredId = bus.subscribe(OtherTopics.INTEGER, BroadcastChannel.getInstance(), e -> e.getContent() < 0,
+                e -> handledCount.incrementAndGet());
+        RuntimeException failure = new RuntimeException("Expected");
+        int failedId = bus.subscribe(OtherTopics.INTEGER, e -> {
+            throw failure;
+        });
+
+        CompletableFuture<DeliveryReport<Integer>> completion = bus.publishAsync(OtherTopics.INTEGER, 5);
+        DeliveryReport<Integer> report = completion.get(10, TimeUnit.SECONDS);
+
+        assertEquals(1, handledCount.get());
+        assertEquals(Integer.valueOf(5), report.getEvent().getContent());
+        assertEquals(3, report.size());
+        assertFalse(report.isDiscarded());
+        assertTrue(report.isDelivered());
+        for (int i = 0; i < report.size(); i++) {
+            int id = report.getSubscription(i).getId();
+            if (id == deliveredId) {
+                assertEquals(DeliveryReport.Outcome.DELIVERED, report.getOutcome(i));
+            } else if (id == filteredId) {
+                assertEquals(DeliveryReport.Outcome.FILTERED, report.getOutcome(i));
+            } else {
+                assertEquals(failedId, id);
+                assertEquals(DeliveryReport.Outcome.FAILED, report.getOutcome(i));
+                assertEquals(failure, report.getFailure(i));
+            }
+        }
+
+        // Nothing to wait for without subscriptions
+        assertTrue(bus.publishAsync(OtherTopics.VOID, null).isDone());
+
+        bus.dispose();
+    }
+
+    @Test
+    public void replyToRequestsOrTimeOut() throws Exception {
+        SimpleEventBus bus = new SimpleEventBus(new CurrentThreadDispatcher(CurrentThreadDispatcher
+                .NestedDispatchStrategy.PROCESS_IMMEDIATELY));
+        ExecutorService responder = Executors.newSingleThreadExecutor();
+        bus.subscribe(OtherTopics.INTEGER, e -> {
+            // Respond from another thread, except for negative values
+            @SuppressWarnings("unchecked")
+            RequestEvent<Integer, String> request = (RequestEvent<Integer, String>) e;
+            if (request.getContent() >= 0) {
+                responder.execute(() -> request.reply("response:" + request.getContent()));
+            }
+        });
+
+        CompletableFuture<String> first = bus.request(OtherTopics.INTEGER, 1, 10000);
+        CompletableFuture<String> second = bus.request(OtherTopics.INTEGER, 2, 10000);
+        CompletableFuture<String> unanswered = bus.request(OtherTopics.INTEGER, -1, 50);
+
+        assertEquals("response:2", second.get(10, TimeUnit.SECONDS));
+        assertEquals("response:1", first.get(10, TimeUnit.SECONDS));
+        try {
+            unanswered.get(10, TimeUnit.SECONDS);
+            fail("Request should have timed out");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof TimeoutException);
+        }
+        assertFalse(bus.reply(Long.MAX_VALUE, "unknown"));
+
+        responder.shutdownNow();
+        bus.dispose();
+    }
+
+    @Test
+    public void keepRequestsWithoutTimeOutPendingUntilAnswered() throws Exception {
+        SimpleEventBus bus = new SimpleEventBus(new CurrentThreadDispatcher(CurrentThreadDispatcher
+                .NestedDispatchStrategy.PROCESS_IMMEDIATELY));
+        List<RequestEvent<Integer, String>> requests = new ArrayList<>();
+        bus.subscribe(OtherTopics.INTEGER, e -> {
+            @SuppressWarnings("unchecked")
+            RequestEvent<Integer, String> request = (RequestEvent<Integer, String>) e;
+            requests.add(request);
+        });
+
+        // Non-positive time-outs mean no time-out at all
+        CompletableFuture<String> zero = bus.request(OtherTopics.INTEGER, 0, 0);
+        CompletableFuture<String> negative = bus.request(OtherTopics.INTEGER, -1, -1);
+        Thread.sleep(100);
+        assertFalse(zero.isDone());
+        assertFalse(negative.isDone());
+        assertEquals(2, bus.getPendingRequestCount());
+
+        assertTrue(requests.get(0).reply("zero"));
+        assertTrue(requests.get(1).reply("negative"));
+        assertEquals("zero", zero.get(10, TimeUnit.SECONDS));
+        assertEquals("negative", negative.get(10, TimeUnit.SECONDS));
+        assertEquals(0, bus.getPendingRequestCount());
+
+        bus.dispose();
+    }
+
+    @Test
+    public void forgetCancelledRequestsAndRejectRequestsOnceDisposed() throws Exception {
+        SimpleEventBus bus = new SimpleEventBus(new CurrentThreadDispatcher(CurrentThreadDispatcher
+                .NestedDispatchStrategy.PROCESS_IMMEDIATELY));
+        List<RequestEvent<Integer, String>> requests = new ArrayList<>();
+        bus.subscribe(OtherTopics.INTEGER, e -> {
+            @SuppressWarnings("unchecked")
+            RequestEvent<Integer, String> request = (RequestEvent<Integer, String>) e;
+            requests.add(request);
+        });
+
+        CompletableFuture<String> cancelled = bus.request(OtherTopics.INTEGER, 1, 10000);
+        CompletableFuture<String> pending = bus.request(OtherTopics.INTEGER, 2, 0);
+        assertEquals(2, bus.getPendingRequestCount());
+        assertTrue(cancelled.cancel(false));
+        assertEquals(1, bus.getPendingRequestCount());
+        assertFalse(requests.get(0).reply("late"));
+
+        bus.dispose();
+        assertEquals(0, bus.getPendingRequestCount());
+        assertTrue(pending.isCancelled());
+
+        CompletableFuture<String> rejected = bus.request(OtherTopics.INTEGER, 3, 10000);
+        try {
+            rejected.get(10, TimeUnit.SECONDS);
+            fail("Request should have been rejected");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof RejectedExecutionException);
+        }
+        assertEquals(0, bus.getPendingRequestCount());
+    }
+
+    @Test
+    public void deliverOnceToSubscribersOfTopicsCoveringThroughSeveralParents() {
+        SimpleEventBus bus = new SimpleEventBus(new CurrentThreadDispatcher(CurrentThreadDispatcher
+                .NestedDispatchStrategy.PROCESS_IMMEDIATELY));
+        List<String> received = new ArrayList<>();
+        Topic<Object> root = new SimpleTopic<>("root");
+        Topic<Object> left = new SimpleTopic<>("left", root);
+        Topic<Object> right = new SimpleTopic<>("right", root);
+        Topic<String> diamond = SimpleTopic.withParents("diamond", left, right);
+
+        bus.subscribe(root, e -> received.add("root"));
+        bus.subscribe(right, e -> received.add("right"));
+        bus.subscribe(left, e -> received.add("left"));
+        bus.subscribe(diamond, e -> received.add("diamond"));
+
+        bus.publish(diamond, "content");
+        assertEquals(Arrays.asList("root", "right", "left", "diamond"), received);
+
+        bus.dispose();
+    }
+
+    @Test
+    public void deliverToSubscribersOfMatchingTopicPatterns() {
+        SimpleEventBus bus = new SimpleEventBus(new CurrentThreadDispatcher(CurrentThreadDispatcher
+                .NestedDispatchStrategy.PROCESS_IMMEDIATELY));
+        List<String> received = new ArrayList<>();
+        Topic<String> euFilled = new SimpleTopic<>("orders.eu.filled");
+        Topic<String> euFrFilled = new SimpleTopic<>("orders.eu.fr.filled");
+        Topic<String> euCancelled = new SimpleTopic<>("orders.eu.cancelled");
+
+        bus.subscribe("orders.*.filled", e -> received.add("single"));
+        int multiId = bus.subscribe("orders.**.filled", e -> received.add("multi"));
+        bus.subscribe("orders.**", e -> received.add("all"));
+        bus.subscribe("orders.eu.filled", e -> received.add("exact"));
+
+        bus.publish(euFilled, "1");
+        assertEquals(Arrays.asList("single", "multi", "all", "exact"), received);
+
+        received.clear();
+        bus.publish(euFrFilled, "2");
+        assertEquals(Arrays.asList("multi", "all"), received);
+
+        received.clear();
+        bus.publish(euCancelled, "3");
+        assertEquals(Arrays.asList("all"), received);
+
+        // Removing the last subscription of a pattern must be taken into account
+        received.clear();
+        bus.unsubscribe(multiId);
+        bus.publish(euFrFilled, "4");
+        assertEquals(Arrays.asList("all"), received);
+
+        bus.dispose();
+    }
+
+    @Test
+    public void deliverToSubscribersOfContentTypes() {
+        SimpleEventBus bus = new SimpleEventBus(new CurrentThreadDispatcher(CurrentThreadDispatcher
+                .NestedDispatchStrategy.PROCESS_IMMEDIATELY));
+        List<String> received = new ArrayList<>();
+
+        bus.subscribe(OtherTopics.INTEGER, e -> received.add("topic"));
+        bus.subscribe(Integer.class, e -> received.add("integer"));
+        bus.subscribe(Number.class, e -> received.add("number"));
+        bus.subscribe(Serializable.class, e -> received.add("serializable"));
+        int stringId = bus.subscribe(String.class, e -> received.add("string"));
+
+        bus.publish(OtherTopics.INTEGER, 1);
+        assertEquals(Arrays.asList("topic", "integer", "number", "serializable"), received);
+
+        received.clear();
+        bus.publish(OtherTopics.NUMBER, 1.0);
+        assertEquals(Arrays.asList("number", "serializable"), received);
+
+        received.clear();
+        bus.publish(LoginTopics.USERNAME, "user");
+        assertEquals(Arrays.asList("serializable", "string"), received);
+
+        received.clear();
+        bus.unsubscribe(stringId);
+        bus.publish(LoginTopics.USERNAME, "user");
+        bus.publish(ConnectionTopics.DO_CONNECT, null);
+        assertEquals(Arrays.asList("serializable"), received);
+
+        bus.dispose();
+    }
+
+    @Test
+    public void breakPriorityTiesBySubscriptionOrder() {
+        SimpleEventBus bus = new SimpleEventBus(new CurrentThreadDispatcher(CurrentThreadDispatcher
+                .NestedDispatchStrategy.PROCESS_IMMEDIATELY));
+        List<String> received = new ArrayList<>();
+        Topic<Object> parent = new SimpleTopic<>("parent");
+        Topic<String> child = new SimpleTopic<>("child", parent);
+
+        bus.subscribe(parent, null, null, e -> received.add("parent"), false, 5);
+        bus.subscribe(child, null, null, e -> received.add("child"), false, 5);
+        bus.subscribe(parent, null, null, e -> received.add("parent-again"), false, 5);
+
+        bus.publish(child, "content");
+        assertEquals(Arrays.asList("parent", "child", "parent-again"), received);
+
+        bus.dispose();
+    }
+
+    @Test
+    public void deliverBySubscriptionPriority() {
+        SimpleEventBus bus = new SimpleEventBus(new CurrentThreadDispatcher(CurrentThreadDispatcher
+                .NestedDispatchStrategy.PROCESS_IMMEDIATELY));
+        List<String> received = new ArrayList<>();
+        Topic<Object> parent = new SimpleTopic<>("parent");
+        Topic<String> child = new SimpleTopic<>("orders.child", parent);
+
+        bus.subscribe(child, e -> received.add("child"));
+        bus.subscribe(child, null, null, e -> received.add("child-low"), false, -1);
+        bus.subscribe(child, null, null, e -> received.add("child-high-1"), false, 10);
+        bus.subscribe(parent, null, null, e -> received.add("parent-high"), false, 10);
+        bus.subscribe(child, null, null, e -> received.add("child-high-2"), false, 10);
+        bus.subscribe(parent, e -> received.add("parent"));
+        bus.subscribe("orders.**", null, null, e -> received.add("pattern-highest"), false, 20);
+        bus.subscribe("orders.*", e -> received.add("pattern"));
+
+        bus.publish(child, "content");
+        assertEquals(Arrays.asList("pattern-highest", "child-high-1", "parent-high", "child-high-2", "child",
+                "parent", "pattern", "child-low"), received);
+
+        bus.dispose();
+    }
+
 //    @Test
 //    public void compileAndRunWithFilterAndHandler() {
 //        BUS.subscribe(new ObjectEventFilter(), new ObjectEventHandler());
@@ -0,0 +1,47 @@
+package com.github.leanframeworks.minibus.base.bus;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TopicPatternTrieTest {
+
+    private static final TopicPatternTrie TRIE = new TopicPatternTrie(Arrays.asList("orders.*.filled",
+            "orders.**.filled", "orders.**", "orders.eu.filled", "**.cancelled", "*"));
+
+    @Test
+    public void matchExactSegments() {
+        Set<String> expected = set("orders.*.filled", "orders.**.filled", "orders.**", "orders.eu.filled");
+        assertEquals(expected, TRIE.match("orders.eu.filled"));
+    }
+
+    @Test
+    public void matchExactlyOneSegmentWithSingleSegmentWildcard() {
+        assertEquals(set("orders.**.filled", "orders.**"), TRIE.match("orders.eu.fr.filled"));
+        assertEquals(set("orders.**.filled", "orders.**"), TRIE.match("orders.filled"));
+        assertEquals(set("orders.**", "*"), TRIE.match("orders"));
+    }
+
+    @Test
+    public void matchAnyNumberOfSegmentsWithMultiSegmentWildcard() {
+        assertEquals(set("orders.**", "**.cancelled"), TRIE.match("orders.eu.cancelled"));
+        assertEquals(set("**.cancelled", "*"), TRIE.match("cancelled"));
+        assertEquals(set("**.cancelled"), TRIE.match("trades.us.cancelled"));
+    }
+
+    @Test
+    public void matchNothingWhenEmpty() {
+        assertTrue(TopicPatternTrie.EMPTY.match("orders.eu.filled").isEmpty());
+        assertTrue(TRIE.match("trades.eu.filled").isEmpty());
+        assertTrue(TRIE.match(null).isEmpty());
+    }
+
+    private static Set<String> set(String... patterns) {
+        return new HashSet<>(Arrays.asList(patterns));
+    }
+}
@@ -3,7 +3,9 @@ package com.github.leanframeworks.minibus.base.channel;
 import com.github.leanframeworks.minibus.api.Channel;
 import org.junit.Test;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertTrue;
 
 public class SimpleChannelTest {
@@ -35,4 +37,54 @@ public class SimpleChannelTest {
         assertFalse(otherChannel.flowsInto(mainChannel));
         assertTrue(otherChannel.flowsInto(otherChannel));
     }
+
+    @Test
+    public void modifiedChannelGraph() {
+        SimpleChannel leafChannel = new SimpleChannel("leaf");
+        SimpleChannel middleChannel = new SimpleChannel("middle");
+        SimpleChannel topChannel = new SimpleChannel("top", middleChannel);
+
+        assertTrue(topChannel.flowsInto(middleChannel));
+        assertFalse(topChannel.flowsInto(leafChannel));
+
+        // Modifying a sub-channel must be visible from its parents
+        middleChannel.addSubChannel(leafChannel);
+        assertTrue(topChannel.flowsInto(leafChannel));
+        assertTrue(middleChannel.flowsInto(leafChannel));
+        assertFalse(leafChannel.flowsInto(topChannel));
+
+        // Cycles must be supported
+        leafChannel.addSubChannel(topChannel);
+        assertTrue(leafChannel.flowsInto(middleChannel));
+
+        middleChannel.removeSubChannel(leafChannel);
+        assertFalse(topChannel.flowsInto(leafChannel));
+        assertTrue(leafChannel.flowsInto(middleChannel));
+    }
+
+    @Test
+    public void invalidateOnlyTheModifiedChannelGraph() {
+        SimpleChannel leftChannel = new SimpleChannel("left");
+        SimpleChannel rightChannel = new SimpleChannel("right");
+        long leftVersion = leftChannel.getGraphVersion();
+        long rightVersion = rightChannel.getGraphVersion();
+
+        // Changes in unrelated graphs must not invalidate the flows of a channel
+        leftChannel.addSubChannel(new SimpleChannel("leftSub"));
+        assertNotEquals(leftVersion, leftChannel.getGraphVersion());
+        assertEquals(rightVersion, rightChannel.getGraphVersion());
+
+        // Connected graphs share a version
+        SimpleChannel bridgeChannel = new SimpleChannel("bridge", leftChannel);
+        rightChannel.addSubChannel(bridgeChannel);
+        assertTrue(rightChannel.flowsInto(leftChannel));
+        assertEquals(leftChannel.getGraphVersion(), rightChannel.getGraphVersion());
+        assertEquals(leftChannel.getGraphVersion(), bridgeChannel.getGraphVersion());
+
+        rightVersion = rightChannel.getGraphVersion();
+        bridgeChannel.removeSubChannel(leftChannel);
+        assertNotEquals(rightVersion, rightChannel.getGraphVersion());
+        assertFalse(rightChannel.flowsInto(leftChannel));
+        assertTrue(rightChannel.flowsInto(bridgeChannel));
+    }
 }
@@ -0,0 +1,186 @@
+package com.github.leanframeworks.minibus.base.dispatcher;
+
+import com.github.leanframeworks.minibus.api.Topic;
+import com.github.leanframeworks.minibus.base.bus.SimpleEventBus;
+import com.github.leanframeworks.minibus.base.topic.SimpleTopic;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class AbstractUIThreadDispatcherTest {
+
+    private static final Topic<Integer> INTEGER = new SimpleTopic<>("integer");
+
+    @Test
+    public void coalesceDrainTasksOnUIThread() throws InterruptedException {
+        ExecutorUIThreadDispatcher dispatcher = new ExecutorUIThreadDispatcher();
+        SimpleEventBus bus = new SimpleEventBus(dispatcher);
+        int eventCount = 1000;
+        CountDownLatch latch = new CountDownLatch(eventCount);
+        List<Integer> received = new ArrayList<>();
+        bus.subscribe(INTEGER, e -> {
+            received.add(e.getContent());
+            latch.countDown();
+        });
+
+        // Keep the UI thread busy while publishing
+        CountDownLatch gate = dispatcher.block();
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < eventCount; i++) {
+            expected.add(i);
+            bus.publish(INTEGER, i);
+        }
+        gate.countDown();
+
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        assertEquals(expected, received);
+        assertEquals(1, dispatcher.scheduledTaskCount.get());
+
+        bus.dispose();
+    }
+
+    @Test
+    public void conflateEventsPendingForUIThread() throws InterruptedException {
+        ExecutorUIThreadDispatcher dispatcher = new ExecutorUIThreadDispatcher();
+        dispatcher.setConflationKey(e -> ((Integer) e.getContent()) % 3);
+        SimpleEventBus bus = new SimpleEventBus(dispatcher);
+        CountDownLatch latch = new CountDownLatch(3);
+        List<Integer> received = new ArrayList<>();
+        bus.subscribe(INTEGER, e -> {
+            received.add(e.getContent());
+            latch.countDown();
+        });
+
+        CountDownLatch gate = dispatcher.block();
+        for (int i = 0; i < 1000; i++) {
+            bus.publish(INTEGER, i);
+        }
+        gate.countDown();
+
+        // Latest event per key, in the order in which the keys first appeared
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList(999, 997, 998), received);
+
+        bus.dispose();
+    }
+
+    @Test
+    public void dropOldestEventsPendingForUIThread() throws InterruptedException {
+        ExecutorUIThreadDispatcher dispatcher = new ExecutorUIThreadDispatcher(10, OverflowPolicy.DROP_OLDEST);
+        SimpleEventBus bus = new SimpleEventBus(dispatcher);
+        CountDownLatch latch = new CountDownLatch(10);
+        List<Integer> received = new ArrayList<>();
+        bus.subscribe(INTEGER, e -> {
+            received.add(e.getContent());
+            latch.countDown();
+        });
+
+        CountDownLatch gate = dispatcher.block();
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            if (i >= 90) {
+                expected.add(i);
+            }
+            bus.publish(INTEGER, i);
+        }
+        assertEquals(10, dispatcher.getQueuedEventCount());
+        gate.countDown();
+
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        assertEquals(expected, received);
+        assertEquals(90, dispatcher.getDroppedEventCount());
+        assertEquals(10, dispatcher.getPeakQueuedEventCount());
+
+        bus.dispose();
+    }
+
+    @Test
+    public void blockPublishersUntilUIThreadMakesRoom() throws InterruptedException {
+        ExecutorUIThreadDispatcher dispatcher = new ExecutorUIThreadDispatcher(4, OverflowPolicy.BLOCK);
+        SimpleEventBus bus = new SimpleEventBus(dispatcher);
+        int eventCount = 1000;
+        CountDownLatch latch = new CountDownLatch(eventCount);
+        List<Integer> received = new ArrayList<>();
+        bus.subscribe(INTEGER, e -> {
+            received.add(e.getContent());
+            latch.countDown();
+        });
+
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < eventCount; i++) {
+            expected.add(i);
+            bus.publish(INTEGER, i);
+        }
+
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        assertEquals(expected, received);
+        assertEquals(0, dispatcher.getDroppedEventCount());
+        assertTrue(dispatcher.getPeakQueuedEventCount() <= 4);
+
+        bus.dispose();
+    }
+
+    /**
+     * UI thread dispatcher using a single thread executor as UI thread.
+     */
+    private static final class ExecutorUIThreadDispatcher extends AbstractUIThreadDispatcher {
+
+        private final ExecutorService uiThread = Executors.newSingleThreadExecutor();
+
+        private final AtomicInteger scheduledTaskCount = new AtomicInteger();
+
+        private volatile Thread thread = null;
+
+        ExecutorUIThreadDispatcher() {
+            super(NestedDispatchStrategy.QUEUE);
+        }
+
+        ExecutorUIThreadDispatcher(int queueCapacity, OverflowPolicy overflowPolicy) {
+            super(NestedDispatchStrategy.QUEUE, queueCapacity, overflowPolicy);
+        }
+
+        /**
+         * Keeps the UI thread busy until the returned latch is released.
+         */
+        CountDownLatch block() {
+            CountDownLatch gate = new CountDownLatch(1);
+            uiThread.execute(() -> {
+                try {
+                    gate.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            return gate;
+        }
+
+        @Override
+        protected boolean isUIThread() {
+            return Thread.currentThread() == thread;
+        }
+
+        @Override
+        protected void runLaterOnUIThread(Runnable runnable) {
+            scheduledTaskCount.incrementAndGet();
+            uiThread.execute(() -> {
+                thread = Thread.currentThread();
+                runnable.run();
+            });
+        }
+
+        @Override
+        public void dispose() {
+            uiThread.shutdownNow();
+        }
+    }
+}
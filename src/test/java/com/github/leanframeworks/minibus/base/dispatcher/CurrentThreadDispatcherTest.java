@@ -0,0 +1,134 @@
+package com.github.leanframeworks.minibus.base.dispatcher;
+
+import com.github.leanframeworks.minibus.api.Topic;
+import com.github.leanframeworks.minibus.base.bus.SimpleEventBus;
+import com.github.leanframeworks.minibus.base.topic.SimpleTopic;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CurrentThreadDispatcherTest {
+
+    private static final Topic<Integer> INTEGER = new SimpleTopic<>("integer");
+
+    @Test
+    public void fanOutLargeSubscriberSetsInParallel() {
+        CurrentThreadDispatcher dispatcher = new CurrentThreadDispatcher(CurrentThreadDispatcher
+                .NestedDispatchStrategy.QUEUE);
+        dispatcher.setParallelFanOut(ForkJoinPool.commonPool(), 8);
+        SimpleEventBus bus = new SimpleEventBus(dispatcher);
+        AtomicInteger deliveredCount = new AtomicInteger();
+        AtomicInteger undeliveredCount = new AtomicInteger();
+        bus.addUndeliveredEventHandler(e -> undeliveredCount.incrementAndGet());
+        for (int i = 0; i < 100; i++) {
+            int subscriberIndex = i;
+            bus.subscribe(INTEGER, e -> e.getContent() == subscriberIndex, e -> deliveredCount
+                    .incrementAndGet());
+        }
+
+        bus.publish(INTEGER, 99);
+        assertEquals(1, deliveredCount.get());
+        assertEquals(0, undeliveredCount.get());
+
+        bus.publish(INTEGER, 100);
+        assertEquals(1, deliveredCount.get());
+        assertEquals(1, undeliveredCount.get());
+
+        bus.dispose();
+    }
+
+    @Test
+    public void processEventsOfUnrelatedPublishersWhileFanningOut() throws InterruptedException {
+        CurrentThreadDispatcher dispatcher = new CurrentThreadDispatcher(CurrentThreadDispatcher
+                .NestedDispatchStrategy.QUEUE);
+        ForkJoinPool pool = new ForkJoinPool(2);
+        dispatcher.setParallelFanOut(pool, 1);
+        SimpleEventBus bus = new SimpleEventBus(dispatcher);
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<Integer> received = new CopyOnWriteArrayList<>();
+        bus.subscribe(INTEGER, e -> {
+            if (e.getContent() == 0) {
+                blocked.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            received.add(e.getContent());
+        });
+
+        Thread publisher = new Thread(() -> bus.publish(INTEGER, 0));
+        publisher.start();
+        try {
+            assertTrue(blocked.await(10, TimeUnit.SECONDS));
+
+            // Not nested in the blocked dispatch, so it must not be queued behind it
+            bus.publish(INTEGER, 1);
+            assertEquals(Collections.singletonList(1), received);
+        } finally {
+            release.countDown();
+            publisher.join(10000);
+        }
+        assertEquals(Arrays.asList(1, 0), received);
+
+        bus.dispose();
+        pool.shutdown();
+    }
+
+    @Test
+    public void processNestedEventsOnTheirPublishingThreadOnly() throws InterruptedException {
+        CurrentThreadDispatcher dispatcher = new CurrentThreadDispatcher(CurrentThreadDispatcher
+                .NestedDispatchStrategy.QUEUE);
+        SimpleEventBus bus = new SimpleEventBus(dispatcher);
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<Integer> received = new CopyOnWriteArrayList<>();
+        Map<Integer, Thread> receivingThreads = new ConcurrentHashMap<>();
+        bus.subscribe(INTEGER, e -> {
+            received.add(e.getContent());
+            receivingThreads.put(e.getContent(), Thread.currentThread());
+            if (e.getContent() == 0) {
+                bus.publish(INTEGER, 10);
+                blocked.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+
+        Thread publisher = new Thread(() -> bus.publish(INTEGER, 0));
+        publisher.start();
+        try {
+            assertTrue(blocked.await(10, TimeUnit.SECONDS));
+
+            // The event queued by the other publisher must be left to it
+            bus.publish(INTEGER, 1);
+            assertEquals(Arrays.asList(0, 1), received);
+            assertEquals(1, dispatcher.getQueuedEventCount());
+        } finally {
+            release.countDown();
+            publisher.join(10000);
+        }
+        assertEquals(Arrays.asList(0, 1, 10), received);
+        assertEquals(publisher, receivingThreads.get(10));
+        assertEquals(0, dispatcher.getQueuedEventCount());
+
+        bus.dispose();
+    }
+}
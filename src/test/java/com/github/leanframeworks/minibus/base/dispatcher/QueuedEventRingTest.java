@@ -0,0 +1,119 @@
+package com.github.leanframeworks.minibus.base.dispatcher;
+
+import com.github.leanframeworks.minibus.api.Event;
+import com.github.leanframeworks.minibus.api.Topic;
+import com.github.leanframeworks.minibus.base.channel.BroadcastChannel;
+import com.github.leanframeworks.minibus.base.topic.SimpleTopic;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+public class QueuedEventRingTest {
+
+    private static final Topic<Object> TOPIC = new SimpleTopic<>("topic");
+
+    @Test
+    public void keepOrderWhileGrowing() {
+        QueuedEventRing ring = new QueuedEventRing();
+        List<Event<Object>> events = createEvents(100);
+        List<Object> processed = new ArrayList<>();
+        QueuedEventRing.Processor processor = (e, d, u, x) -> processed.add(e.getContent());
+
+        // Wrap around before growing
+        for (int i = 0; i < 10; i++) {
+            assertEquals(i + 1, ring.offer(events.get(i), null, null, null, Integer.MAX_VALUE));
+        }
+        for (int i = 0; i < 5; i++) {
+            assertTrue(ring.processNext(processor));
+        }
+        for (int i = 10; i < 100; i++) {
+            ring.offer(events.get(i), null, null, null, Integer.MAX_VALUE);
+        }
+        assertEquals(95, ring.size());
+        while (ring.processNext(processor)) {
+            // Process until the ring is empty
+        }
+
+        List<Object> expected = new ArrayList<>();
+        for (Event<Object> event : events) {
+            expected.add(event.getContent());
+        }
+        assertEquals(expected, processed);
+        assertFalse(ring.processNext(processor));
+        assertNull(ring.removeOldest());
+    }
+
+    @Test
+    public void refuseEntriesBeyondCapacity() {
+        QueuedEventRing ring = new QueuedEventRing();
+        List<Event<Object>> events = createEvents(3);
+
+        assertEquals(1, ring.offer(events.get(0), null, null, null, 2));
+        assertEquals(2, ring.offer(events.get(1), null, null, null, 2));
+        assertEquals(-1, ring.offer(events.get(2), null, null, null, 2));
+        assertEquals(events.get(0), ring.removeOldest());
+        assertEquals(2, ring.offer(events.get(2), null, null, null, 2));
+    }
+
+    /**
+     * Allocation benchmark: once the ring has grown, queuing and processing events must not allocate anything.
+     */
+    @Test
+    public void queueWithoutAllocatingInSteadyState() {
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        assumeTrue(threadMXBean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean allocationMXBean = (com.sun.management.ThreadMXBean) threadMXBean;
+        assumeTrue(allocationMXBean.isThreadAllocatedMemorySupported());
+        allocationMXBean.setThreadAllocatedMemoryEnabled(true);
+
+        QueuedEventRing ring = new QueuedEventRing();
+        List<Event<Object>> events = createEvents(64);
+        int[] processedCount = new int[1];
+        QueuedEventRing.Processor processor = (e, d, u, x) -> processedCount[0]++;
+
+        int rounds = 20000;
+        long threadId = Thread.currentThread().getId();
+        long allocatedBytes = 0;
+        // First iteration to grow the ring and warm up, second one to measure
+        for (int iteration = 0; iteration < 2; iteration++) {
+            long before = allocationMXBean.getThreadAllocatedBytes(threadId);
+            queueAndProcess(ring, events, processor, rounds);
+            allocatedBytes = allocationMXBean.getThreadAllocatedBytes(threadId) - before;
+        }
+
+        assertEquals(2 * rounds * events.size(), processedCount[0]);
+        // Allow for the allocations of the measurement itself, far below one byte per queued event
+        assertTrue("Allocated " + allocatedBytes + " bytes", allocatedBytes < rounds);
+    }
+
+    private static void queueAndProcess(QueuedEventRing ring, List<Event<Object>> events,
+                                        QueuedEventRing.Processor processor, int rounds) {
+        for (int round = 0; round < rounds; round++) {
+            for (int i = 0; i < events.size(); i++) {
+                ring.offer(events.get(i), null, Collections.emptyList(), Collections.emptyList(),
+                        Integer.MAX_VALUE);
+            }
+            while (ring.processNext(processor)) {
+                // Process until the ring is empty
+            }
+        }
+    }
+
+    private static List<Event<Object>> createEvents(int count) {
+        List<Event<Object>> events = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            events.add(new Event<>(TOPIC, BroadcastChannel.getInstance(), i));
+        }
+        return events;
+    }
+}
@@ -0,0 +1,111 @@
+package com.github.leanframeworks.minibus.base.dispatcher;
+
+import com.github.leanframeworks.minibus.api.DeliveryReport;
+import com.github.leanframeworks.minibus.api.Topic;
+import com.github.leanframeworks.minibus.base.bus.SimpleEventBus;
+import com.github.leanframeworks.minibus.base.topic.SimpleTopic;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class RingBufferDispatcherTest {
+
+    private static final Topic<Integer> INTEGER = new SimpleTopic<>("integer");
+
+    @Test
+    public void deliverThroughSmallRingBuffer() throws InterruptedException {
+        SimpleEventBus bus = new SimpleEventBus(new RingBufferDispatcher(8, RingBufferDispatcher
+                .NestedDispatchStrategy.QUEUE));
+        int eventCount = 1000;
+        CountDownLatch latch = new CountDownLatch(2 * eventCount);
+        List<Integer> received = new ArrayList<>();
+        bus.subscribe(INTEGER, e -> {
+            received.add(e.getContent());
+            latch.countDown();
+        });
+
+        // Publish concurrently with positive and negative values
+        Thread otherPublisher = new Thread(() -> {
+            for (int i = 1; i <= eventCount; i++) {
+                bus.publish(INTEGER, -i);
+            }
+        });
+        otherPublisher.start();
+        for (int i = 1; i <= eventCount; i++) {
+            bus.publish(INTEGER, i);
+        }
+        otherPublisher.join();
+
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        List<Integer> expected = new ArrayList<>();
+        List<Integer> expectedOther = new ArrayList<>();
+        for (int i = 1; i <= eventCount; i++) {
+            expected.add(i);
+            expectedOther.add(-i);
+        }
+        List<Integer> receivedPositive = new ArrayList<>();
+        List<Integer> receivedNegative = new ArrayList<>();
+        for (Integer value : received) {
+            (value > 0 ? receivedPositive : receivedNegative).add(value);
+        }
+        assertEquals(expected, receivedPositive);
+        assertEquals(expectedOther, receivedNegative);
+
+        bus.dispose();
+    }
+
+    @Test
+    public void discardEventsLeftOverOnceDisposed() throws Exception {
+        RingBufferDispatcher dispatcher = new RingBufferDispatcher(2, RingBufferDispatcher.NestedDispatchStrategy
+                .QUEUE);
+        SimpleEventBus bus = new SimpleEventBus(dispatcher);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch released = new CountDownLatch(1);
+        List<Integer> received = Collections.synchronizedList(new ArrayList<>());
+        List<Boolean> daemonThreads = Collections.synchronizedList(new ArrayList<>());
+        bus.subscribe(INTEGER, e -> {
+            received.add(e.getContent());
+            daemonThreads.add(Thread.currentThread().isDaemon());
+            started.countDown();
+            try {
+                released.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        // Block the dispatching thread with the first event, fill the other slot, and wait for a slot with the last
+        bus.publish(INTEGER, 0);
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        CompletableFuture<DeliveryReport<Integer>> publishedCompletion = bus.publishAsync(INTEGER, 1);
+        AtomicReference<CompletableFuture<DeliveryReport<Integer>>> waitingCompletion = new AtomicReference<>();
+        Thread waitingPublisher = new Thread(() -> waitingCompletion.set(bus.publishAsync(INTEGER, 2)));
+        waitingPublisher.start();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while ((waitingPublisher.getState() != Thread.State.TIMED_WAITING) && (System.nanoTime() < deadline)) {
+            Thread.sleep(1);
+        }
+
+        dispatcher.dispose();
+        released.countDown();
+        waitingPublisher.join(10000);
+        CompletableFuture<DeliveryReport<Integer>> lateCompletion = bus.publishAsync(INTEGER, 3);
+
+        assertTrue(publishedCompletion.get(10, TimeUnit.SECONDS).isDiscarded());
+        assertTrue(waitingCompletion.get().get(10, TimeUnit.SECONDS).isDiscarded());
+        assertTrue(lateCompletion.get(10, TimeUnit.SECONDS).isDiscarded());
+        assertEquals(Collections.singletonList(0), received);
+        assertEquals(Collections.singletonList(true), daemonThreads);
+
+        bus.dispose();
+    }
+}
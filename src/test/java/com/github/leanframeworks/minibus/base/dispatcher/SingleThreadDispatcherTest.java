@@ -0,0 +1,243 @@
+package com.github.leanframeworks.minibus.base.dispatcher;
+
+import com.github.leanframeworks.minibus.api.BatchEventHandler;
+import com.github.leanframeworks.minibus.api.DeliveryReport;
+import com.github.leanframeworks.minibus.api.Event;
+import com.github.leanframeworks.minibus.api.Topic;
+import com.github.leanframeworks.minibus.base.bus.SimpleEventBus;
+import com.github.leanframeworks.minibus.base.topic.SimpleTopic;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SingleThreadDispatcherTest {
+
+    private static final Topic<Integer> INTEGER = new SimpleTopic<>("integer");
+
+    @Test
+    public void deliverQueuedEventsAsBatches() throws InterruptedException {
+        SingleThreadDispatcher dispatcher = new SingleThreadDispatcher(SingleThreadDispatcher.NestedDispatchStrategy
+                .QUEUE);
+        dispatcher.setBatchDelivery(10, 1000);
+        SimpleEventBus bus = new SimpleEventBus(dispatcher);
+        int eventCount = 26;
+        CountDownLatch latch = new CountDownLatch(eventCount);
+        List<Integer> received = Collections.synchronizedList(new ArrayList<>());
+        List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+        BatchEventHandler<Integer> batchHandler = events -> {
+            batchSizes.add(events.size());
+            for (Event<Integer> event : events) {
+                received.add(event.getContent());
+                latch.countDown();
+            }
+        };
+        bus.subscribe(INTEGER, batchHandler);
+
+        // Block the dispatch thread on the first event so that the next ones get queued
+        CountDownLatch gate = new CountDownLatch(1);
+        bus.subscribe(INTEGER, e -> {
+            if (e.getContent() == 0) {
+                try {
+                    gate.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < eventCount; i++) {
+            expected.add(i);
+            bus.publish(INTEGER, i);
+        }
+        gate.countDown();
+
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        assertEquals(expected, received);
+        assertEquals(Arrays.asList(10, 10, 6), batchSizes);
+
+        bus.dispose();
+    }
+
+    @Test
+    public void dropOldestEventsWhenQueueIsFull() throws InterruptedException {
+        SingleThreadDispatcher dispatcher = new SingleThreadDispatcher(SingleThreadDispatcher.NestedDispatchStrategy
+                .QUEUE, 2, OverflowPolicy.DROP_OLDEST);
+        SimpleEventBus bus = new SimpleEventBus(dispatcher);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch gate = new CountDownLatch(1);
+        CountDownLatch latch = new CountDownLatch(3);
+        List<Integer> received = Collections.synchronizedList(new ArrayList<>());
+        bus.subscribe(INTEGER, e -> {
+            if (e.getContent() == 0) {
+                // Block the dispatch thread so that the next events get queued
+                started.countDown();
+                try {
+                    gate.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            received.add(e.getContent());
+            latch.countDown();
+        });
+
+        bus.publish(INTEGER, 0);
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        for (int i = 1; i < 10; i++) {
+            bus.publish(INTEGER, i);
+        }
+        assertEquals(2, dispatcher.getQueuedEventCount());
+        gate.countDown();
+
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList(0, 8, 9), received);
+        assertEquals(7, dispatcher.getDroppedEventCount());
+        assertEquals(2, dispatcher.getPeakQueuedEventCount());
+
+        bus.dispose();
+    }
+
+    @Test
+    public void replaceThreadOfHangingHandler() throws InterruptedException {
+        SingleThreadDispatcher dispatcher = new SingleThreadDispatcher(SingleThreadDispatcher.NestedDispatchStrategy
+                .QUEUE);
+        dispatcher.setHandlerTimeout(100);
+        SimpleEventBus bus = new SimpleEventBus(dispatcher);
+        List<Object> timedOutContents = Collections.synchronizedList(new ArrayList<>());
+        bus.addExceptionHandler((t, e) -> {
+            if (t instanceof DispatchTimeoutException) {
+                timedOutContents.add(e.getContent());
+            }
+        });
+        CountDownLatch hang = new CountDownLatch(1);
+        CountDownLatch latch = new CountDownLatch(2);
+        List<Integer> received = Collections.synchronizedList(new ArrayList<>());
+        bus.subscribe(INTEGER, e -> {
+            if (e.getContent() == 0) {
+                // Hang until the end of the test, ignoring interruptions
+                boolean released = false;
+                while (!released) {
+                    try {
+                        released = hang.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException ex) {
+                        // Keep hanging
+                    }
+                }
+            } else {
+                received.add(e.getContent());
+                latch.countDown();
+            }
+        });
+
+        bus.publish(INTEGER, 0);
+        bus.publish(INTEGER, 1);
+        bus.publish(INTEGER, 2);
+
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList(1, 2), received);
+        assertEquals(Collections.singletonList(0), timedOutContents);
+
+        hang.countDown();
+        bus.dispose();
+    }
+
+    @Test
+    public void keepDeliveringInOrderOnReplacementThread() throws Exception {
+        SingleThreadDispatcher dispatcher = new SingleThreadDispatcher(SingleThreadDispatcher.NestedDispatchStrategy
+                .QUEUE);
+        dispatcher.setHandlerTimeout(100);
+        SimpleEventBus bus = new SimpleEventBus(dispatcher);
+        CountDownLatch hang = new CountDownLatch(1);
+        bus.subscribe(INTEGER, e -> {
+            if (e.getContent() == 0) {
+                // Hang until released, ignoring interruptions
+                boolean released = false;
+                while (!released) {
+                    try {
+                        released = hang.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException ex) {
+                        // Keep hanging
+                    }
+                }
+            }
+        });
+        CountDownLatch latch = new CountDownLatch(2);
+        List<Integer> received = Collections.synchronizedList(new ArrayList<>());
+        Set<Thread> threads = Collections.synchronizedSet(new HashSet<>());
+        bus.subscribe(INTEGER, e -> {
+            received.add(e.getContent());
+            threads.add(Thread.currentThread());
+            latch.countDown();
+        });
+
+        CompletableFuture<DeliveryReport<Integer>> hangingCompletion = bus.publishAsync(INTEGER, 0);
+        bus.publish(INTEGER, 1);
+        bus.publish(INTEGER, 2);
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+
+        // The abandoned thread must not deliver the rest of its event once released
+        hang.countDown();
+        DeliveryReport<Integer> report = hangingCompletion.get(10, TimeUnit.SECONDS);
+        assertTrue(report.isDiscarded());
+
+        CompletableFuture<DeliveryReport<Integer>> completion = bus.publishAsync(INTEGER, 3);
+        assertTrue(completion.get(10, TimeUnit.SECONDS).isDelivered());
+        assertEquals(Arrays.asList(1, 2, 3), received);
+        assertEquals(1, threads.size());
+
+        bus.dispose();
+    }
+
+    @Test
+    public void deliverPendingBatchesOnceLastTaskIsAbandoned() throws InterruptedException {
+        SingleThreadDispatcher dispatcher = new SingleThreadDispatcher(SingleThreadDispatcher.NestedDispatchStrategy
+                .QUEUE);
+        dispatcher.setBatchDelivery(10, 60000);
+        dispatcher.setHandlerTimeout(100);
+        SimpleEventBus bus = new SimpleEventBus(dispatcher);
+        CountDownLatch latch = new CountDownLatch(1);
+        List<Integer> received = Collections.synchronizedList(new ArrayList<>());
+        BatchEventHandler<Integer> batchHandler = events -> {
+            for (Event<Integer> event : events) {
+                received.add(event.getContent());
+            }
+            latch.countDown();
+        };
+        bus.subscribe(INTEGER, batchHandler);
+        CountDownLatch hang = new CountDownLatch(1);
+        bus.subscribe(INTEGER, e -> {
+            // Hang until released, ignoring interruptions
+            boolean released = false;
+            while (!released) {
+                try {
+                    released = hang.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException ex) {
+                    // Keep hanging
+                }
+            }
+        });
+
+        // Nothing else is published, so the replacement thread must deliver the batch on its own
+        bus.publish(INTEGER, 0);
+        try {
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+            assertEquals(Collections.singletonList(0), received);
+        } finally {
+            hang.countDown();
+        }
+
+        bus.dispose();
+    }
+}
@@ -0,0 +1,54 @@
+package com.github.leanframeworks.minibus.base.dispatcher;
+
+import com.github.leanframeworks.minibus.api.Topic;
+import com.github.leanframeworks.minibus.base.bus.SimpleEventBus;
+import com.github.leanframeworks.minibus.base.topic.SimpleTopic;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ThreadPoolDispatcherTest {
+
+    private static final Topic<Integer> INTEGER = new SimpleTopic<>("integer");
+    private static final Topic<Void> VOID = new SimpleTopic<>("void");
+
+    @Test
+    public void preserveOrderPerSubscriberOnThreadPool() throws InterruptedException {
+        SimpleEventBus bus = new SimpleEventBus(new ThreadPoolDispatcher(4, ThreadPoolDispatcher
+                .NestedDispatchStrategy.QUEUE));
+        int eventCount = 100;
+        int subscriberCount = 6;
+        CountDownLatch latch = new CountDownLatch(eventCount * subscriberCount + 1);
+        List<List<Integer>> received = new ArrayList<>();
+        for (int i = 0; i < subscriberCount; i++) {
+            List<Integer> subscriberReceived = Collections.synchronizedList(new ArrayList<>());
+            received.add(subscriberReceived);
+            bus.subscribe(INTEGER, e -> {
+                subscriberReceived.add(e.getContent());
+                latch.countDown();
+            });
+        }
+        bus.addUndeliveredEventHandler(e -> latch.countDown());
+
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < eventCount; i++) {
+            expected.add(i);
+            bus.publish(INTEGER, i);
+        }
+        bus.publish(VOID);
+
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        for (List<Integer> subscriberReceived : received) {
+            assertEquals(expected, subscriberReceived);
+        }
+
+        bus.dispose();
+    }
+}
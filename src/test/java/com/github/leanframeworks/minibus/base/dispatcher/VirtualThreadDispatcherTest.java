@@ -0,0 +1,88 @@
+package com.github.leanframeworks.minibus.base.dispatcher;
+
+import com.github.leanframeworks.minibus.api.DeliveryReport;
+import com.github.leanframeworks.minibus.api.Topic;
+import com.github.leanframeworks.minibus.base.bus.SimpleEventBus;
+import com.github.leanframeworks.minibus.base.topic.SimpleTopic;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class VirtualThreadDispatcherTest {
+
+    private static final Topic<Integer> INTEGER = new SimpleTopic<>("integer");
+
+    @Test
+    public void boundConcurrencyOnVirtualThreads() throws InterruptedException {
+        SimpleEventBus bus = new SimpleEventBus(new VirtualThreadDispatcher(2));
+        int eventCount = 50;
+        int subscriberCount = 4;
+        CountDownLatch latch = new CountDownLatch(eventCount * subscriberCount);
+        AtomicInteger runningCount = new AtomicInteger();
+        AtomicInteger maxRunningCount = new AtomicInteger();
+        List<List<Integer>> received = new ArrayList<>();
+        for (int i = 0; i < subscriberCount; i++) {
+            List<Integer> subscriberReceived = Collections.synchronizedList(new ArrayList<>());
+            received.add(subscriberReceived);
+            bus.subscribe(INTEGER, e -> {
+                maxRunningCount.accumulateAndGet(runningCount.incrementAndGet(), Math::max);
+                subscriberReceived.add(e.getContent());
+                runningCount.decrementAndGet();
+                latch.countDown();
+            });
+        }
+
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < eventCount; i++) {
+            expected.add(i);
+            bus.publish(INTEGER, i);
+        }
+
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        assertTrue(maxRunningCount.get() <= 2);
+        for (List<Integer> subscriberReceived : received) {
+            assertEquals(expected, subscriberReceived);
+        }
+
+        bus.dispose();
+    }
+
+    @Test
+    public void discardEventsLeftOverOnceDisposed() throws Exception {
+        VirtualThreadDispatcher dispatcher = new VirtualThreadDispatcher(1);
+        SimpleEventBus bus = new SimpleEventBus(dispatcher);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch released = new CountDownLatch(1);
+        List<Integer> received = Collections.synchronizedList(new ArrayList<>());
+        bus.subscribe(INTEGER, e -> {
+            received.add(e.getContent());
+            started.countDown();
+            try {
+                released.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        bus.publish(INTEGER, 0);
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        CompletableFuture<DeliveryReport<Integer>> queuedCompletion = bus.publishAsync(INTEGER, 1);
+        dispatcher.dispose();
+        CompletableFuture<DeliveryReport<Integer>> lateCompletion = bus.publishAsync(INTEGER, 2);
+
+        assertTrue(queuedCompletion.get(10, TimeUnit.SECONDS).isDiscarded());
+        assertTrue(lateCompletion.get(10, TimeUnit.SECONDS).isDiscarded());
+        assertEquals(Collections.singletonList(0), received);
+
+        bus.dispose();
+    }
+}
@@ -0,0 +1,85 @@
+package com.github.leanframeworks.minibus.base.filter;
+
+import com.github.leanframeworks.minibus.api.Event;
+import com.github.leanframeworks.minibus.api.EventFilter;
+import com.github.leanframeworks.minibus.api.Topic;
+import com.github.leanframeworks.minibus.base.channel.BroadcastChannel;
+import com.github.leanframeworks.minibus.base.topic.SimpleTopic;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class AdaptiveEventFilterTest {
+
+    private static final Topic<Integer> INTEGER = new SimpleTopic<>("integer");
+
+    private static final EventFilter<Integer> EVEN = e -> (e.getContent() % 2) == 0;
+    private static final EventFilter<Integer> MULTIPLE_OF_3 = e -> (e.getContent() % 3) == 0;
+    private static final EventFilter<Integer> MULTIPLE_OF_5 = e -> (e.getContent() % 5) == 0;
+    private static final EventFilter<Integer> SMALL = e -> e.getContent() < 50;
+
+    @Test
+    public void evaluateLikeTheCompiledFilter() {
+        EventFilter<Integer> composite = EVEN.and(MULTIPLE_OF_3.or(MULTIPLE_OF_5.not())).or(SMALL.not().not()
+                .and(MULTIPLE_OF_5)).and(EVEN.not().or(SMALL));
+        AdaptiveEventFilter<Integer> adaptive = new AdaptiveEventFilter<>(composite);
+
+        // Evaluate long enough for the operands to be reordered several times
+        for (int round = 0; round < 50; round++) {
+            for (int i = 0; i < 100; i++) {
+                Event<Integer> event = event(i);
+                assertEquals("Content " + i, composite.accept(event), adaptive.accept(event));
+            }
+        }
+    }
+
+    @Test
+    public void mirrorTheNormalizedStructure() {
+        AdaptiveEventFilter<Integer> adaptive = new AdaptiveEventFilter<>(EVEN.and(SMALL).and(MULTIPLE_OF_3.not()
+                .not()));
+        assertEquals("AdaptiveEventFilter[AND[" + EVEN + ", " + SMALL + ", " + MULTIPLE_OF_3 + "]]", adaptive
+                .toString());
+    }
+
+    @Test
+    public void evaluateMostSelectiveOperandFirst() {
+        EventFilter<Integer> acceptAll = e -> true;
+        EventFilter<Integer> rejectAll = e -> false;
+        AdaptiveEventFilter<Integer> adaptive = new AdaptiveEventFilter<>(acceptAll.and(rejectAll), true, 0);
+
+        int evaluationCount = 20 * 1024;
+        for (int i = 0; i < evaluationCount; i++) {
+            adaptive.accept(event(i));
+        }
+
+        List<AdaptiveEventFilter.Statistics> statistics = adaptive.getStatistics();
+        assertEquals(evaluationCount, statistics.get(1).getEvaluationCount());
+        assertTrue(statistics.get(0).getEvaluationCount() < (evaluationCount / 2));
+        assertEquals(statistics.get(0).getEvaluationCount(), statistics.get(0).getAcceptanceCount());
+        assertEquals(0.0, statistics.get(1).getAverageCost(), 0.0);
+    }
+
+    @Test
+    public void keepOriginalOrderWhenNotReordering() {
+        EventFilter<Integer> acceptAll = e -> true;
+        EventFilter<Integer> rejectAll = e -> false;
+        AdaptiveEventFilter<Integer> adaptive = new AdaptiveEventFilter<>(acceptAll.and(rejectAll), false);
+
+        int evaluationCount = 20 * 1024;
+        for (int i = 0; i < evaluationCount; i++) {
+            adaptive.accept(event(i));
+        }
+
+        List<AdaptiveEventFilter.Statistics> statistics = adaptive.getStatistics();
+        assertEquals(evaluationCount, statistics.get(0).getEvaluationCount());
+        assertEquals(evaluationCount, statistics.get(1).getEvaluationCount());
+        assertEquals(0, statistics.get(1).getAcceptanceCount());
+    }
+
+    private static Event<Integer> event(int content) {
+        return new Event<>(INTEGER, BroadcastChannel.getInstance(), content);
+    }
+}
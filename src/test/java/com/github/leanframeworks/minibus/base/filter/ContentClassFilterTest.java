@@ -0,0 +1,73 @@
+package com.github.leanframeworks.minibus.base.filter;
+
+import com.github.leanframeworks.minibus.api.Event;
+import com.github.leanframeworks.minibus.api.Topic;
+import com.github.leanframeworks.minibus.base.channel.BroadcastChannel;
+import com.github.leanframeworks.minibus.base.topic.SimpleTopic;
+import org.junit.Test;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ContentClassFilterTest {
+
+    private static final Topic<Object> OBJECT = new SimpleTopic<>("object");
+
+    @Test
+    public void acceptExactClassesOnly() {
+        ContentClassFilter<Object> filter = new ContentClassFilter<>(Number.class, String.class);
+
+        assertTrue(filter.accept(event("text")));
+        assertFalse(filter.accept(event(1)));
+        assertFalse(filter.accept(event(null)));
+    }
+
+    @Test
+    public void acceptSubClassesAndImplementations() {
+        ContentClassFilter<Object> filter = new ContentClassFilter<>(true, true, Number.class, Collection.class);
+
+        assertTrue(filter.accept(event(1)));
+        assertTrue(filter.accept(event(1.0)));
+        assertTrue(filter.accept(event(new ArrayList<>())));
+        assertTrue(filter.accept(event(null)));
+        assertFalse(filter.accept(event("text")));
+    }
+
+    @Test
+    public void acceptCovariantArrays() {
+        ContentClassFilter<Object> filter = new ContentClassFilter<>(true, Object[].class);
+
+        assertTrue(filter.accept(event(new String[0])));
+        assertFalse(filter.accept(event(new int[0])));
+    }
+
+    @Test
+    public void takeAddedAndRemovedClassesIntoAccount() {
+        ContentClassFilter<Object> filter = new ContentClassFilter<>(true, Number.class);
+        assertTrue(filter.accept(event(1)));
+        assertFalse(filter.accept(event("text")));
+
+        // Decisions made before a modification must not be reused after it
+        filter.addClass(Serializable.class);
+        assertTrue(filter.accept(event("text")));
+        assertTrue(filter.accept(event(1)));
+
+        filter.removeClass(Number.class);
+        assertTrue(filter.accept(event(1)));
+        filter.removeClass(Serializable.class);
+        assertFalse(filter.accept(event(1)));
+        assertFalse(filter.accept(event("text")));
+
+        filter.addClass(Integer.class);
+        assertTrue(filter.accept(event(1)));
+        assertFalse(filter.accept(event(1.0)));
+    }
+
+    private static Event<Object> event(Object content) {
+        return new Event<>(OBJECT, BroadcastChannel.getInstance(), content);
+    }
+}
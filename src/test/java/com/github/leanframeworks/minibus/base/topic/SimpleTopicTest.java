@@ -3,7 +3,11 @@ package com.github.leanframeworks.minibus.base.topic;
 import com.github.leanframeworks.minibus.api.Topic;
 import org.junit.Test;
 
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 public class SimpleTopicTest {
@@ -31,6 +35,37 @@ public class SimpleTopicTest {
         assertTrue(Topics.VOID.covers(Topics.VOID));
     }
 
+    @Test
+    public void ignoreNullParentTopics() {
+        Topic<Object> root = new SimpleTopic<>("root");
+        Topic<Object> orphan = new SimpleTopic<>("orphan", null);
+        Topic<Object> child = SimpleTopic.withParents("child", null, root, null);
+
+        assertTrue(orphan.getParentTopics().isEmpty());
+        assertNull(orphan.getParentTopic());
+        assertEquals(Collections.singletonList(root), child.getParentTopics());
+        assertTrue(root.covers(child));
+    }
+
+    @Test
+    public void multipleParentTopics() {
+        Topic<Object> root = new SimpleTopic<>("root");
+        Topic<Object> left = new SimpleTopic<>("left", root);
+        Topic<Object> right = new SimpleTopic<>("right", root);
+        Topic<Object> other = new SimpleTopic<>("other");
+        Topic<String> diamond = SimpleTopic.withParents("diamond", left, right, other);
+
+        assertTrue(root.covers(diamond));
+        assertTrue(left.covers(diamond));
+        assertTrue(right.covers(diamond));
+        assertTrue(other.covers(diamond));
+        assertTrue(diamond.covers(diamond));
+
+        assertFalse(diamond.covers(left));
+        assertFalse(left.covers(right));
+        assertFalse(other.covers(root));
+    }
+
     private static final class Topics {
         public static final Topic<Object> OBJECT = new SimpleTopic<>("object");
         public static final Topic<Number> NUMBER = new SimpleTopic<>("number", OBJECT);
@@ -0,0 +1,59 @@
+package com.github.leanframeworks.minibus.base.util;
+
+import org.junit.Test;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.fail;
+
+public class DenseIndexAllocatorTest {
+
+    @Test
+    public void allocateLowestFreeIndex() {
+        DenseIndexAllocator allocator = new DenseIndexAllocator();
+        Object first = new Object();
+        Object second = new Object();
+
+        assertEquals(0, allocator.allocate(first));
+        assertEquals(1, allocator.allocate(second));
+        assertEquals(2, allocator.getAllocatedCount());
+    }
+
+    @Test
+    public void reuseIndicesOfCollectedOwners() throws InterruptedException {
+        DenseIndexAllocator allocator = new DenseIndexAllocator();
+        Object kept = new Object();
+        Object collectedOwner = new Object();
+        assertEquals(0, allocator.allocate(kept));
+        assertEquals(1, allocator.allocate(collectedOwner));
+
+        ReferenceQueue<Object> collected = new ReferenceQueue<>();
+        WeakReference<Object> ownerReference = new WeakReference<>(collectedOwner, collected);
+        collectedOwner = null;
+        Reference<?> collectedReference = null;
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while ((collectedReference == null) && (System.nanoTime() < deadline)) {
+            System.gc();
+            collectedReference = collected.remove(100);
+        }
+        if (collectedReference != ownerReference) {
+            fail("Owner was not garbage collected within 10 seconds");
+        }
+
+        // The phantom reference of the allocator may be enqueued slightly after the weak reference
+        deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while ((allocator.getAllocatedCount() > 1) && (System.nanoTime() < deadline)) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertEquals(1, allocator.getAllocatedCount());
+        Object newOwner = new Object();
+        assertEquals(1, allocator.allocate(newOwner));
+        assertNotNull(kept);
+    }
+}
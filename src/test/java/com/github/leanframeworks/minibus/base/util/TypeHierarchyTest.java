@@ -0,0 +1,44 @@
+package com.github.leanframeworks.minibus.base.util;
+
+import org.junit.Test;
+
+import java.io.Serializable;
+import java.util.AbstractCollection;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.RandomAccess;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class TypeHierarchyTest {
+
+    @Test
+    public void listClassThenSuperClassesThenInterfaces() {
+        List<Class<?>> types = Arrays.asList(TypeHierarchy.of(Integer.class));
+
+        assertEquals(Arrays.asList(Integer.class, Number.class, Object.class), types.subList(0, 3));
+        assertTrue(types.contains(Comparable.class));
+        assertTrue(types.contains(Serializable.class));
+        assertEquals(types.size(), types.stream().distinct().count());
+    }
+
+    @Test
+    public void includeIndirectlyImplementedInterfaces() {
+        List<Class<?>> types = Arrays.asList(TypeHierarchy.of(ArrayList.class));
+
+        assertEquals(Arrays.asList(ArrayList.class, AbstractList.class, AbstractCollection.class, Object.class),
+                types.subList(0, 4));
+        assertTrue(types.containsAll(Arrays.asList(List.class, Collection.class, Iterable.class, RandomAccess
+                .class)));
+    }
+
+    @Test
+    public void computeOncePerClass() {
+        assertSame(TypeHierarchy.of(ArrayList.class), TypeHierarchy.of(ArrayList.class));
+    }
+}